@@ -0,0 +1,82 @@
+package com.acme.room_booking_system.benchmark;
+
+import com.acme.room_booking_system.RoomBookingSystemApplication;
+import com.acme.room_booking_system.helper.RoomHelper;
+import com.acme.room_booking_system.model.dto.BookingRequest;
+import com.acme.room_booking_system.model.dto.RoomRequest;
+import com.acme.room_booking_system.model.entity.Room;
+import com.acme.room_booking_system.service.BookingService;
+import com.acme.room_booking_system.service.RoomService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+//the application on a random port and an in-memory h2 database, seeded with rooms holding one booking per hour tomorrow
+@State(Scope.Benchmark)
+public class ApplicationState {
+
+    public static final int ROOMS = 100;
+    public static final int FIRST_HOUR = 8;
+    public static final int BOOKINGS_PER_ROOM = 10;
+    public static final String ROOM_NAME = "Room 1";
+    public static final String USERNAME = "benchmark";
+    public static final String PASSWORD = "benchmark";
+
+    @Param({"index", "database"})
+    public String overlapCheckMode;
+
+    public ConfigurableApplicationContext context;
+    public LocalDate date;
+    public Room room;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = run("--booking.overlap-check.mode=" + overlapCheckMode);
+        date = LocalDate.now().plusDays(1);
+        seed(context, date);
+        room = getBean(RoomHelper.class).findRoomByName(ROOM_NAME);
+    }
+
+    //command line arguments take precedence over the placeholders of application.yml
+    static ConfigurableApplicationContext run(String... arguments) {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.security.user.name=" + USERNAME,
+                "--spring.security.user.password=" + PASSWORD,
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--logging.level.root=WARN",
+                //the benchmarks measure request handling, shedding their load with 429 would only cut it short
+                "--booking.admission.enabled=false"));
+        args.addAll(List.of(arguments));
+        return new SpringApplication(RoomBookingSystemApplication.class).run(args.toArray(String[]::new));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    static void seed(ConfigurableApplicationContext context, LocalDate date) {
+        RoomService roomService = context.getBean(RoomService.class);
+        List<BookingRequest> requests = new ArrayList<>();
+        for (int r = 1; r <= ROOMS; r++) {
+            roomService.createRoom(new RoomRequest("Room " + r));
+            for (int b = 0; b < BOOKINGS_PER_ROOM; b++) {
+                requests.add(new BookingRequest("Room " + r, "employee" + b + "@acme.com", date,
+                        LocalTime.of(FIRST_HOUR + b, 0), LocalTime.of(FIRST_HOUR + b + 1, 0)));
+            }
+        }
+        context.getBean(BookingService.class).createBookings(requests);
+    }
+}
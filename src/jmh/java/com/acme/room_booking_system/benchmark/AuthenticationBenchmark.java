@@ -0,0 +1,53 @@
+package com.acme.room_booking_system.benchmark;
+
+import com.acme.room_booking_system.security.CachingPasswordEncoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+//basic auth cost of one request, the same provider chain http basic uses, with plain bcrypt and with the credential cache
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthenticationBenchmark {
+
+    @Param({"bcrypt", "cached"})
+    private String encoder;
+
+    private ProviderManager authenticationManager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PasswordEncoder passwordEncoder = encoder.equals("cached")
+                ? new CachingPasswordEncoder(new BCryptPasswordEncoder(), new SimpleMeterRegistry(), 1000, Duration.ofMinutes(5))
+                : new BCryptPasswordEncoder();
+
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+        provider.setPasswordEncoder(passwordEncoder);
+        provider.setUserDetailsService(new InMemoryUserDetailsManager(User.builder()
+                .username(ApplicationState.USERNAME)
+                .password(passwordEncoder.encode(ApplicationState.PASSWORD))
+                .roles("USER")
+                .build()));
+        authenticationManager = new ProviderManager(provider);
+    }
+
+    @Benchmark
+    public Authentication authenticate() {
+        return authenticationManager.authenticate(UsernamePasswordAuthenticationToken.unauthenticated(
+                ApplicationState.USERNAME, ApplicationState.PASSWORD));
+    }
+}
@@ -0,0 +1,54 @@
+package com.acme.room_booking_system.benchmark;
+
+import com.acme.room_booking_system.helper.BookingHelper;
+import com.acme.room_booking_system.model.dto.BookingRequest;
+import com.acme.room_booking_system.model.dto.BookingResponse;
+import com.acme.room_booking_system.model.entity.Booking;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+//per request work of BookingHelper, the overlap check goes to the index or to h2 depending on the overlap check mode
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingHelperBenchmark {
+
+    private BookingHelper bookingHelper;
+    private ApplicationState application;
+    private BookingRequest request;
+    private Booking booking;
+
+    @Setup(Level.Trial)
+    public void setUp(ApplicationState application) {
+        this.application = application;
+        bookingHelper = application.getBean(BookingHelper.class);
+
+        //the hour right after the seeded bookings, free so validation passes
+        LocalTime startTime = LocalTime.of(ApplicationState.FIRST_HOUR + ApplicationState.BOOKINGS_PER_ROOM, 0);
+        request = new BookingRequest(ApplicationState.ROOM_NAME, "employee@acme.com", application.date,
+                startTime, startTime.plusHours(1));
+        booking = bookingHelper.mapToBooking(application.room, request);
+        booking.setId(1L);
+    }
+
+    @Benchmark
+    public BookingRequest validateBookingAndDates() {
+        bookingHelper.validateBookingAndDates(request, application.room, null);
+        return request;
+    }
+
+    @Benchmark
+    public Booking mapToBooking() {
+        return bookingHelper.mapToBooking(application.room, request);
+    }
+
+    @Benchmark
+    public BookingResponse mapToBookingResponse() {
+        return bookingHelper.mapToBookingResponse(ApplicationState.ROOM_NAME, booking);
+    }
+}
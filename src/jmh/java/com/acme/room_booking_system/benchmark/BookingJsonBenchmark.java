@@ -0,0 +1,50 @@
+package com.acme.room_booking_system.benchmark;
+
+import com.acme.room_booking_system.model.dto.BookingResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//serialization of booking listings, a day schedule has about 10 bookings and a listing page up to 1000
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingJsonBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int bookings;
+
+    private ObjectWriter writer;
+    private List<BookingResponse> responses;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        //same defaults as the mapper spring boot builds for the controllers
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, BookingResponse.class));
+
+        LocalDate date = LocalDate.now().plusDays(1);
+        responses = new ArrayList<>();
+        for (int i = 0; i < bookings; i++) {
+            LocalTime startTime = LocalTime.of(i % 23, 0);
+            responses.add(new BookingResponse((long) i, "Room " + (i % 100), "employee" + i + "@acme.com",
+                    date, startTime, startTime.plusHours(1)));
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return writer.writeValueAsBytes(responses);
+    }
+}
@@ -0,0 +1,82 @@
+package com.acme.room_booking_system.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//http load on the booking endpoints from more client threads than tomcat has platform request threads,
+//throughput and sampled latency (p99 in the json results) with request handling on platform or virtual threads
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(400)
+@Fork(1)
+public class BookingLoadBenchmark {
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+    private String authorization;
+    private LocalDate date;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = ApplicationState.run("--spring.threads.virtual.enabled=" + threads.equals("virtual"));
+        date = LocalDate.now().plusDays(1);
+        ApplicationState.seed(context, date);
+
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        authorization = "Basic " + Base64.getEncoder().encodeToString(
+                (ApplicationState.USERNAME + ":" + ApplicationState.PASSWORD).getBytes(StandardCharsets.UTF_8));
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    //first page of the booking listing, a keyset query on every call
+    @Benchmark
+    public int listBookings() throws IOException, InterruptedException {
+        return get("/api/bookings?limit=50");
+    }
+
+    //free slots of a random seeded room, a room lookup and an occupancy read
+    @Benchmark
+    public int freeSlots() throws IOException, InterruptedException {
+        int room = 1 + ThreadLocalRandom.current().nextInt(ApplicationState.ROOMS);
+        return get("/api/bookings/Room%20" + room + "/free-slots?date=" + date);
+    }
+
+    private int get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", authorization)
+                .GET()
+                .build();
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET " + path + " answered " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+}
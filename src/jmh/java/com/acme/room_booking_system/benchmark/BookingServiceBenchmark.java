@@ -0,0 +1,38 @@
+package com.acme.room_booking_system.benchmark;
+
+import com.acme.room_booking_system.cache.CachedSchedule;
+import com.acme.room_booking_system.model.dto.BookingResponse;
+import com.acme.room_booking_system.service.BookingService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//day schedule of a seeded room, straight from h2 and from the serialized schedule cache
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingServiceBenchmark {
+
+    private BookingService bookingService;
+    private ApplicationState application;
+
+    @Setup(Level.Trial)
+    public void setUp(ApplicationState application) {
+        this.application = application;
+        bookingService = application.getBean(BookingService.class);
+    }
+
+    @Benchmark
+    public List<BookingResponse> getBookingsByRoomAndDate() {
+        return bookingService.getBookingsByRoomAndDate(ApplicationState.ROOM_NAME, application.date);
+    }
+
+    @Benchmark
+    public CachedSchedule getCachedBookingsByRoomAndDate() {
+        return bookingService.getCachedBookingsByRoomAndDate(ApplicationState.ROOM_NAME, application.date);
+    }
+}
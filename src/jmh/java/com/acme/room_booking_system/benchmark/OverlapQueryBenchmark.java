@@ -0,0 +1,113 @@
+package com.acme.room_booking_system.benchmark;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//latency of the overlap query hibernate sends for existsByRoomAndDateAndStartTimeLessThanAndEndTimeGreaterThan,
+//against the schema of the flyway migrations with and without the composite index
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OverlapQueryBenchmark {
+
+    private static final int ROOMS = 1000;
+    private static final int BOOKINGS_PER_ROOM_DAY = 10;
+    private static final int FIRST_HOUR = 8;
+    private static final LocalDate FIRST_DATE = LocalDate.of(2030, 1, 1);
+    private static final int SEED_CHUNK = 500_000;
+
+    private static final String OVERLAP_QUERY = "select b.id from booking b "
+            + "where b.room_id = ? and b.date = ? and b.start_time < ? and b.end_time > ? fetch first 1 rows only";
+
+    @Param({"10000", "1000000", "10000000"})
+    private int bookings;
+
+    @Param({"true", "false"})
+    private boolean indexed;
+
+    private Connection connection;
+    private PreparedStatement overlapQuery;
+    private int days;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        //file database per size, seeded once and reused by later runs
+        String url = "jdbc:h2:file:./target/benchmark/bookings-" + bookings;
+        Flyway.configure().dataSource(url, "sa", "").load().migrate();
+
+        connection = DriverManager.getConnection(url, "sa", "");
+        seed();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(indexed
+                    ? "create index if not exists idx_booking_room_date_time on booking (room_id, date, start_time, end_time)"
+                    : "drop index if exists idx_booking_room_date_time");
+        }
+
+        days = Math.max(1, bookings / (ROOMS * BOOKINGS_PER_ROOM_DAY));
+        overlapQuery = connection.prepareStatement(OVERLAP_QUERY);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    //random one hour request of a seeded room-day, half of them hit a booking
+    @Benchmark
+    public boolean overlapCheck() throws SQLException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalTime startTime = LocalTime.of(FIRST_HOUR - BOOKINGS_PER_ROOM_DAY / 2 + random.nextInt(BOOKINGS_PER_ROOM_DAY * 2), 0);
+
+        overlapQuery.setLong(1, 1 + random.nextInt(ROOMS));
+        overlapQuery.setDate(2, Date.valueOf(FIRST_DATE.plusDays(random.nextInt(days))));
+        overlapQuery.setTime(3, Time.valueOf(startTime.plusHours(1)));
+        overlapQuery.setTime(4, Time.valueOf(startTime));
+        try (ResultSet resultSet = overlapQuery.executeQuery()) {
+            return resultSet.next();
+        }
+    }
+
+    //booking n goes to room n % ROOMS, one hour slots from 08:00 filling a room-day before moving to the next date
+    private void seed() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet count = statement.executeQuery("select count(*) from booking")) {
+                count.next();
+                if (count.getLong(1) == bookings) {
+                    return;
+                }
+            }
+
+            statement.execute("delete from booking");
+            statement.execute("delete from room");
+            statement.execute("insert into room (id, name, created_at, updated_at) "
+                    + "select x, 'Room ' || x, current_timestamp, current_timestamp from system_range(1, " + ROOMS + ")");
+            //insert in chunks so a single transaction never holds millions of rows
+            for (int first = 0; first < bookings; first += SEED_CHUNK) {
+                int last = Math.min(bookings, first + SEED_CHUNK) - 1;
+                statement.execute("insert into booking (id, room_id, employee_email, date, start_time, end_time, created_at, updated_at) "
+                        + "select x + 1, mod(x, " + ROOMS + ") + 1, 'employee@acme.com', "
+                        + "dateadd(day, x / " + (ROOMS * BOOKINGS_PER_ROOM_DAY) + ", date '" + FIRST_DATE + "'), "
+                        + "dateadd(hour, " + FIRST_HOUR + " + mod(x / " + ROOMS + ", " + BOOKINGS_PER_ROOM_DAY + "), time '00:00'), "
+                        + "dateadd(hour, " + (FIRST_HOUR + 1) + " + mod(x / " + ROOMS + ", " + BOOKINGS_PER_ROOM_DAY + "), time '00:00'), "
+                        + "current_timestamp, current_timestamp "
+                        + "from system_range(" + first + ", " + last + ")");
+            }
+        }
+    }
+}
@@ -3,9 +3,11 @@ package com.acme.room_booking_system;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableJpaAuditing //enable jpa auditing for the entities
+@EnableScheduling //past room-day eviction of the booking index, heartbeats of the booking change feed
 public class RoomBookingSystemApplication {
 
 	public static void main(String[] args) {
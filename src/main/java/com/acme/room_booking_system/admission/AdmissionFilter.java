@@ -0,0 +1,92 @@
+package com.acme.room_booking_system.admission;
+
+import com.acme.room_booking_system.model.ApiError;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+//admission control in front of the room and booking endpoints, runs after the security filters so requests are
+//limited per authenticated client; a rejected request gets a 429 with Retry-After right away instead of queueing
+//for a connection; streamed exports and event streams only hold their permit until the response goes async and
+//are left out of the latency the limit adapts to
+@Component
+@ConditionalOnProperty(name = "booking.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private final AdmissionLimiter admissionLimiter;
+    private final ObjectMapper objectMapper;
+    private final String retryAfterSeconds;
+
+    public AdmissionFilter(AdmissionLimiter admissionLimiter, ObjectMapper objectMapper,
+                           @Value("${booking.admission.retry-after:1s}") Duration retryAfter) {
+        this.admissionLimiter = admissionLimiter;
+        this.objectMapper = objectMapper;
+        this.retryAfterSeconds = String.valueOf(Math.max(1, retryAfter.toSeconds()));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.startsWith("/api/bookings") && !path.startsWith("/api/rooms");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        AdmissionLimiter.Priority priority = "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod())
+                ? AdmissionLimiter.Priority.READ
+                : AdmissionLimiter.Priority.WRITE;
+        AdmissionLimiter.Admission admission = admissionLimiter.tryAcquire(currentClient(), priority);
+        if (!admission.isAdmitted()) {
+            reject(request, response, admission.getRejection());
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                admission.releaseWithoutSample();
+            } else {
+                admission.release();
+            }
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, AdmissionLimiter.Rejection rejection)
+            throws IOException {
+        String message = (rejection == AdmissionLimiter.Rejection.CLIENT)
+                ? "Too many concurrent requests from this client, retry later."
+                : "The service is at its concurrency limit, retry later.";
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        ApiError apiError = new ApiError(
+                LocalDateTime.now(),
+                HttpStatus.TOO_MANY_REQUESTS.value(),
+                HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase(),
+                message,
+                request.getRequestURI()
+        );
+        response.getWriter().write(objectMapper.writeValueAsString(apiError));
+    }
+
+    private static String currentClient() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return (authentication == null) ? null : authentication.getName();
+    }
+}
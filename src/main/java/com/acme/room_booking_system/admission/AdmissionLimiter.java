@@ -0,0 +1,184 @@
+package com.acme.room_booking_system.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//admits a request only while fewer than the adaptive limit are in flight, and a client competing with others only
+//while it holds less than its share of the limit; writes are turned away once the limit is partly used, so the remaining share
+//is kept for the cheap reads; nothing waits, a request over a limit is rejected on the spot
+@Component
+@ConditionalOnProperty(name = "booking.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionLimiter {
+
+    public enum Priority {
+        READ, WRITE
+    }
+
+    public enum Rejection {
+        GLOBAL, CLIENT
+    }
+
+    private final GradientLimit limit;
+    private final double writeShare;
+    private final double clientShare;
+    private final AtomicInteger inflight = new AtomicInteger();
+    //requests in flight by client, a client leaves the map with its last request
+    private final ConcurrentMap<String, Integer> inflightByClient = new ConcurrentHashMap<>();
+    private final Map<Priority, Map<Rejection, Counter>> rejections = new EnumMap<>(Priority.class);
+
+    public AdmissionLimiter(MeterRegistry meterRegistry,
+                            @Value("${booking.admission.initial-limit:20}") int initialLimit,
+                            @Value("${booking.admission.min-limit:4}") int minLimit,
+                            @Value("${booking.admission.max-limit:200}") int maxLimit,
+                            @Value("${booking.admission.tolerance:1.5}") double tolerance,
+                            @Value("${booking.admission.smoothing:0.2}") double smoothing,
+                            @Value("${booking.admission.write-share:0.7}") double writeShare,
+                            @Value("${booking.admission.client-share:0.5}") double clientShare) {
+        this.limit = new GradientLimit(initialLimit, minLimit, maxLimit, tolerance, smoothing);
+        this.writeShare = writeShare;
+        this.clientShare = clientShare;
+
+        Gauge.builder("booking.admission.limit", limit, GradientLimit::get)
+                .description("Requests admitted at once, adapted to the observed latency")
+                .register(meterRegistry);
+        Gauge.builder("booking.admission.inflight", inflight, AtomicInteger::get)
+                .description("Admitted requests still running")
+                .register(meterRegistry);
+        Gauge.builder("booking.admission.clients", inflightByClient, Map::size)
+                .description("Clients with a request in flight")
+                .register(meterRegistry);
+        Gauge.builder("booking.admission.latency", limit, gradient -> gradient.shortRttNanos() / 1e9)
+                .description("Average latency of the last admitted requests")
+                .tag("window", "short")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("booking.admission.latency", limit, gradient -> gradient.longRttNanos() / 1e9)
+                .description("Long term average latency of admitted requests")
+                .tag("window", "long")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        for (Priority priority : Priority.values()) {
+            Map<Rejection, Counter> counters = new EnumMap<>(Rejection.class);
+            for (Rejection rejection : Rejection.values()) {
+                counters.put(rejection, Counter.builder("booking.admission.rejections")
+                        .description("Requests turned away with 429")
+                        .tag("priority", priority.name().toLowerCase())
+                        .tag("limit", rejection.name().toLowerCase())
+                        .register(meterRegistry));
+            }
+            rejections.put(priority, counters);
+        }
+    }
+
+    //the client is the authenticated user, null skips the per client limit
+    public Admission tryAcquire(String client, Priority priority) {
+        int current = limit.get();
+        if (client != null && !tryAcquireClient(client, Math.max(1, (int) Math.ceil(current * clientShare)))) {
+            return reject(priority, Rejection.CLIENT);
+        }
+        int max = (priority == Priority.WRITE) ? Math.max(1, (int) (current * writeShare)) : current;
+        if (!tryIncrement(max)) {
+            if (client != null) {
+                releaseClient(client);
+            }
+            return reject(priority, Rejection.GLOBAL);
+        }
+        return new Admission(client, null, System.nanoTime());
+    }
+
+    int limit() {
+        return limit.get();
+    }
+
+    private boolean tryIncrement(int max) {
+        while (true) {
+            int current = inflight.get();
+            if (current >= max) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    //the share only matters against other clients, a client alone, such as the single configured user every
+    //caller authenticates as, may use the whole limit
+    private boolean tryAcquireClient(String client, int max) {
+        boolean[] admitted = new boolean[1];
+        inflightByClient.compute(client, (key, count) -> {
+            int current = (count == null) ? 0 : count;
+            if (current >= max && inflightByClient.size() > 1) {
+                return count;
+            }
+            admitted[0] = true;
+            return current + 1;
+        });
+        return admitted[0];
+    }
+
+    private void releaseClient(String client) {
+        inflightByClient.computeIfPresent(client, (key, count) -> (count == 1) ? null : count - 1);
+    }
+
+    private Admission reject(Priority priority, Rejection rejection) {
+        rejections.get(priority).get(rejection).increment();
+        return new Admission(null, rejection, 0);
+    }
+
+    //outcome of tryAcquire, an admitted request must be released once it completed
+    public final class Admission {
+
+        private final String client;
+        private final Rejection rejection;
+        private final long startedAt;
+
+        private Admission(String client, Rejection rejection, long startedAt) {
+            this.client = client;
+            this.rejection = rejection;
+            this.startedAt = startedAt;
+        }
+
+        public boolean isAdmitted() {
+            return rejection == null;
+        }
+
+        public Rejection getRejection() {
+            return rejection;
+        }
+
+        //the latency of the request, from admission to release, feeds the limit
+        public void release() {
+            release(true);
+        }
+
+        //for a request that went async, the time until then says nothing about how long requests take
+        public void releaseWithoutSample() {
+            release(false);
+        }
+
+        private void release(boolean sample) {
+            if (!isAdmitted()) {
+                return;
+            }
+            long rtt = System.nanoTime() - startedAt;
+            int before = inflight.getAndDecrement();
+            if (client != null) {
+                releaseClient(client);
+            }
+            if (sample) {
+                limit.onSample(rtt, before);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.acme.room_booking_system.admission;
+
+//concurrency limit that follows the latency of the requests it let through: while the recent latency stays close to
+//the long term average the limit grows by a small queue allowance, once it rises above the tolerance the limit
+//shrinks in proportion, so it settles where the pool and the database still answer at their usual speed
+class GradientLimit {
+
+    //exponential averages over about the last 10 and the last 600 requests
+    private static final double SHORT_WEIGHT = 2.0 / 11;
+    private static final double LONG_WEIGHT = 2.0 / 601;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+
+    private double limit;
+    //nanos, zero until the first sample
+    private double shortRtt;
+    private double longRtt;
+    private volatile int current;
+
+    GradientLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+        this.current = (int) limit;
+    }
+
+    int get() {
+        return current;
+    }
+
+    synchronized double shortRttNanos() {
+        return shortRtt;
+    }
+
+    synchronized double longRttNanos() {
+        return longRtt;
+    }
+
+    //latency of a request that ran with inflight requests in flight, itself included
+    synchronized void onSample(long rttNanos, int inflight) {
+        if (longRtt == 0) {
+            shortRtt = rttNanos;
+            longRtt = rttNanos;
+            return;
+        }
+        shortRtt += (rttNanos - shortRtt) * SHORT_WEIGHT;
+        longRtt += (shortRtt - longRtt) * LONG_WEIGHT;
+        //after a long overload the average lags far behind the recovered latency, let it catch up faster
+        if (longRtt > 2 * shortRtt) {
+            longRtt *= 0.95;
+        }
+        //a limit that is far from used says nothing about whether it could grow
+        if (inflight < limit / 2) {
+            return;
+        }
+        double gradient = Math.clamp(tolerance * longRtt / shortRtt, 0.5, 1.0);
+        double next = limit * gradient + Math.sqrt(limit);
+        limit = Math.clamp(limit * (1 - smoothing) + next * smoothing, minLimit, maxLimit);
+        current = (int) limit;
+    }
+}
@@ -0,0 +1,7 @@
+package com.acme.room_booking_system.archive;
+
+import java.time.LocalDate;
+
+//room-day with bookings moved by one archive batch, its cached schedule is evicted once the batch committed
+public record ArchivedDay(Long roomId, LocalDate date) {
+}
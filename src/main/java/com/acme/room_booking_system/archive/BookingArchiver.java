@@ -0,0 +1,110 @@
+package com.acme.room_booking_system.archive;
+
+import com.acme.room_booking_system.cache.DayScheduleCache;
+import com.acme.room_booking_system.persistence.BookingJournal;
+import com.acme.room_booking_system.persistence.JournalRecord;
+import com.acme.room_booking_system.repository.ArchivedBookingRepository;
+import com.acme.room_booking_system.repository.BookingRepository;
+import com.acme.room_booking_system.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//moves bookings older than the horizon from the live table into booking_archive, so the table behind the
+//overlap checks only holds recent and upcoming bookings, past bookings can no longer change so nothing else is locked
+@Component
+@Slf4j
+public class BookingArchiver {
+
+    private final BookingRepository bookingRepository;
+    private final ArchivedBookingRepository archivedBookingRepository;
+    private final TransactionTemplate transactionTemplate;
+    //bulk statements bypass the entity listeners, so each batch is journaled as one record
+    private final ObjectProvider<BookingJournal> journal;
+    private final ShardRouter shardRouter;
+    private final DayScheduleCache dayScheduleCache;
+    private final Counter archivedCounter;
+    private final int horizonDays;
+    private final int batchSize;
+
+    public BookingArchiver(BookingRepository bookingRepository, ArchivedBookingRepository archivedBookingRepository,
+                           TransactionTemplate transactionTemplate, ObjectProvider<BookingJournal> journal,
+                           ShardRouter shardRouter, DayScheduleCache dayScheduleCache, MeterRegistry meterRegistry,
+                           @Value("${booking.archive.horizon-days:90}") int horizonDays,
+                           @Value("${booking.archive.batch-size:1000}") int batchSize) {
+        this.bookingRepository = bookingRepository;
+        this.archivedBookingRepository = archivedBookingRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.journal = journal;
+        this.shardRouter = shardRouter;
+        this.dayScheduleCache = dayScheduleCache;
+        this.archivedCounter = Counter.builder("booking.archived").register(meterRegistry);
+        this.horizonDays = horizonDays;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(cron = "${booking.archive.cron:0 30 3 * * *}")
+    public void archiveScheduled() {
+        int archived = archive();
+        log.info("Archived {} bookings older than {} days", archived, horizonDays);
+    }
+
+    //bookings dated before this day are archived
+    public LocalDate cutoff() {
+        return LocalDate.now().minusDays(horizonDays);
+    }
+
+    //archive in batches of batchSize rows, each batch its own short transaction so locks and undo stay bounded,
+    //shard by shard as a batch moves rows within one database
+    public int archive() {
+        LocalDate cutoff = cutoff();
+        AtomicInteger total = new AtomicInteger();
+        shardRouter.forEachShard(() -> total.addAndGet(archiveShard(cutoff)));
+        return total.get();
+    }
+
+    private int archiveShard(LocalDate cutoff) {
+        int total = 0;
+        while (true) {
+            Batch batch = transactionTemplate.execute(status -> archiveBatch(cutoff));
+            //a schedule cached before the commit still shows the rows as live
+            batch.days().forEach(day -> dayScheduleCache.evict(day.roomId(), day.date()));
+            total += batch.size();
+            if (batch.size() < batchSize) {
+                return total;
+            }
+        }
+    }
+
+    private Batch archiveBatch(LocalDate cutoff) {
+        List<Long> ids = bookingRepository.findIdsByDateBefore(cutoff, Limit.of(batchSize));
+        if (ids.isEmpty()) {
+            return new Batch(0, List.of());
+        }
+        LocalDateTime archivedAt = LocalDateTime.now();
+        archivedBookingRepository.archiveBookings(ids, archivedAt);
+        archivedCounter.increment(bookingRepository.deleteByIds(ids));
+        journal.ifAvailable(bookingJournal -> {
+            for (int from = 0; from < ids.size(); from += JournalRecord.MAX_ARCHIVE_IDS) {
+                List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + JournalRecord.MAX_ARCHIVE_IDS));
+                bookingJournal.appendAfterCommit(new JournalRecord.Archive(
+                        chunk.stream().mapToLong(Long::longValue).toArray(), archivedAt));
+            }
+        });
+        return new Batch(ids.size(), archivedBookingRepository.findArchivedDaysByIds(ids));
+    }
+
+    private record Batch(int size, List<ArchivedDay> days) {
+    }
+}
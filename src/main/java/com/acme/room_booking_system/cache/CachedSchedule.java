@@ -0,0 +1,5 @@
+package com.acme.room_booking_system.cache;
+
+//json body of a day schedule and its strong etag, the body is shared and must not be modified
+public record CachedSchedule(String etag, byte[] body) {
+}
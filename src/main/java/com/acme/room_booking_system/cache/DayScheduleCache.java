@@ -0,0 +1,62 @@
+package com.acme.room_booking_system.cache;
+
+import com.acme.room_booking_system.model.dto.BookingResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
+
+//serialized day schedule of every recently read room-day, evicted by the booking writers of that room-day
+@Component
+public class DayScheduleCache {
+
+    private final ObjectMapper objectMapper;
+    private final Cache<RoomDate, CachedSchedule> schedules;
+
+    public DayScheduleCache(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                            @Value("${booking.schedule-cache.max-size:10000}") long maxSize) {
+        this.objectMapper = objectMapper;
+        this.schedules = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, schedules, "schedules");
+    }
+
+    //an evict waits for a load of the same room-day in progress, so a load that read the old rows cannot outlive the evict
+    public CachedSchedule get(Long roomId, LocalDate date, Supplier<List<BookingResponse>> loader) {
+        return schedules.get(new RoomDate(roomId, date), key -> serialize(loader.get()));
+    }
+
+    //call after the change is committed
+    public void evict(Long roomId, LocalDate date) {
+        schedules.invalidate(new RoomDate(roomId, date));
+    }
+
+    //drop every cached day of the room, for changes spanning many dates such as recurring bookings
+    public void evictRoom(Long roomId) {
+        schedules.asMap().keySet().removeIf(key -> key.roomId().equals(roomId));
+    }
+
+    private CachedSchedule serialize(List<BookingResponse> bookings) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(bookings);
+            return new CachedSchedule("\"" + DigestUtils.md5DigestAsHex(body) + "\"", body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record RoomDate(Long roomId, LocalDate date) {
+    }
+}
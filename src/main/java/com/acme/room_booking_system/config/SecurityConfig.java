@@ -1,6 +1,8 @@
 package com.acme.room_booking_system.config;
 
 import com.acme.room_booking_system.security.AppAuthenticationEntryPoint;
+import com.acme.room_booking_system.security.CachingPasswordEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -16,6 +18,8 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 
+import java.time.Duration;
+
 import static org.springframework.security.config.Customizer.withDefaults;
 
 @Configuration
@@ -23,6 +27,7 @@ import static org.springframework.security.config.Customizer.withDefaults;
 public class SecurityConfig {
 
     private final AppAuthenticationEntryPoint appAuthenticationEntryPoint;
+    private final MeterRegistry meterRegistry;
 
     @Value("${spring.security.user.name}")
     private String username;
@@ -30,6 +35,12 @@ public class SecurityConfig {
     @Value("${spring.security.user.password}")
     private String password;
 
+    @Value("${security.credential-cache.max-size:1000}")
+    private long credentialCacheMaxSize;
+
+    @Value("${security.credential-cache.expire-after-write:5m}")
+    private Duration credentialCacheExpireAfterWrite;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         return http
@@ -61,8 +72,10 @@ public class SecurityConfig {
         return new InMemoryUserDetailsManager(user);
     }
 
+    //bcrypt, with successful checks cached so repeated basic auth requests skip the hash
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new CachingPasswordEncoder(new BCryptPasswordEncoder(), meterRegistry,
+                credentialCacheMaxSize, credentialCacheExpireAfterWrite);
     }
 }
@@ -1,10 +1,27 @@
 package com.acme.room_booking_system.controller;
 
+import com.acme.room_booking_system.cache.CachedSchedule;
+import com.acme.room_booking_system.event.BookingEventBus;
+import com.acme.room_booking_system.idempotency.IdempotencyStore;
+import com.acme.room_booking_system.idempotency.IdempotentResult;
 import com.acme.room_booking_system.model.ApiError;
+import com.acme.room_booking_system.model.dto.BatchBookingResult;
+import com.acme.room_booking_system.model.dto.BookingPage;
 import com.acme.room_booking_system.model.dto.BookingRequest;
 import com.acme.room_booking_system.model.dto.BookingResponse;
+import com.acme.room_booking_system.model.dto.DaySchedule;
+import com.acme.room_booking_system.model.dto.RecurringBookingRequest;
+import com.acme.room_booking_system.model.dto.RecurringBookingResponse;
+import com.acme.room_booking_system.model.dto.SchedulePage;
+import com.acme.room_booking_system.model.dto.TimeSlotResponse;
 import com.acme.room_booking_system.service.BookingService;
+import com.acme.room_booking_system.service.RecurringBookingService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -12,12 +29,19 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping("/api/bookings")
@@ -25,24 +49,141 @@ import java.util.List;
 @RequiredArgsConstructor
 public class BookingController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final BookingService bookingService;
+    private final RecurringBookingService recurringBookingService;
+    private final BookingEventBus bookingEventBus;
+    private final ObjectMapper objectMapper;
+    private final IdempotencyStore idempotencyStore;
 
     @GetMapping
-    @Operation(summary = "Get All Bookings", description = "Retrieve a list of all bookings")
+    @Operation(summary = "Get All Bookings", description = "Retrieve a page of bookings ordered by id, the "
+            + NEXT_CURSOR_HEADER + " header holds the afterId of the next page")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Bookings Retrieved Successfully"),
+            @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
             @ApiResponse(responseCode = "401", description = "Unauthorized",
                     content = @Content(schema = @Schema(implementation = ApiError.class))),
             @ApiResponse(responseCode = "500", description = "Internal Server Error",
                     content = @Content(schema = @Schema(implementation = ApiError.class)))
     })
-    public ResponseEntity<List<BookingResponse>> getAllBookings() {
-        List<BookingResponse> bookings = bookingService.getAllBookings();
-        return ResponseEntity.ok(bookings);
+    public ResponseEntity<List<BookingResponse>> getAllBookings(@RequestParam(required = false) Long afterId,
+                                                                @RequestParam(defaultValue = "${booking.page.default-size:100}") int limit) {
+        BookingPage page = bookingService.getAllBookings(afterId, limit);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor().toString());
+        }
+        return response.body(page.getBookings());
+    }
+
+    @GetMapping(produces = NDJSON_VALUE)
+    @Operation(summary = "Export All Bookings", description = "Stream all bookings as newline delimited json")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Bookings Streamed Successfully"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error",
+                    content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public ResponseEntity<StreamingResponseBody> exportBookings() {
+        return ndjson(bookingService::exportBookings);
+    }
+
+    @GetMapping("/schedule")
+    @Operation(summary = "Get Schedules Of All Rooms", description = "Retrieve the bookings of a page of rooms between two dates, "
+            + "grouped by room and day, the " + NEXT_CURSOR_HEADER + " header holds the afterRoomId of the next page")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Schedules Retrieved Successfully"),
+            @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error",
+                    content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public ResponseEntity<List<DaySchedule>> getSchedules(@RequestParam LocalDate from, @RequestParam LocalDate to,
+                                                          @RequestParam(required = false) Long afterRoomId,
+                                                          @RequestParam(defaultValue = "${booking.range.default-rooms:20}") int limit) {
+        SchedulePage page = bookingService.getSchedules(from, to, afterRoomId, limit);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor().toString());
+        }
+        return response.body(page.getSchedules());
+    }
+
+    @GetMapping(value = "/schedule", produces = NDJSON_VALUE)
+    @Operation(summary = "Export Schedules Of All Rooms", description = "Stream the day schedules of every room between two dates "
+            + "as newline delimited json, reading limit rooms at a time")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Schedules Streamed Successfully"),
+            @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error",
+                    content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public ResponseEntity<StreamingResponseBody> exportSchedules(@RequestParam LocalDate from, @RequestParam LocalDate to,
+                                                                 @RequestParam(defaultValue = "${booking.range.default-rooms:20}") int limit) {
+        //a bad range is answered with a 400 before the stream starts
+        bookingService.validateScheduleRange(from, to, limit);
+        return this.<DaySchedule>ndjson(consumer -> bookingService.exportSchedules(from, to, limit, consumer));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream Booking Changes", description = "Server-sent events for every booking, recurring booking and room change, "
+            + "optionally only those of one room and date, reconnect with Last-Event-ID to receive the changes missed in between")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Event Stream Opened"),
+            @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public SseEmitter streamBookingEvents(@RequestParam(required = false) String roomName,
+                                          @RequestParam(required = false) LocalDate date,
+                                          @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return bookingEventBus.subscribe(roomName, date, lastEventId);
     }
 
     @GetMapping("/{roomName}")
-    @Operation(summary = "Get Bookings By Room And Date", description = "Retrieve all bookings for a specific room and date")
+    @Operation(summary = "Get Bookings By Room And Date", description = "Retrieve all bookings for a specific room and date, "
+            + "send the ETag back in If-None-Match to get a 304 while the schedule is unchanged")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Bookings retrieved successfully",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = BookingResponse.class)))),
+            @ApiResponse(responseCode = "304", description = "Bookings Not Modified"),
+            @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "404", description = "Entity Not Found",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error",
+                    content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public ResponseEntity<byte[]> getBookingsByRoomAndDate(@PathVariable String roomName,
+                                                           @RequestParam @Valid LocalDate date) {
+        CachedSchedule schedule = bookingService.getCachedBookingsByRoomAndDate(roomName, date);
+
+        //spring answers 304 without a body when the If-None-Match header matches the etag
+        return ResponseEntity.ok()
+                .eTag(schedule.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(schedule.body());
+    }
+
+    @GetMapping(value = "/{roomName}", params = {"from", "to"})
+    @Operation(summary = "Get Bookings By Room And Date Range", description = "Retrieve the bookings of a room between two dates, "
+            + "both included, grouped by day, days without bookings are left out")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Bookings retrieved successfully"),
             @ApiResponse(responseCode = "400", description = "Bad Request",
@@ -54,14 +195,35 @@ public class BookingController {
             @ApiResponse(responseCode = "500", description = "Internal Server Error",
                     content = @Content(schema = @Schema(implementation = ApiError.class)))
     })
-    public ResponseEntity<List<BookingResponse>> getBookingsByRoomAndDate(@PathVariable String roomName,
-                                                                          @RequestParam @Valid LocalDate date) {
-        List<BookingResponse> bookings = bookingService.getBookingsByRoomAndDate(roomName, date);
-        return ResponseEntity.ok(bookings);
+    public ResponseEntity<List<DaySchedule>> getBookingsByRoomAndDateRange(@PathVariable String roomName,
+                                                                           @RequestParam LocalDate from,
+                                                                           @RequestParam LocalDate to) {
+        List<DaySchedule> schedules = bookingService.getSchedulesByRoom(roomName, from, to);
+        return ResponseEntity.ok(schedules);
+    }
+
+    @GetMapping("/{roomName}/free-slots")
+    @Operation(summary = "Get Free Slots By Room And Date", description = "Retrieve the free whole-hour time slots of a room on a specific date")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Free slots retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "404", description = "Entity Not Found",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error",
+                    content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public ResponseEntity<List<TimeSlotResponse>> getFreeSlots(@PathVariable String roomName,
+                                                               @RequestParam @Valid LocalDate date) {
+        List<TimeSlotResponse> freeSlots = bookingService.getFreeSlots(roomName, date);
+        return ResponseEntity.ok(freeSlots);
     }
 
     @PostMapping
-    @Operation(summary = "Create Booking", description = "Create a new booking for a room")
+    @Operation(summary = "Create Booking", description = "Create a new booking for a room, a retry with the same "
+            + IdempotencyStore.HEADER + " header gets the original response back without booking again")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Booking Created Successfully"),
             @ApiResponse(responseCode = "400", description = "Bad Request",
@@ -70,16 +232,86 @@ public class BookingController {
                     content = @Content(schema = @Schema(implementation = ApiError.class))),
             @ApiResponse(responseCode = "404", description = "Entity Not Found",
                     content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "409", description = "Booking Overlaps Another Booking",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "422", description = "Invalid Booking Duration",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error",
+                    content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public ResponseEntity<BookingResponse> createBooking(@RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+                                                         @RequestBody @Valid BookingRequest request) {
+        IdempotentResult<BookingResponse> booking = idempotencyStore.execute(idempotencyKey, "create-booking", request,
+                () -> bookingService.createBooking(request));
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header(REPLAYED_HEADER, String.valueOf(booking.replayed()))
+                .eTag(VersionTags.etag(booking.body().getVersion()))
+                .body(booking.body());
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Create Bookings In Batch", description = "Create many bookings at once, reporting success or failure per booking")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch Processed, See Per Booking Results"),
+            @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error",
+                    content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public ResponseEntity<List<BatchBookingResult>> createBookings(@RequestBody List<BookingRequest> requests) {
+        List<BatchBookingResult> results = bookingService.createBookings(requests);
+        return ResponseEntity.ok(results);
+    }
+
+    @PostMapping("/recurring")
+    @Operation(summary = "Create Recurring Booking", description = "Book a room daily or weekly between two dates, "
+            + "the occurrences show up in the day schedules without being stored one by one")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Recurring Booking Created Successfully"),
+            @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "404", description = "Entity Not Found",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "409", description = "Booking Overlaps Another Booking",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "422", description = "Invalid Booking Duration",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error",
+                    content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public ResponseEntity<RecurringBookingResponse> createRecurringBooking(@RequestBody @Valid RecurringBookingRequest request) {
+        RecurringBookingResponse recurringBooking = recurringBookingService.createRecurringBooking(request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(recurringBooking);
+    }
+
+    @DeleteMapping("/recurring/{id}")
+    @Operation(summary = "Cancel Recurring Booking", description = "Cancel the future occurrences of a recurring booking")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Recurring Booking Canceled Successfully"),
+            @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "404", description = "Entity Not Found",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "409", description = "Booking Already Past",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
             @ApiResponse(responseCode = "500", description = "Internal Server Error",
                     content = @Content(schema = @Schema(implementation = ApiError.class)))
     })
-    public ResponseEntity<BookingResponse> createBooking(@RequestBody @Valid BookingRequest request) {
-        BookingResponse booking = bookingService.createBooking(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(booking);
+    public ResponseEntity<Void> cancelRecurringBooking(@PathVariable Long id) {
+        recurringBookingService.cancelRecurringBooking(id);
+        return ResponseEntity.ok().build();
     }
 
     @PutMapping("/{id}")
-    @Operation(summary = "Update Booking", description = "Update an existing booking")
+    @Operation(summary = "Update Booking", description = "Update an existing booking, with If-Match only while the booking "
+            + "is still at the version of the etag, a retry with the same " + IdempotencyStore.HEADER
+            + " header gets the original response back without updating again")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Booking Updated Successfully"),
             @ApiResponse(responseCode = "400", description = "Bad Request",
@@ -88,12 +320,25 @@ public class BookingController {
                     content = @Content(schema = @Schema(implementation = ApiError.class))),
             @ApiResponse(responseCode = "404", description = "Entity Not Found",
                     content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "409", description = "Booking Overlaps Another Booking Or Concurrent Update",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "422", description = "Invalid Booking Duration",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "412", description = "Booking Changed Since The Etag",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
             @ApiResponse(responseCode = "500", description = "Internal Server Error",
                     content = @Content(schema = @Schema(implementation = ApiError.class)))
     })
-    public ResponseEntity<BookingResponse> updateBooking(@PathVariable Long id, @RequestBody @Valid BookingRequest request) {
-        BookingResponse updatedBooking = bookingService.updateBooking(id, request);
-        return ResponseEntity.ok(updatedBooking);
+    public ResponseEntity<BookingResponse> updateBooking(@RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+                                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                         @PathVariable Long id, @RequestBody @Valid BookingRequest request) {
+        Long expectedVersion = VersionTags.expectedVersion(ifMatch);
+        IdempotentResult<BookingResponse> updatedBooking = idempotencyStore.execute(idempotencyKey, "update-booking-" + id, request,
+                expectedVersion, () -> bookingService.updateBooking(id, request, expectedVersion));
+        return ResponseEntity.ok()
+                .header(REPLAYED_HEADER, String.valueOf(updatedBooking.replayed()))
+                .eTag(VersionTags.etag(updatedBooking.body().getVersion()))
+                .body(updatedBooking.body());
     }
 
     @DeleteMapping("/{id}")
@@ -106,6 +351,8 @@ public class BookingController {
                     content = @Content(schema = @Schema(implementation = ApiError.class))),
             @ApiResponse(responseCode = "404", description = "Entity Not Found",
                     content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "409", description = "Booking Already Past",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
             @ApiResponse(responseCode = "500", description = "Internal Server Error",
                     content = @Content(schema = @Schema(implementation = ApiError.class)))
     })
@@ -113,4 +360,26 @@ public class BookingController {
         bookingService.cancelBooking(id);
         return ResponseEntity.ok().build();
     }
-}
+
+    //stream every value the producer hands over as one line of json
+    private <T> ResponseEntity<StreamingResponseBody> ndjson(Consumer<Consumer<T>> producer) {
+        //let the generator buffer rows instead of flushing after every value
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                //each line ends with its own newline instead of the default space between root values
+                generator.setRootValueSeparator(null);
+                producer.accept(value -> {
+                    try {
+                        writer.writeValue(generator, value);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON_VALUE)).body(body);
+    }
+}
\ No newline at end of file
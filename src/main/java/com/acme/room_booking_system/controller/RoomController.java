@@ -12,10 +12,13 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
 
 @RestController
@@ -40,6 +43,24 @@ public class RoomController {
         return ResponseEntity.ok(rooms);
     }
 
+    @GetMapping("/available")
+    @Operation(summary = "Get Available Rooms", description = "Retrieve the rooms without any booking between start and end on a specific date")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Available Rooms Retrieved Successfully"),
+            @ApiResponse(responseCode = "400", description = "Bad Request",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error",
+                    content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    public ResponseEntity<List<RoomResponse>> getAvailableRooms(@RequestParam LocalDate date,
+                                                                @RequestParam LocalTime start,
+                                                                @RequestParam LocalTime end) {
+        List<RoomResponse> rooms = roomService.getAvailableRooms(date, start, end);
+        return ResponseEntity.ok(rooms);
+    }
+
     @PostMapping
     @Operation(summary = "Create Room", description = "Create a new room")
     @ApiResponses(value = {
@@ -48,16 +69,19 @@ public class RoomController {
                     content = @Content(schema = @Schema(implementation = ApiError.class))),
             @ApiResponse(responseCode = "401", description = "Unauthorized",
                     content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "409", description = "Room Name Taken",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
             @ApiResponse(responseCode = "500", description = "Internal Server Error",
                     content = @Content(schema = @Schema(implementation = ApiError.class)))
     })
     public ResponseEntity<RoomResponse> createRoom(@RequestBody @Valid RoomRequest roomRequest) {
         RoomResponse roomResponse = roomService.createRoom(roomRequest);
-        return ResponseEntity.status(HttpStatus.CREATED).body(roomResponse);
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(VersionTags.etag(roomResponse.getVersion())).body(roomResponse);
     }
 
     @PutMapping("/{id}")
-    @Operation(summary = "Update Room", description = "Update the name of an existing room")
+    @Operation(summary = "Update Room", description = "Update the name of an existing room, "
+            + "with If-Match only while the room is still at the version of the etag")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Room Updated Successfully"),
             @ApiResponse(responseCode = "400", description = "Bad Request",
@@ -66,12 +90,17 @@ public class RoomController {
                     content = @Content(schema = @Schema(implementation = ApiError.class))),
             @ApiResponse(responseCode = "404", description = "Entity Not Found",
                     content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "409", description = "Room Name Taken Or Concurrent Update",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "412", description = "Room Changed Since The Etag",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
             @ApiResponse(responseCode = "500", description = "Internal Server Error",
                     content = @Content(schema = @Schema(implementation = ApiError.class)))
     })
-    public ResponseEntity<RoomResponse> updateRoom(@PathVariable Long id, @RequestBody @Valid RoomRequest roomRequest) {
-        RoomResponse updatedRoom = roomService.updateRoom(id, roomRequest);
-        return ResponseEntity.ok(updatedRoom);
+    public ResponseEntity<RoomResponse> updateRoom(@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                   @PathVariable Long id, @RequestBody @Valid RoomRequest roomRequest) {
+        RoomResponse updatedRoom = roomService.updateRoom(id, roomRequest, VersionTags.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(VersionTags.etag(updatedRoom.getVersion())).body(updatedRoom);
     }
 
     @DeleteMapping("/{id}")
@@ -84,6 +113,8 @@ public class RoomController {
                     content = @Content(schema = @Schema(implementation = ApiError.class))),
             @ApiResponse(responseCode = "404", description = "Entity Not Found",
                     content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "409", description = "Room Has Bookings",
+                    content = @Content(schema = @Schema(implementation = ApiError.class))),
             @ApiResponse(responseCode = "500", description = "Internal Server Error",
                     content = @Content(schema = @Schema(implementation = ApiError.class)))
     })
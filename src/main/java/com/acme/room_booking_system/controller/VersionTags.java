@@ -0,0 +1,33 @@
+package com.acme.room_booking_system.controller;
+
+import com.acme.room_booking_system.exception.PreconditionFailedException;
+
+//the etag of a single booking or room is its version, clients send it back in If-Match to update conditionally
+final class VersionTags {
+
+    private VersionTags() {
+    }
+
+    static String etag(Long version) {
+        return (version == null) ? null : "\"" + version + "\"";
+    }
+
+    //null when the header is missing or *, an etag that is not one of our versions can never match
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.valueOf(tag);
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException("If-Match " + ifMatch + " does not match the current version.");
+        }
+    }
+}
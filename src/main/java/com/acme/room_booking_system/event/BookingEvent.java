@@ -0,0 +1,56 @@
+package com.acme.room_booking_system.event;
+
+import com.acme.room_booking_system.model.dto.BookingResponse;
+import com.acme.room_booking_system.model.dto.RecurringBookingResponse;
+import com.acme.room_booking_system.model.dto.RoomResponse;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDate;
+
+//a change of a booking or room as sent to the change feed, id is assigned by the event bus in publishing order
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BookingEvent(long id,
+                           BookingEventType type,
+                           String roomName,
+                           //the room name before a rename, or the room a booking moved away from
+                           String previousRoomName,
+                           //null for changes that are not tied to a single date, such as room and recurring booking changes
+                           LocalDate date,
+                           //the date a booking was moved away from
+                           LocalDate previousDate,
+                           BookingResponse booking,
+                           RecurringBookingResponse recurringBooking,
+                           RoomResponse room) {
+
+    public static BookingEvent booking(BookingEventType type, String roomName, LocalDate date, LocalDate previousDate,
+                                       BookingResponse booking) {
+        return new BookingEvent(0L, type, roomName, null, date, previousDate, booking, null, null);
+    }
+
+    //a booking moved to another room, subscribers of the room it left see the change as well
+    public static BookingEvent booking(BookingEventType type, String roomName, String previousRoomName, LocalDate date,
+                                       LocalDate previousDate, BookingResponse booking) {
+        return new BookingEvent(0L, type, roomName, previousRoomName, date, previousDate, booking, null, null);
+    }
+
+    public static BookingEvent recurringBooking(BookingEventType type, String roomName, RecurringBookingResponse recurringBooking) {
+        return new BookingEvent(0L, type, roomName, null, null, null, null, recurringBooking, null);
+    }
+
+    public static BookingEvent room(BookingEventType type, String roomName, String previousRoomName, RoomResponse room) {
+        return new BookingEvent(0L, type, roomName, previousRoomName, null, null, null, null, room);
+    }
+
+    BookingEvent withId(long id) {
+        return new BookingEvent(id, type, roomName, previousRoomName, date, previousDate, booking, recurringBooking, room);
+    }
+
+    //whether a subscriber filtering on the room and date, either of them optional, wants the event
+    boolean matches(String filterRoomName, LocalDate filterDate) {
+        boolean roomMatches = filterRoomName == null
+                || filterRoomName.equals(roomName) || filterRoomName.equals(previousRoomName);
+        boolean dateMatches = filterDate == null || date == null
+                || filterDate.equals(date) || filterDate.equals(previousDate);
+        return roomMatches && dateMatches;
+    }
+}
@@ -0,0 +1,259 @@
+package com.acme.room_booking_system.event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+//in-process change feed: writers hand events over without waiting, a single dispatcher thread numbers them
+//and queues them for the matching server-sent event subscribers, each subscriber's queue is written to its socket
+//by a virtual thread of its own that only runs while the queue has events, so a slow client never holds up the
+//others and an idle subscriber is only an async request parked by tomcat and an entry in the subscriber maps
+@Component
+@Slf4j
+public class BookingEventBus {
+
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "booking-event-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    //writes queued events to the sockets, a virtual thread per subscriber with something to send
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    //subscribers filtering on a room, and those following every room
+    private final Map<String, Set<Subscriber>> subscribersByRoom = new ConcurrentHashMap<>();
+    private final Set<Subscriber> allRoomsSubscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final long subscriberTimeoutMillis;
+    private final int replaySize;
+    private final int queueSize;
+    private final Counter droppedSubscribers;
+
+    //only touched by the dispatcher thread
+    private final Deque<BookingEvent> recentEvents = new ArrayDeque<>();
+    private long lastEventId;
+
+    public BookingEventBus(MeterRegistry meterRegistry,
+                           @Value("${booking.events.subscriber-timeout-millis:1800000}") long subscriberTimeoutMillis,
+                           @Value("${booking.events.replay-size:1000}") int replaySize,
+                           @Value("${booking.events.subscriber-queue-size:1024}") int queueSize) {
+        this.subscriberTimeoutMillis = subscriberTimeoutMillis;
+        this.replaySize = replaySize;
+        //a reconnecting subscriber must fit the whole replay
+        this.queueSize = Math.max(queueSize, replaySize + 1);
+        Gauge.builder("booking.events.subscribers", subscriberCount, AtomicInteger::get)
+                .register(meterRegistry);
+        this.droppedSubscribers = Counter.builder("booking.events.dropped-subscribers")
+                .description("Subscribers closed because they did not keep up with the events")
+                .register(meterRegistry);
+    }
+
+    //never blocks the caller, writers publish while holding their room-day locks so events keep the write order
+    public void publish(BookingEvent event) {
+        dispatcher.execute(() -> dispatch(event));
+    }
+
+    //subscribe to the events of a room and date, either may be null to follow all of them,
+    //events after lastEventId still held in the replay buffer are sent first
+    public SseEmitter subscribe(String roomName, LocalDate date, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(subscriberTimeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, roomName, date, new ArrayBlockingQueue<>(queueSize));
+
+        emitter.onCompletion(() -> unregister(subscriber));
+        //completed, otherwise the timeout surfaces as an AsyncRequestTimeoutException answered with a 500
+        emitter.onTimeout(() -> {
+            unregister(subscriber);
+            emitter.complete();
+        });
+        emitter.onError(error -> unregister(subscriber));
+
+        //register and replay on the dispatcher so no event is missed or sent twice in between
+        dispatcher.execute(() -> {
+            if (lastEventId != null) {
+                for (BookingEvent event : recentEvents) {
+                    if (event.id() > lastEventId && event.matches(roomName, date)) {
+                        enqueue(subscriber, toSse(event));
+                    }
+                }
+            }
+            register(subscriber);
+        });
+        return emitter;
+    }
+
+    //a comment line every so often lets proxies keep idle streams open and reveals subscribers that went away
+    @Scheduled(fixedDelayString = "${booking.events.heartbeat-interval:PT30S}")
+    public void heartbeat() {
+        dispatcher.execute(() -> forEachSubscriber(subscriber -> enqueue(subscriber, SseEmitter.event().comment("heartbeat"))));
+    }
+
+    public int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        senders.shutdownNow();
+        forEachSubscriber(subscriber -> subscriber.emitter().complete());
+    }
+
+    private void dispatch(BookingEvent event) {
+        BookingEvent numbered = event.withId(++lastEventId);
+        recentEvents.addLast(numbered);
+        if (recentEvents.size() > replaySize) {
+            recentEvents.removeFirst();
+        }
+
+        //only the subscribers of the rooms involved are looked at, not every open stream
+        List<Subscriber> candidates = new ArrayList<>(allRoomsSubscribers);
+        candidates.addAll(subscribersByRoom.getOrDefault(numbered.roomName(), Set.of()));
+        if (numbered.previousRoomName() != null) {
+            candidates.addAll(subscribersByRoom.getOrDefault(numbered.previousRoomName(), Set.of()));
+        }
+
+        for (Subscriber subscriber : candidates) {
+            if (numbered.matches(subscriber.roomName(), subscriber.date())) {
+                enqueue(subscriber, toSse(numbered));
+            }
+        }
+    }
+
+    private static SseEmitter.SseEventBuilder toSse(BookingEvent event) {
+        return SseEmitter.event()
+                .id(String.valueOf(event.id()))
+                .name(event.type().name())
+                .data(event, MediaType.APPLICATION_JSON);
+    }
+
+    //never waits on the subscriber: a full queue means the client reads slower than events arrive, it is closed
+    //and picks up the events it missed from the replay buffer when it reconnects with Last-Event-ID
+    private void enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (subscriber.closed().get()) {
+            return;
+        }
+        if (!subscriber.queue().offer(event)) {
+            droppedSubscribers.increment();
+            log.debug("Closing booking event subscriber that fell {} events behind", subscriber.queue().size());
+            close(subscriber);
+            return;
+        }
+        if (subscriber.draining().compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    //one drain per subscriber at a time keeps its events in order
+    private void drain(Subscriber subscriber) {
+        do {
+            SseEmitter.SseEventBuilder event;
+            while ((event = subscriber.queue().poll()) != null) {
+                try {
+                    subscriber.emitter().send(event);
+                } catch (IOException | IllegalStateException e) {
+                    //the client went away, the emitter is completed and the subscriber dropped
+                    log.debug("Dropping booking event subscriber: {}", e.getMessage());
+                    close(subscriber);
+                    return;
+                }
+            }
+            subscriber.draining().set(false);
+            //an event queued after the last poll but before the flag was cleared still needs a drain
+        } while (!subscriber.queue().isEmpty() && subscriber.draining().compareAndSet(false, true));
+    }
+
+    private void close(Subscriber subscriber) {
+        if (subscriber.closed().compareAndSet(false, true)) {
+            unregister(subscriber);
+            subscriber.queue().clear();
+            subscriber.emitter().complete();
+        }
+    }
+
+    private void register(Subscriber subscriber) {
+        boolean added;
+        if (subscriber.roomName() == null) {
+            added = allRoomsSubscribers.add(subscriber);
+        } else {
+            AtomicBoolean addedToRoom = new AtomicBoolean();
+            subscribersByRoom.compute(subscriber.roomName(), (roomName, subscribers) -> {
+                Set<Subscriber> target = (subscribers == null) ? ConcurrentHashMap.newKeySet() : subscribers;
+                addedToRoom.set(target.add(subscriber));
+                return target;
+            });
+            added = addedToRoom.get();
+        }
+        if (added) {
+            subscriberCount.incrementAndGet();
+        }
+    }
+
+    //called from the dispatcher and from the container threads completing a stream
+    private void unregister(Subscriber subscriber) {
+        boolean removed;
+        if (subscriber.roomName() == null) {
+            removed = allRoomsSubscribers.remove(subscriber);
+        } else {
+            AtomicBoolean removedFromRoom = new AtomicBoolean();
+            subscribersByRoom.computeIfPresent(subscriber.roomName(), (roomName, subscribers) -> {
+                removedFromRoom.set(subscribers.remove(subscriber));
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+            removed = removedFromRoom.get();
+        }
+        if (removed) {
+            subscriberCount.decrementAndGet();
+        }
+    }
+
+    private void forEachSubscriber(Consumer<Subscriber> action) {
+        List<Subscriber> subscribers = new ArrayList<>(allRoomsSubscribers);
+        subscribersByRoom.values().forEach(subscribers::addAll);
+        subscribers.forEach(action);
+    }
+
+    //compared by identity, so two streams with the same filter are still different subscribers
+    private record Subscriber(SseEmitter emitter, String roomName, LocalDate date,
+                              BlockingQueue<SseEmitter.SseEventBuilder> queue,
+                              AtomicBoolean draining, AtomicBoolean closed) {
+
+        Subscriber(SseEmitter emitter, String roomName, LocalDate date, BlockingQueue<SseEmitter.SseEventBuilder> queue) {
+            this(emitter, roomName, date, queue, new AtomicBoolean(), new AtomicBoolean());
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.acme.room_booking_system.event;
+
+public enum BookingEventType {
+    BOOKING_CREATED,
+    BOOKING_UPDATED,
+    BOOKING_CANCELED,
+    RECURRING_BOOKING_CREATED,
+    RECURRING_BOOKING_CANCELED,
+    ROOM_CREATED,
+    ROOM_UPDATED,
+    ROOM_DELETED
+}
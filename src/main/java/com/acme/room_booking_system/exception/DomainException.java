@@ -0,0 +1,14 @@
+package com.acme.room_booking_system.exception;
+
+import org.springframework.http.HttpStatus;
+
+//an expected business outcome such as an overlap, answered with its own status instead of a 500,
+//built without a stack trace as rejections are routine and the trace would only point at the check that threw
+public abstract class DomainException extends RuntimeException {
+
+    protected DomainException(String message) {
+        super(message, null, false, false);
+    }
+
+    public abstract HttpStatus getStatus();
+}
@@ -1,52 +1,78 @@
 package com.acme.room_booking_system.exception;
 
+import com.acme.room_booking_system.metrics.BookingMetrics;
 import com.acme.room_booking_system.model.ApiError;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 
+//rejections of a request are counted every time but only logged now and then without a trace,
+//full traces are kept for the errors answered with a 500
 @ControllerAdvice
 @Slf4j
 public class GlobalExceptionHandler {
 
-    @ExceptionHandler(BadRequestException.class)
-    public ResponseEntity<ApiError> handleBadRequestExceptions(BadRequestException ex, HttpServletRequest request) {
-        logError(ex);
-        return buildErrorResponse(ex.getMessage(), HttpStatus.BAD_REQUEST, request.getRequestURI());
+    private final BookingMetrics bookingMetrics;
+    private final RejectionLogLimiter rejectionLogLimiter;
+
+    public GlobalExceptionHandler(BookingMetrics bookingMetrics,
+                                  @Value("${api.errors.rejection-log-interval:1s}") Duration rejectionLogInterval) {
+        this.bookingMetrics = bookingMetrics;
+        this.rejectionLogLimiter = new RejectionLogLimiter(rejectionLogInterval);
+    }
+
+    @ExceptionHandler(DomainException.class)
+    public ResponseEntity<ApiError> handleDomainException(DomainException ex, HttpServletRequest request) {
+        return buildRejectionResponse(ex, ex.getStatus(), request);
     }
 
+    //the application's own checks throw domain exceptions, these two are left for the ones thrown by libraries
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<ApiError> handleIllegalArgumentException(IllegalArgumentException ex, HttpServletRequest request) {
-        logError(ex);
-        return buildErrorResponse(ex.getMessage(), HttpStatus.BAD_REQUEST, request.getRequestURI());
+        return buildRejectionResponse(ex, HttpStatus.BAD_REQUEST, request);
     }
 
     @ExceptionHandler(EntityNotFoundException.class)
     public ResponseEntity<ApiError> handleEntityNotFoundException(EntityNotFoundException ex, HttpServletRequest request) {
-        logError(ex);
-        return buildErrorResponse(ex.getMessage(), HttpStatus.NOT_FOUND, request.getRequestURI());
+        return buildRejectionResponse(ex, HttpStatus.NOT_FOUND, request);
+    }
+
+    //a concurrent update won every retry, the client may simply send the request again
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ApiError> handleOptimisticLockingFailureException(OptimisticLockingFailureException ex, HttpServletRequest request) {
+        return buildRejectionResponse(ex, HttpStatus.CONFLICT, request);
     }
 
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiError> handleGeneralException(Exception ex, HttpServletRequest request) {
-        logError(ex);
-        return buildErrorResponse(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR, request.getRequestURI());
+        log.error("Error occurred: {}", ex.getMessage(), ex);
+        return buildErrorResponse(ex, HttpStatus.INTERNAL_SERVER_ERROR, request.getRequestURI());
     }
 
-    private ResponseEntity<ApiError> buildErrorResponse(String message, HttpStatus status, String path) {
+    private ResponseEntity<ApiError> buildRejectionResponse(Exception ex, HttpStatus status, HttpServletRequest request) {
+        String kind = ex.getClass().getSimpleName();
+        long skipped = rejectionLogLimiter.tryAcquire(kind);
+        if (skipped >= 0) {
+            log.info("Rejected {} {} with {} {}: {} ({} more {} not logged since the last one)", request.getMethod(),
+                    request.getRequestURI(), status.value(), kind, ex.getMessage(), skipped, kind);
+        }
+        return buildErrorResponse(ex, status, request.getRequestURI());
+    }
+
+    private ResponseEntity<ApiError> buildErrorResponse(Exception ex, HttpStatus status, String path) {
+        bookingMetrics.countError(ex, status.value());
         ApiError errorResponse = new ApiError(LocalDateTime.now(),
-                status.value(), status.getReasonPhrase(), message, path);
+                status.value(), status.getReasonPhrase(), ex.getMessage(), path);
 
         return ResponseEntity.status(status).body(errorResponse);
     }
-
-    private void logError(Exception ex) {
-        log.error("Error occurred: {}", ex.getMessage(), ex);
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,15 @@
+package com.acme.room_booking_system.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class IdempotencyKeyReusedException extends BadRequestException {
+
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.UNPROCESSABLE_ENTITY;
+    }
+}
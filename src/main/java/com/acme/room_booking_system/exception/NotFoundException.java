@@ -0,0 +1,15 @@
+package com.acme.room_booking_system.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class NotFoundException extends DomainException {
+
+    public NotFoundException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.NOT_FOUND;
+    }
+}
@@ -0,0 +1,36 @@
+package com.acme.room_booking_system.exception;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+//lets one log line per kind of rejection through each interval and counts the rejections left out in between,
+//so a burst of overlaps costs a counter increment each instead of a log line each
+class RejectionLogLimiter {
+
+    private final long intervalNanos;
+    private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    RejectionLogLimiter(Duration interval) {
+        this.intervalNanos = interval.toNanos();
+    }
+
+    //rejections of the kind left out since its last line, or -1 when this one is left out as well
+    long tryAcquire(String kind) {
+        Window window = windows.computeIfAbsent(kind, key -> new Window());
+        long now = System.nanoTime();
+        long nextLogAt = window.nextLogAt.get();
+        if (now - nextLogAt < 0 || !window.nextLogAt.compareAndSet(nextLogAt, now + intervalNanos)) {
+            window.skipped.increment();
+            return -1;
+        }
+        return window.skipped.sumThenReset();
+    }
+
+    private static final class Window {
+        private final AtomicLong nextLogAt = new AtomicLong(System.nanoTime());
+        private final LongAdder skipped = new LongAdder();
+    }
+}
@@ -1,8 +1,15 @@
 package com.acme.room_booking_system.exception;
 
+import org.springframework.http.HttpStatus;
+
 public class RoomAlreadyExistsException extends BadRequestException {
 
     public RoomAlreadyExistsException(String message) {
         super(message);
     }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.CONFLICT;
+    }
 }
@@ -1,25 +1,67 @@
 package com.acme.room_booking_system.helper;
 
+import com.acme.room_booking_system.exception.BadRequestException;
 import com.acme.room_booking_system.exception.BookingOverlapException;
 import com.acme.room_booking_system.exception.InvalidBookingDurationException;
+import com.acme.room_booking_system.exception.NotFoundException;
+import com.acme.room_booking_system.index.BookingIntervalIndex;
+import com.acme.room_booking_system.index.OverlapCheckMode;
+import com.acme.room_booking_system.index.SlotOccupancy;
+import com.acme.room_booking_system.metrics.BookingMetrics;
 import com.acme.room_booking_system.model.dto.BookingRequest;
 import com.acme.room_booking_system.model.dto.BookingResponse;
+import com.acme.room_booking_system.model.dto.RecurringBookingRequest;
+import com.acme.room_booking_system.model.dto.TimeSlotResponse;
 import com.acme.room_booking_system.model.entity.Booking;
+import com.acme.room_booking_system.model.entity.RecurringBooking;
 import com.acme.room_booking_system.model.entity.Room;
 import com.acme.room_booking_system.repository.BookingRepository;
-import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
+@Slf4j
 public class BookingHelper {
 
     private final BookingRepository bookingRepository;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final Validator validator;
+    private final BookingMetrics bookingMetrics;
+    private final RecurringBookingHelper recurringBookingHelper;
+
+    @Value("${booking.overlap-check.mode:index}")
+    private OverlapCheckMode overlapCheckMode;
+
+    @Value("${booking.page.max-size:1000}")
+    private int maxPageSize;
+
+    @Value("${booking.batch.max-size:5000}")
+    private int maxBatchSize;
+
+    @Value("${booking.range.max-days:31}")
+    private int maxRangeDays;
+
+    @Value("${booking.range.max-rooms:100}")
+    private int maxRangeRooms;
+
+    @Value("${booking.recurring.max-days:366}")
+    private int maxRecurringDays;
 
     public void validateBookingAndDates(BookingRequest request, Room room, Long bookingId) {
         validatePastDateAndTimes(request.getDate(), request.getStartTime());
@@ -27,17 +69,98 @@ public class BookingHelper {
         validateBookingOverlap(room, request, bookingId);
     }
 
+    //validate a single request of a batch on its own, without the overlap check
+    public void validateBatchBookingRequest(BookingRequest request) {
+        Set<ConstraintViolation<BookingRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            throw new BadRequestException(violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining(" ")));
+        }
+
+        validatePastDateAndTimes(request.getDate(), request.getStartTime());
+        validateBookingDuration(request.getStartTime(), request.getEndTime());
+    }
+
+    //validate the number of requests in a batch
+    public void validateBatchSize(int size) {
+        if (size < 1 || size > maxBatchSize) {
+            throw new BadRequestException("Batch size must be between 1 and " + maxBatchSize + ".");
+        }
+    }
+
+    //find the batch requests of one room-day that overlap existing bookings or requests earlier in the batch,
+    //checking every request in a single pass against one snapshot of the day
+    public List<Integer> findOverlappingBatchRequests(Room room, LocalDate date, List<Integer> indexes, List<BookingRequest> requests) {
+        NavigableMap<LocalTime, LocalTime> occupied = bookedIntervals(room, date);
+        List<Integer> overlapping = new ArrayList<>();
+
+        for (int index : indexes) {
+            BookingRequest request = requests.get(index);
+            Map.Entry<LocalTime, LocalTime> previous = occupied.lowerEntry(request.getEndTime());
+
+            if (previous != null && previous.getValue().isAfter(request.getStartTime())) {
+                overlapping.add(index);
+            } else {
+                occupied.put(request.getStartTime(), request.getEndTime());
+            }
+        }
+        return overlapping;
+    }
+
+    //booked intervals of a room-day from the index, or from the database when the index is not in use,
+    //together with the occurrences of recurring bookings on that day
+    private NavigableMap<LocalTime, LocalTime> bookedIntervals(Room room, LocalDate date) {
+        NavigableMap<LocalTime, LocalTime> intervals;
+        if (overlapCheckMode == OverlapCheckMode.INDEX && bookingIntervalIndex.isReady()) {
+            intervals = bookingIntervalIndex.bookedIntervals(room.getId(), date);
+        } else {
+            intervals = new TreeMap<>();
+            bookingRepository.findByRoomAndDate(room, date)
+                    .forEach(booking -> intervals.put(booking.getStartTime(), booking.getEndTime()));
+        }
+        recurringBookingHelper.addOccurrenceIntervals(room, date, intervals);
+        return intervals;
+    }
+
+    //validate a recurring booking against the bookings and the other recurrences of the room, without expanding any of them
+    public void validateRecurringBooking(RecurringBookingRequest request, Room room) {
+        validatePastDateAndTimes(request.getStartDate(), request.getStartTime());
+        validateBookingDuration(request.getStartTime(), request.getEndTime());
+
+        if (request.getStartDate().plusDays(maxRecurringDays).isBefore(request.getEndDate())) {
+            throw new BadRequestException("A recurring booking cannot span more than " + maxRecurringDays + " days.");
+        }
+
+        RecurringBooking recurrence = recurringBookingHelper.mapToRecurringBooking(room, request);
+
+        //one query for the bookings of the whole date range at the requested times, then keep those on an occurrence date
+        boolean bookingOverlaps = bookingRepository.findByRoomAndDateRangeAndTimesOverlapping(room,
+                        request.getStartDate(), request.getEndDate(), request.getStartTime(), request.getEndTime())
+                .stream()
+                .anyMatch(booking -> recurrence.occursOn(booking.getDate()));
+
+        boolean recurrenceOverlaps = recurringBookingHelper.findRecurrences(room, request.getStartDate(), request.getEndDate())
+                .stream()
+                .anyMatch(other -> other.overlapsTimes(request.getStartTime(), request.getEndTime()) && other.sharesDateWith(recurrence));
+
+        if (bookingOverlaps || recurrenceOverlaps) {
+            throw new BookingOverlapException("Recurring booking overlaps with another booking.");
+        }
+    }
+
     //validate that the booking date and times are not in the past
     private void validatePastDateAndTimes(LocalDate date, LocalTime startTime) {
         LocalDate today = LocalDate.now();
         LocalTime currentTime = LocalTime.now();
 
         if (date.isBefore(today)) {
-            throw new IllegalArgumentException("The booking date cannot be in the past.");
+            throw new BadRequestException("The booking date cannot be in the past.");
         }
 
         if (date.equals(today) && startTime.isBefore(currentTime)) {
-            throw new IllegalArgumentException("The booking start time cannot be in the past.");
+            throw new BadRequestException("The booking start time cannot be in the past.");
         }
     }
 
@@ -52,22 +175,49 @@ public class BookingHelper {
 
     //validate if the booking overlaps with others
     private void validateBookingOverlap(Room room, BookingRequest request, Long bookingId) {
-        boolean overlapExists = (bookingId == null)
+        boolean overlapExists = bookingMetrics.timeOverlapCheck(overlapCheckMode, () -> switch (overlapCheckMode) {
+            //fall back to the database until the index has been warmed up
+            case INDEX -> bookingIntervalIndex.isReady()
+                    ? overlapExistsInIndex(room, request, bookingId)
+                    : overlapExistsInDatabase(room, request, bookingId);
+            case DATABASE -> overlapExistsInDatabase(room, request, bookingId);
+            case VERIFY -> verifyOverlap(room, request, bookingId);
+        } || recurringBookingHelper.overlapsOccurrence(room, request.getDate(), request.getStartTime(), request.getEndTime()));
+
+        if (overlapExists) {
+            throw new BookingOverlapException("Booking time overlaps with another booking.");
+        }
+    }
+
+    private boolean overlapExistsInIndex(Room room, BookingRequest request, Long bookingId) {
+        return bookingIntervalIndex.overlaps(room.getId(), request.getDate(),
+                request.getStartTime(), request.getEndTime(), bookingId);
+    }
+
+    private boolean overlapExistsInDatabase(Room room, BookingRequest request, Long bookingId) {
+        return (bookingId == null)
                 //check for overlap when creating a new booking
                 ? bookingRepository.existsByRoomAndDateAndStartTimeLessThanAndEndTimeGreaterThan(
                         room, request.getDate(), request.getEndTime(), request.getStartTime())
                 //check for overlap when updating a booking excluding the current booking id
                 : bookingRepository.existsByRoomAndDateAndStartTimeLessThanAndEndTimeGreaterThanAndIdNot(
                         room, request.getDate(), request.getEndTime(), request.getStartTime(), bookingId);
+    }
 
-        if (overlapExists) {
-            throw new BookingOverlapException("Booking time overlaps with another booking.");
+    //the database stays authoritative, the index answer is only compared against it
+    private boolean verifyOverlap(Room room, BookingRequest request, Long bookingId) {
+        boolean databaseResult = overlapExistsInDatabase(room, request, bookingId);
+
+        if (bookingIntervalIndex.isReady() && overlapExistsInIndex(room, request, bookingId) != databaseResult) {
+            log.warn("Booking interval index disagrees with database for room {} on {} {}-{}: database overlap={}",
+                    room.getId(), request.getDate(), request.getStartTime(), request.getEndTime(), databaseResult);
         }
+        return databaseResult;
     }
 
     public Booking findBookingById(Long bookingId) {
         return bookingRepository.findById(bookingId)
-                .orElseThrow(() -> new EntityNotFoundException("Booking not found with id: " + bookingId));
+                .orElseThrow(() -> new NotFoundException("Booking not found with id: " + bookingId));
     }
 
     public Booking mapToBooking(Room room, BookingRequest request) {
@@ -81,7 +231,54 @@ public class BookingHelper {
     }
 
     public BookingResponse mapToBookingResponse(String roomName, Booking booking) {
-        return new BookingResponse(roomName, booking.getEmployeeEmail(),
-                booking.getDate(), booking.getStartTime(), booking.getEndTime());
+        return new BookingResponse(booking.getId(), roomName, booking.getEmployeeEmail(),
+                booking.getDate(), booking.getStartTime(), booking.getEndTime(), booking.getVersion());
+    }
+
+    //validate the requested page size of booking listings
+    public void validatePageSize(int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new BadRequestException("Page size must be between 1 and " + maxPageSize + ".");
+        }
+    }
+
+    //validate a schedule range, both dates included, and the number of rooms per page
+    public void validateDateRange(LocalDate from, LocalDate to, int rooms) {
+        if (to.isBefore(from)) {
+            throw new BadRequestException("The end date must not be before the start date.");
+        }
+        if (from.plusDays(maxRangeDays - 1).isBefore(to)) {
+            throw new BadRequestException("A schedule range cannot span more than " + maxRangeDays + " days.");
+        }
+        if (rooms < 1 || rooms > maxRangeRooms) {
+            throw new BadRequestException("Rooms per page must be between 1 and " + maxRangeRooms + ".");
+        }
+    }
+
+    //turn the occupied hour mask into windows of consecutive free hours, skipping hours already started today
+    public List<TimeSlotResponse> mapToFreeSlots(LocalDate date, long occupiedHours) {
+        LocalDate today = LocalDate.now();
+        if (date.isBefore(today)) {
+            return List.of();
+        }
+
+        //bookings cannot cross midnight, so the last bookable hour starts at 22:00
+        int firstHour = date.equals(today) ? LocalTime.now().getHour() + 1 : 0;
+        int lastHour = SlotOccupancy.HOURS_PER_DAY - 2;
+
+        List<TimeSlotResponse> freeSlots = new ArrayList<>();
+        int hour = firstHour;
+        while (hour <= lastHour) {
+            if ((occupiedHours & (1L << hour)) != 0) {
+                hour++;
+                continue;
+            }
+            int start = hour;
+            while (hour <= lastHour && (occupiedHours & (1L << hour)) == 0) {
+                hour++;
+            }
+            freeSlots.add(new TimeSlotResponse(LocalTime.of(start, 0), LocalTime.of(hour, 0)));
+        }
+        return freeSlots;
     }
 }
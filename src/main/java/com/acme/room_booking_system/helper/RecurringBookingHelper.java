@@ -0,0 +1,162 @@
+package com.acme.room_booking_system.helper;
+
+import com.acme.room_booking_system.exception.NotFoundException;
+import com.acme.room_booking_system.index.OverlapCheckMode;
+import com.acme.room_booking_system.index.RecurringBookingIndex;
+import com.acme.room_booking_system.index.SlotOccupancy;
+import com.acme.room_booking_system.model.dto.BookingResponse;
+import com.acme.room_booking_system.model.dto.RecurringBookingRequest;
+import com.acme.room_booking_system.model.dto.RecurringBookingResponse;
+import com.acme.room_booking_system.model.entity.RecurrenceFrequency;
+import com.acme.room_booking_system.model.entity.RecurringBooking;
+import com.acme.room_booking_system.model.entity.Room;
+import com.acme.room_booking_system.repository.RecurringBookingRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+//lookups of recurring bookings for a date, answered from the recurrences themselves without storing any occurrence
+@Component
+@RequiredArgsConstructor
+public class RecurringBookingHelper {
+
+    private final RecurringBookingRepository recurringBookingRepository;
+    private final RecurringBookingIndex recurringBookingIndex;
+
+    @Value("${booking.overlap-check.mode:index}")
+    private OverlapCheckMode overlapCheckMode;
+
+    //recurrences of the room that may occur between the two dates, from the index or from the database when the index is not in use
+    public List<RecurringBooking> findRecurrences(Room room, LocalDate from, LocalDate to) {
+        if (useIndex()) {
+            return recurringBookingIndex.findByRoomAndDates(room.getId(), from, to);
+        }
+        return recurringBookingRepository.findByRoomAndDatesOverlapping(room, from, to);
+    }
+
+    //recurrences of the room with an occurrence on the date
+    public List<RecurringBooking> findOccurrences(Room room, LocalDate date) {
+        return findRecurrences(room, date, date).stream()
+                .filter(recurrence -> recurrence.occursOn(date))
+                .toList();
+    }
+
+    public boolean overlapsOccurrence(Room room, LocalDate date, LocalTime startTime, LocalTime endTime) {
+        return findOccurrences(room, date).stream()
+                .anyMatch(recurrence -> recurrence.overlapsTimes(startTime, endTime));
+    }
+
+    public long occupiedHours(Room room, LocalDate date) {
+        long occupied = 0L;
+        for (RecurringBooking recurrence : findOccurrences(room, date)) {
+            occupied |= SlotOccupancy.touchedHours(recurrence.getStartTime(), recurrence.getEndTime());
+        }
+        return occupied;
+    }
+
+    //add the occurrences of the date to the booked intervals of a room-day
+    public void addOccurrenceIntervals(Room room, LocalDate date, NavigableMap<LocalTime, LocalTime> intervals) {
+        findOccurrences(room, date).forEach(recurrence -> intervals.put(recurrence.getStartTime(), recurrence.getEndTime()));
+    }
+
+    //day schedule with the occurrences of the date merged in by start time
+    public List<BookingResponse> withOccurrences(Room room, LocalDate date, List<BookingResponse> bookings) {
+        List<RecurringBooking> occurrences = findOccurrences(room, date);
+        if (occurrences.isEmpty()) {
+            return bookings;
+        }
+
+        List<BookingResponse> schedule = new ArrayList<>(bookings);
+        occurrences.forEach(recurrence -> schedule.add(new BookingResponse(recurrence.getEmployeeEmail(),
+                recurrence.getStartTime(), recurrence.getEndTime())));
+        schedule.sort(Comparator.comparing(BookingResponse::getStartTime));
+        return schedule;
+    }
+
+    //ids of the rooms with an occurrence overlapping [startTime, endTime) on the date
+    public Set<Long> findBusyRoomIds(LocalDate date, LocalTime startTime, LocalTime endTime) {
+        List<RecurringBooking> recurrences = useIndex()
+                ? recurringBookingIndex.findByDates(date, date)
+                : recurringBookingRepository.findByDatesOverlapping(date, date);
+
+        return recurrences.stream()
+                .filter(recurrence -> recurrence.occursOn(date) && recurrence.overlapsTimes(startTime, endTime))
+                .map(recurrence -> recurrence.getRoom().getId())
+                .collect(Collectors.toSet());
+    }
+
+    //occurrences of the given rooms between the two dates, named after the rooms of the map
+    public List<BookingResponse> findOccurrenceResponses(Map<Long, String> roomNamesById, LocalDate from, LocalDate to) {
+        List<RecurringBooking> recurrences = useIndex()
+                ? recurringBookingIndex.findByDates(from, to)
+                : recurringBookingRepository.findByDatesOverlapping(from, to);
+
+        List<BookingResponse> occurrences = new ArrayList<>();
+        for (RecurringBooking recurrence : recurrences) {
+            String roomName = roomNamesById.get(recurrence.getRoom().getId());
+            if (roomName == null) {
+                continue;
+            }
+            LocalDate last = recurrence.getEndDate().isBefore(to) ? recurrence.getEndDate() : to;
+            for (LocalDate date = recurrence.getStartDate().isAfter(from) ? recurrence.getStartDate() : from;
+                 !date.isAfter(last); date = date.plusDays(1)) {
+                if (recurrence.occursOn(date)) {
+                    occurrences.add(new BookingResponse(roomName, recurrence.getEmployeeEmail(), date,
+                            recurrence.getStartTime(), recurrence.getEndTime()));
+                }
+            }
+        }
+        return occurrences;
+    }
+
+    //dates the recurrence occurs on, only needed to take the locks of its room-days
+    public List<LocalDate> occurrenceDates(RecurringBooking recurrence) {
+        int step = (recurrence.getFrequency() == RecurrenceFrequency.DAILY) ? 1 : 7;
+        List<LocalDate> dates = new ArrayList<>();
+        for (LocalDate date = recurrence.getStartDate(); !date.isAfter(recurrence.getEndDate()); date = date.plusDays(step)) {
+            dates.add(date);
+        }
+        return dates;
+    }
+
+    public boolean hasRecurringBookings(Long roomId) {
+        return recurringBookingRepository.existsByRoomId(roomId);
+    }
+
+    public RecurringBooking findRecurringBookingById(Long recurringBookingId) {
+        return recurringBookingRepository.findById(recurringBookingId)
+                .orElseThrow(() -> new NotFoundException("Recurring booking not found with id: " + recurringBookingId));
+    }
+
+    public RecurringBooking mapToRecurringBooking(Room room, RecurringBookingRequest request) {
+        RecurringBooking recurrence = new RecurringBooking();
+        recurrence.setRoom(room);
+        recurrence.setEmployeeEmail(request.getEmployeeEmail());
+        recurrence.setFrequency(request.getFrequency());
+        recurrence.setStartDate(request.getStartDate());
+        recurrence.setEndDate(request.getEndDate());
+        recurrence.setStartTime(request.getStartTime());
+        recurrence.setEndTime(request.getEndTime());
+        return recurrence;
+    }
+
+    public RecurringBookingResponse mapToRecurringBookingResponse(RecurringBooking recurrence) {
+        return new RecurringBookingResponse(recurrence.getId(), recurrence.getRoom().getName(), recurrence.getEmployeeEmail(),
+                recurrence.getFrequency(), recurrence.getStartDate(), recurrence.getEndDate(),
+                recurrence.getStartTime(), recurrence.getEndTime());
+    }
+
+    private boolean useIndex() {
+        return overlapCheckMode == OverlapCheckMode.INDEX && recurringBookingIndex.isReady();
+    }
+}
@@ -1,32 +1,120 @@
 package com.acme.room_booking_system.helper;
 
+import com.acme.room_booking_system.exception.BadRequestException;
+import com.acme.room_booking_system.exception.NotFoundException;
 import com.acme.room_booking_system.exception.RoomAlreadyExistsException;
+import com.acme.room_booking_system.model.dto.RoomResponse;
 import com.acme.room_booking_system.model.entity.Room;
 import com.acme.room_booking_system.repository.RoomRepository;
-import jakarta.persistence.EntityNotFoundException;
-import lombok.RequiredArgsConstructor;
+import com.acme.room_booking_system.sharding.ShardRouter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
 @Component
-@RequiredArgsConstructor
 public class RoomHelper {
 
     private final RoomRepository roomRepository;
+    private final ShardRouter shardRouter;
+
+    //room name -> detached room, only existing rooms are cached so new names are always looked up
+    private final Cache<String, Room> roomsByName;
+
+    private final Timer lookupTimer;
+    private final Timer saveTimer;
+
+    public RoomHelper(RoomRepository roomRepository, ShardRouter shardRouter, MeterRegistry meterRegistry,
+                      @Value("${room.cache.max-size:10000}") long maxSize,
+                      @Value("${room.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.roomRepository = roomRepository;
+        this.shardRouter = shardRouter;
+        this.roomsByName = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                //safety net for rooms changed outside of the room service
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, roomsByName, "rooms");
+        this.lookupTimer = Timer.builder("room.lookup")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.saveTimer = Timer.builder("room.repository.save")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
 
     public Room findRoomById(Long roomId) {
         return roomRepository.findById(roomId)
-                .orElseThrow(() -> new EntityNotFoundException("Room not found with id: " + roomId));
+                .orElseThrow(() -> new NotFoundException("Room not found with id: " + roomId));
     }
 
     public Room findRoomByName(String name) {
-        return roomRepository.findByName(name)
-                .orElseThrow(() -> new EntityNotFoundException("Room not found with name: " + name));
+        Room room = lookupTimer.record(() -> roomsByName.get(name, key -> roomRepository.findByName(key).orElse(null)));
+        if (room == null) {
+            throw new NotFoundException("Room not found with name: " + name);
+        }
+        return room;
     }
 
-    //check if a room name already exists
+    //resolve several room names, cached names are served from memory and the rest with a single query
+    public Map<String, Room> findRoomsByNames(Collection<String> names) {
+        return roomsByName.getAll(names, missing -> roomRepository.findByNameIn(missing).stream()
+                .collect(Collectors.toMap(Room::getName, Function.identity())));
+    }
+
+    //keyset page of rooms ordered by id, starting after afterId
+    public List<RoomResponse> findRoomPage(Long afterId, int limit) {
+        return roomRepository.findRoomResponsesAfter((afterId == null) ? 0L : afterId, Limit.of(limit));
+    }
+
+    //check if a room name already exists, a cached name fails right away without a query,
+    //with shards the unique name column only covers one of them, so the name is also looked up on all shards
     public void checkRoomNameUniqueness(String name) {
-        if (roomRepository.existsByName(name)) {
-            throw new RoomAlreadyExistsException("Room with name " + name + " already exists.");
+        if (roomsByName.getIfPresent(name) != null || (shardRouter.isSharded() && roomRepository.existsByName(name))) {
+            throw roomAlreadyExists(name);
+        }
+    }
+
+    //save a room, relying on the unique name column instead of a separate exists query
+    public Room saveRoom(String name, Supplier<Room> save) {
+        try {
+            return saveTimer.record(save);
+        } catch (DataIntegrityViolationException e) {
+            throw roomAlreadyExists(name);
+        }
+    }
+
+    //validate the time window of an availability search
+    public void validateTimeWindow(LocalTime startTime, LocalTime endTime) {
+        if (!startTime.isBefore(endTime)) {
+            throw new BadRequestException("Start time must be before end time.");
         }
     }
+
+    public void cacheRoom(Room room) {
+        roomsByName.put(room.getName(), room);
+    }
+
+    public void evictRoom(String name) {
+        roomsByName.invalidate(name);
+    }
+
+    private RoomAlreadyExistsException roomAlreadyExists(String name) {
+        return new RoomAlreadyExistsException("Room with name " + name + " already exists.");
+    }
 }
@@ -0,0 +1,123 @@
+package com.acme.room_booking_system.idempotency;
+
+import com.acme.room_booking_system.exception.BadRequestException;
+import com.acme.room_booking_system.exception.IdempotencyKeyReusedException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+//responses of writes sent with an Idempotency-Key header, so a client retrying after a timeout gets the original
+//response back instead of running the validation and the write again, bounded in size and evicted after the ttl
+@Component
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final ObjectMapper objectMapper;
+
+    //user, operation and key -> fingerprint of the request and its response, completed once the first call returns
+    private final Cache<String, StoredCall> calls;
+
+    private final Counter replayCounter;
+
+    public IdempotencyStore(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                            @Value("${booking.idempotency.max-size:10000}") long maxSize,
+                            @Value("${booking.idempotency.expire-after-write:24h}") Duration expireAfterWrite) {
+        this.objectMapper = objectMapper;
+        this.calls = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, calls, "idempotency");
+        this.replayCounter = Counter.builder("booking.idempotency.replays").register(meterRegistry);
+    }
+
+    //run the call once per key, a retry with the same request gets the stored response and a retry arriving while the
+    //first call is still running waits for it, failed calls are not stored so they can be retried with the same key
+    public <T> IdempotentResult<T> execute(String key, String operation, Object request, Supplier<T> call) {
+        return execute(key, operation, request, null, call);
+    }
+
+    //the precondition is whatever else the call depends on besides the body, such as the version of an If-Match,
+    //a retry with the same body under another precondition is a different request
+    public <T> IdempotentResult<T> execute(String key, String operation, Object request, Object precondition, Supplier<T> call) {
+        if (key == null) {
+            return new IdempotentResult<>(call.get(), false);
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException(HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters.");
+        }
+
+        String scopedKey = scope(operation, key);
+        StoredCall stored = new StoredCall(fingerprint(request, precondition), new CompletableFuture<>());
+        StoredCall existing = calls.asMap().putIfAbsent(scopedKey, stored);
+        if (existing != null) {
+            return replay(existing, stored.fingerprint());
+        }
+
+        try {
+            T response = call.get();
+            stored.response().complete(response);
+            return new IdempotentResult<>(response, false);
+        } catch (RuntimeException | Error e) {
+            calls.asMap().remove(scopedKey, stored);
+            stored.response().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> IdempotentResult<T> replay(StoredCall existing, String fingerprint) {
+        if (!existing.fingerprint().equals(fingerprint)) {
+            throw new IdempotencyKeyReusedException(HEADER + " was already used for a different request.");
+        }
+        try {
+            T response = (T) existing.response().join();
+            replayCounter.increment();
+            return new IdempotentResult<>(response, true);
+        } catch (CompletionException e) {
+            //the first call failed while this one waited, answer with the same error
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw (Error) e.getCause();
+        }
+    }
+
+    //keys are only unique per client, so two users sending the same key never see each other's response
+    private static String scope(String operation, String key) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String user = (authentication == null) ? "" : authentication.getName();
+        return user + '\0' + operation + '\0' + key;
+    }
+
+    private String fingerprint(Object request, Object precondition) {
+        try {
+            String body = DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(request));
+            return (precondition == null) ? body : body + '\0' + precondition;
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record StoredCall(String fingerprint, CompletableFuture<Object> response) {
+    }
+}
@@ -0,0 +1,5 @@
+package com.acme.room_booking_system.idempotency;
+
+//response of an idempotent call, replayed when it was stored by an earlier call with the same key
+public record IdempotentResult<T>(T body, boolean replayed) {
+}
@@ -0,0 +1,234 @@
+package com.acme.room_booking_system.index;
+
+import com.acme.room_booking_system.model.entity.Booking;
+import com.acme.room_booking_system.repository.BookingRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+@Component
+@Slf4j
+public class BookingIntervalIndex {
+
+    private final BookingRepository bookingRepository;
+    private final SlotOccupancy slotOccupancy;
+    private final int warmUpPageSize;
+
+    private final Map<RoomDate, DaySchedule> schedules = new ConcurrentHashMap<>();
+    //bookings removed or moved while the warm-up runs, a page read before that change must not bring them back
+    private final Set<Long> changedDuringWarmUp = ConcurrentHashMap.newKeySet();
+    private volatile boolean ready;
+
+    public BookingIntervalIndex(BookingRepository bookingRepository, SlotOccupancy slotOccupancy,
+                                @Value("${booking.index.warm-up-page-size:1000}") int warmUpPageSize) {
+        this.bookingRepository = bookingRepository;
+        this.slotOccupancy = slotOccupancy;
+        this.warmUpPageSize = warmUpPageSize;
+    }
+
+    //load all bookings from today onwards in pages by id, past dates can never be booked again
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        LocalDate today = LocalDate.now();
+        int count = 0;
+        long afterId = 0L;
+        List<Booking> page;
+        do {
+            page = bookingRepository.findByDateGreaterThanEqualAndIdAfter(today, afterId, Limit.of(warmUpPageSize));
+            for (Booking booking : page) {
+                if (addUnlessChanged(booking)) {
+                    count++;
+                }
+                afterId = booking.getId();
+            }
+        } while (page.size() == warmUpPageSize);
+        ready = true;
+        changedDuringWarmUp.clear();
+        log.info("Booking interval index warmed up with {} bookings", count);
+    }
+
+    //drop the room-days that have passed, nothing can be booked or checked on them anymore
+    @Scheduled(cron = "${booking.index.evict-cron:0 5 0 * * *}")
+    public void evictPastDays() {
+        LocalDate today = LocalDate.now();
+        int evicted = 0;
+        for (RoomDate key : schedules.keySet()) {
+            if (key.date().isBefore(today) && schedules.computeIfPresent(key, (roomDate, schedule) -> {
+                slotOccupancy.update(roomDate.roomId(), roomDate.date(), 0L);
+                return null;
+            }) == null) {
+                evicted++;
+            }
+        }
+        log.info("Evicted {} past room-days from the booking interval index", evicted);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    //days before today were never loaded or have been evicted, they must be read from the database
+    public boolean covers(LocalDate date) {
+        return ready && !date.isBefore(LocalDate.now());
+    }
+
+    //check if [startTime, endTime) overlaps any booking of the room on the date, ignoring the excluded booking id
+    public boolean overlaps(Long roomId, LocalDate date, LocalTime startTime, LocalTime endTime, Long excludedBookingId) {
+        return overlaps(slotOccupancy.occupiedHours(roomId, date), roomId, date, startTime, endTime, excludedBookingId);
+    }
+
+    //keep the rooms without a booking overlapping [startTime, endTime) on the date, most rooms are decided by their hour mask alone
+    public <T> List<T> freeRooms(List<T> rooms, ToLongFunction<T> roomId, LocalDate date, LocalTime startTime, LocalTime endTime) {
+        long[] roomIds = new long[rooms.size()];
+        for (int i = 0; i < roomIds.length; i++) {
+            roomIds[i] = roomId.applyAsLong(rooms.get(i));
+        }
+        long[] occupied = slotOccupancy.occupiedHours(roomIds, date);
+
+        List<T> free = new ArrayList<>();
+        for (int i = 0; i < roomIds.length; i++) {
+            if (!overlaps(occupied[i], roomIds[i], date, startTime, endTime, null)) {
+                free.add(rooms.get(i));
+            }
+        }
+        return free;
+    }
+
+    private boolean overlaps(long occupiedHours, Long roomId, LocalDate date, LocalTime startTime, LocalTime endTime,
+                             Long excludedBookingId) {
+        //no booking touches any hour of the request
+        if ((occupiedHours & SlotOccupancy.touchedHours(startTime, endTime)) == 0) {
+            return false;
+        }
+
+        //some booking lies inside an hour the request fully covers, unless that booking is the one being updated
+        if (excludedBookingId == null && (occupiedHours & SlotOccupancy.fullHours(startTime, endTime)) != 0) {
+            return true;
+        }
+
+        //only partially covered hours collide, compare the exact intervals
+        DaySchedule schedule = schedules.get(new RoomDate(roomId, date));
+        return schedule != null && schedule.overlaps(startTime, endTime, excludedBookingId);
+    }
+
+    //copy of the booked intervals of a room-day as start time -> end time
+    public NavigableMap<LocalTime, LocalTime> bookedIntervals(Long roomId, LocalDate date) {
+        DaySchedule schedule = schedules.get(new RoomDate(roomId, date));
+        return (schedule == null) ? new TreeMap<>() : schedule.intervals();
+    }
+
+    public long occupiedHours(Long roomId, LocalDate date) {
+        return slotOccupancy.occupiedHours(roomId, date);
+    }
+
+    public void add(Booking booking) {
+        //add inside compute so a concurrent remove cannot drop the schedule in between
+        schedules.compute(new RoomDate(booking.getRoom().getId(), booking.getDate()), (key, schedule) -> add(key, schedule, booking));
+    }
+
+    //the check runs inside compute, so a remove of the same room-day either comes first and is seen, or comes after and removes the slot
+    private boolean addUnlessChanged(Booking booking) {
+        boolean[] added = new boolean[1];
+        schedules.compute(new RoomDate(booking.getRoom().getId(), booking.getDate()), (key, schedule) -> {
+            if (changedDuringWarmUp.contains(booking.getId())) {
+                return schedule;
+            }
+            added[0] = true;
+            return add(key, schedule, booking);
+        });
+        return added[0];
+    }
+
+    private DaySchedule add(RoomDate key, DaySchedule schedule, Booking booking) {
+        DaySchedule target = (schedule == null) ? new DaySchedule() : schedule;
+        slotOccupancy.update(key.roomId(), key.date(),
+                target.add(booking.getStartTime(), new Slot(booking.getId(), booking.getEndTime())));
+        return target;
+    }
+
+    public void remove(Booking booking) {
+        remove(booking.getRoom().getId(), booking.getDate(), booking.getStartTime(), booking.getId());
+    }
+
+    //re-index a booking whose room, date or times changed
+    public void move(Booking booking, Long previousRoomId, LocalDate previousDate, LocalTime previousStartTime) {
+        remove(previousRoomId, previousDate, previousStartTime, booking.getId());
+        add(booking);
+    }
+
+    private void remove(Long roomId, LocalDate date, LocalTime startTime, Long bookingId) {
+        if (!ready) {
+            changedDuringWarmUp.add(bookingId);
+        }
+        schedules.computeIfPresent(new RoomDate(roomId, date), (key, schedule) -> {
+            long occupiedHours = schedule.remove(startTime, bookingId);
+            slotOccupancy.update(roomId, date, occupiedHours);
+            return (occupiedHours == 0) ? null : schedule;
+        });
+    }
+
+    private record RoomDate(Long roomId, LocalDate date) {
+    }
+
+    private record Slot(Long bookingId, LocalTime endTime) {
+    }
+
+    //bookings of one room on one day, keyed by start time, never overlapping each other
+    private static final class DaySchedule {
+
+        private final NavigableMap<LocalTime, Slot> slots = new TreeMap<>();
+        private long occupiedHours;
+
+        //add the slot and return the new hour occupancy of the day
+        synchronized long add(LocalTime startTime, Slot slot) {
+            slots.put(startTime, slot);
+            occupiedHours |= SlotOccupancy.touchedHours(startTime, slot.endTime());
+            return occupiedHours;
+        }
+
+        //remove the slot and return the new hour occupancy of the day, 0 once the day is empty
+        synchronized long remove(LocalTime startTime, Long bookingId) {
+            Slot slot = slots.get(startTime);
+            if (slot != null && slot.bookingId().equals(bookingId)) {
+                slots.remove(startTime);
+                //other slots may share the hours of the removed one, so rebuild the mask
+                occupiedHours = 0L;
+                slots.forEach((start, remaining) -> occupiedHours |= SlotOccupancy.touchedHours(start, remaining.endTime()));
+            }
+            return occupiedHours;
+        }
+
+        synchronized NavigableMap<LocalTime, LocalTime> intervals() {
+            NavigableMap<LocalTime, LocalTime> intervals = new TreeMap<>();
+            slots.forEach((start, slot) -> intervals.put(start, slot.endTime()));
+            return intervals;
+        }
+
+        //slots are disjoint and sorted, so only the slots just before the requested end can overlap it
+        synchronized boolean overlaps(LocalTime startTime, LocalTime endTime, Long excludedBookingId) {
+            Map.Entry<LocalTime, Slot> entry = slots.lowerEntry(endTime);
+            while (entry != null && entry.getValue().endTime().isAfter(startTime)) {
+                if (!entry.getValue().bookingId().equals(excludedBookingId)) {
+                    return true;
+                }
+                entry = slots.lowerEntry(entry.getKey());
+            }
+            return false;
+        }
+    }
+}
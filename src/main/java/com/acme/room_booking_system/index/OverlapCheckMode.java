@@ -0,0 +1,10 @@
+package com.acme.room_booking_system.index;
+
+public enum OverlapCheckMode {
+    //answer overlap checks from the in-memory interval index
+    INDEX,
+    //answer overlap checks with the jpa query only
+    DATABASE,
+    //answer from the database and log any disagreement with the index
+    VERIFY
+}
@@ -0,0 +1,77 @@
+package com.acme.room_booking_system.index;
+
+import com.acme.room_booking_system.model.entity.RecurringBooking;
+import com.acme.room_booking_system.repository.RecurringBookingRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//recurring bookings of every room kept once, never expanded, a room holds a handful of them at most
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RecurringBookingIndex {
+
+    private final RecurringBookingRepository recurringBookingRepository;
+
+    //room id -> its recurrences, replaced as a whole on every change so readers never see a list being modified
+    private final Map<Long, List<RecurringBooking>> recurrencesByRoom = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    //recurrences that ended before today can never collide with a new booking
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        List<RecurringBooking> recurrences = recurringBookingRepository.findByEndDateGreaterThanEqual(LocalDate.now());
+        recurrences.forEach(this::add);
+        ready = true;
+        log.info("Recurring booking index warmed up with {} recurrences", recurrences.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    //recurrences of the room that may occur between the two dates, the caller still checks the weekdays
+    public List<RecurringBooking> findByRoomAndDates(Long roomId, LocalDate from, LocalDate to) {
+        List<RecurringBooking> recurrences = recurrencesByRoom.getOrDefault(roomId, List.of());
+        List<RecurringBooking> matching = new ArrayList<>();
+        for (RecurringBooking recurrence : recurrences) {
+            if (!recurrence.getStartDate().isAfter(to) && !recurrence.getEndDate().isBefore(from)) {
+                matching.add(recurrence);
+            }
+        }
+        return matching;
+    }
+
+    //recurrences of every room that may occur between the two dates
+    public List<RecurringBooking> findByDates(LocalDate from, LocalDate to) {
+        List<RecurringBooking> matching = new ArrayList<>();
+        recurrencesByRoom.keySet().forEach(roomId -> matching.addAll(findByRoomAndDates(roomId, from, to)));
+        return matching;
+    }
+
+    public void add(RecurringBooking recurrence) {
+        recurrencesByRoom.compute(recurrence.getRoom().getId(), (roomId, recurrences) -> {
+            List<RecurringBooking> updated = (recurrences == null) ? new ArrayList<>() : new ArrayList<>(recurrences);
+            updated.add(recurrence);
+            return List.copyOf(updated);
+        });
+    }
+
+    public void remove(RecurringBooking recurrence) {
+        recurrencesByRoom.computeIfPresent(recurrence.getRoom().getId(), (roomId, recurrences) -> {
+            List<RecurringBooking> updated = recurrences.stream()
+                    .filter(existing -> !existing.getId().equals(recurrence.getId()))
+                    .toList();
+            return updated.isEmpty() ? null : updated;
+        });
+    }
+}
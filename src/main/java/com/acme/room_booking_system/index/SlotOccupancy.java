@@ -0,0 +1,88 @@
+package com.acme.room_booking_system.index;
+
+import com.acme.room_booking_system.model.entity.Booking;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.locks.StampedLock;
+
+//hour occupancy of every room-day as a 24 bit mask, bit h is set when any booking covers part of hour h
+@Component
+public class SlotOccupancy {
+
+    public static final int HOURS_PER_DAY = 24;
+
+    private static final int SECONDS_PER_HOUR = 3600;
+    private static final int EPOCH_DAY_BITS = 21;
+
+    private final RoomDayMasks masks = new RoomDayMasks(1024);
+    private final StampedLock lock = new StampedLock();
+
+    public long occupiedHours(Long roomId, LocalDate date) {
+        long stamp = lock.readLock();
+        try {
+            return masks.get(key(roomId, date));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    //occupancy of many rooms on one date under a single read lock
+    public long[] occupiedHours(long[] roomIds, LocalDate date) {
+        long[] occupied = new long[roomIds.length];
+        long stamp = lock.readLock();
+        try {
+            for (int i = 0; i < roomIds.length; i++) {
+                occupied[i] = masks.get(key(roomIds[i], date));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return occupied;
+    }
+
+    void update(Long roomId, LocalDate date, long occupiedHours) {
+        long stamp = lock.writeLock();
+        try {
+            masks.put(key(roomId, date), occupiedHours);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    //hours that [startTime, endTime) covers at least partially
+    public static long touchedHours(LocalTime startTime, LocalTime endTime) {
+        int start = startTime.toSecondOfDay();
+        int end = endTime.toSecondOfDay();
+        return hourRange(start / SECONDS_PER_HOUR, (end - 1) / SECONDS_PER_HOUR);
+    }
+
+    //hours that [startTime, endTime) covers completely
+    public static long fullHours(LocalTime startTime, LocalTime endTime) {
+        int start = startTime.toSecondOfDay();
+        int end = endTime.toSecondOfDay();
+        return hourRange((start + SECONDS_PER_HOUR - 1) / SECONDS_PER_HOUR, end / SECONDS_PER_HOUR - 1);
+    }
+
+    public static long occupiedHours(Iterable<Booking> bookings) {
+        long occupied = 0L;
+        for (Booking booking : bookings) {
+            occupied |= touchedHours(booking.getStartTime(), booking.getEndTime());
+        }
+        return occupied;
+    }
+
+    //bits first..last inclusive, empty when first > last
+    private static long hourRange(int first, int last) {
+        if (first > last) {
+            return 0L;
+        }
+        return (-1L >>> (Long.SIZE - 1 - last)) & (-1L << first);
+    }
+
+    //room ids start at 1, so the packed key is never 0
+    private static long key(long roomId, LocalDate date) {
+        return (roomId << EPOCH_DAY_BITS) | (date.toEpochDay() & ((1L << EPOCH_DAY_BITS) - 1));
+    }
+}
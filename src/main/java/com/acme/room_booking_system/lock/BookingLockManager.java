@@ -0,0 +1,79 @@
+package com.acme.room_booking_system.lock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+//serializes booking writers per (room, date) with a fixed set of striped locks,
+//writers on different rooms or dates almost always land on different stripes
+@Component
+public class BookingLockManager {
+
+    private final ReentrantLock[] stripes;
+
+    public BookingLockManager(@Value("${booking.lock.stripes:1024}") int stripeCount) {
+        //round up to a power of two so the stripe can be picked with a mask
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    //run the action while holding the locks of every (room, date) pair it touches
+    public <T> T executeLocked(Long roomId, Supplier<T> action, LocalDate... dates) {
+        return executeLocked(stripeIndexes(roomId, dates), action);
+    }
+
+    //run the action while holding the locks of the dates of several rooms, as needed for batch writes and room moves
+    public <T> T executeLocked(Map<Long, ? extends Collection<LocalDate>> datesByRoom, Supplier<T> action) {
+        int[] indexes = datesByRoom.entrySet().stream()
+                .flatMapToInt(entry -> entry.getValue().stream().mapToInt(date -> stripeIndex(entry.getKey(), date)))
+                .distinct()
+                .sorted()
+                .toArray();
+        return executeLocked(indexes, action);
+    }
+
+    private <T> T executeLocked(int[] indexes, Supplier<T> action) {
+        //always lock in ascending stripe order to avoid deadlocks between writers touching several dates
+        for (int index : indexes) {
+            stripes[index].lock();
+        }
+        try {
+            return action.get();
+        } finally {
+            for (int i = indexes.length - 1; i >= 0; i--) {
+                stripes[indexes[i]].unlock();
+            }
+        }
+    }
+
+    public void runLocked(Long roomId, Runnable action, LocalDate... dates) {
+        executeLocked(roomId, () -> {
+            action.run();
+            return null;
+        }, dates);
+    }
+
+    private int[] stripeIndexes(Long roomId, LocalDate... dates) {
+        return Arrays.stream(dates)
+                .mapToInt(date -> stripeIndex(roomId, date))
+                .distinct()
+                .sorted()
+                .toArray();
+    }
+
+    private int stripeIndex(Long roomId, LocalDate date) {
+        int hash = 31 * Long.hashCode(roomId) + Long.hashCode(date.toEpochDay());
+        //spread the higher bits so consecutive days of one room use different stripes
+        hash ^= (hash >>> 16);
+        return hash & (stripes.length - 1);
+    }
+}
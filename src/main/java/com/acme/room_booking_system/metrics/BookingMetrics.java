@@ -0,0 +1,79 @@
+package com.acme.room_booking_system.metrics;
+
+import com.acme.room_booking_system.index.OverlapCheckMode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+//timers of the booking hot paths and counters of rejected requests, the endpoints themselves are timed by
+//spring's http.server.requests, all of it is scraped from /actuator/prometheus
+@Component
+public class BookingMetrics {
+
+    public static final String CREATE = "create";
+    public static final String BATCH = "batch";
+    public static final String UPDATE = "update";
+    public static final String DELETE = "delete";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<OverlapCheckMode, Timer> overlapCheckTimers = new EnumMap<>(OverlapCheckMode.class);
+    private final Map<String, Timer> saveTimers;
+
+    public BookingMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (OverlapCheckMode mode : OverlapCheckMode.values()) {
+            overlapCheckTimers.put(mode, timer("booking.overlap.check", "mode", mode.name().toLowerCase()));
+        }
+        saveTimers = Map.of(
+                CREATE, saveTimer(CREATE),
+                BATCH, saveTimer(BATCH),
+                UPDATE, saveTimer(UPDATE),
+                DELETE, saveTimer(DELETE));
+    }
+
+    public <T> T timeOverlapCheck(OverlapCheckMode mode, Supplier<T> check) {
+        return overlapCheckTimers.get(mode).record(check);
+    }
+
+    //operation is one of CREATE, BATCH, UPDATE or DELETE
+    public <T> T timeSave(String operation, Supplier<T> save) {
+        return saveTimers.get(operation).record(save);
+    }
+
+    public void timeSave(String operation, Runnable save) {
+        saveTimers.get(operation).record(save);
+    }
+
+    //an exception answered by the api, tagged with its type and the http status it was mapped to
+    public void countError(Exception exception, int status) {
+        Counter.builder("api.errors")
+                .tag("exception", exception.getClass().getSimpleName())
+                .tag("status", String.valueOf(status))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    //a request of a batch answered as failed, the rest of the batch goes on
+    public void countBatchRejection(String reason) {
+        Counter.builder("booking.batch.rejections")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Timer saveTimer(String operation) {
+        return timer("booking.repository.save", "operation", operation);
+    }
+
+    private Timer timer(String name, String tagKey, String tagValue) {
+        return Timer.builder(name)
+                .tag(tagKey, tagValue)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
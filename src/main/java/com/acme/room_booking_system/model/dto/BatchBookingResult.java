@@ -0,0 +1,26 @@
+package com.acme.room_booking_system.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchBookingResult {
+    //position of the request in the submitted batch
+    private int index;
+    private boolean created;
+    private BookingResponse booking;
+    private String error;
+
+    public static BatchBookingResult created(int index, BookingResponse booking) {
+        return new BatchBookingResult(index, true, booking, null);
+    }
+
+    public static BatchBookingResult failed(int index, String error) {
+        return new BatchBookingResult(index, false, null, error);
+    }
+}
@@ -13,11 +13,27 @@ import java.time.LocalTime;
 @AllArgsConstructor
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class BookingResponse {
+    private Long id;
     private String roomName;
     private String employeeEmail;
     private LocalDate date;
     private LocalTime startTime;
     private LocalTime endTime;
+    //sent as the etag of booking writes, to use in If-Match
+    private Long version;
+
+    public BookingResponse(Long id, String roomName, String employeeEmail, LocalDate date, LocalTime startTime, LocalTime endTime) {
+        this(id, roomName, employeeEmail, date, startTime, endTime, null);
+    }
+
+    public BookingResponse(String roomName, String employeeEmail, LocalDate date, LocalTime startTime, LocalTime endTime) {
+        this(null, roomName, employeeEmail, date, startTime, endTime, null);
+    }
+
+    //entry of a room-day schedule, with what a later If-Match update of it needs
+    public BookingResponse(Long id, String employeeEmail, LocalTime startTime, LocalTime endTime, Long version) {
+        this(id, null, employeeEmail, null, startTime, endTime, version);
+    }
 
     public BookingResponse(String employeeEmail, LocalTime startTime, LocalTime endTime) {
         this.employeeEmail = employeeEmail;
@@ -0,0 +1,18 @@
+package com.acme.room_booking_system.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DaySchedule {
+    private String roomName;
+    private LocalDate date;
+    //ordered by start time, room name and date are only given once on the schedule
+    private List<BookingResponse> bookings;
+}
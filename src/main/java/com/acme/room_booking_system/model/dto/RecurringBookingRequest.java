@@ -0,0 +1,51 @@
+package com.acme.room_booking_system.model.dto;
+
+import com.acme.room_booking_system.model.entity.RecurrenceFrequency;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecurringBookingRequest {
+
+    @NotBlank(message = "Room name is required")
+    private String roomName;
+
+    @Email(message = "Invalid email format")
+    @NotBlank(message = "Employee email is required")
+    private String employeeEmail;
+
+    @NotNull(message = "Frequency is required")
+    private RecurrenceFrequency frequency;
+
+    @NotNull(message = "Start date is required")
+    private LocalDate startDate;
+
+    @NotNull(message = "End date is required")
+    private LocalDate endDate;
+
+    @NotNull(message = "Start time is required")
+    private LocalTime startTime;
+
+    @NotNull(message = "End time is required")
+    private LocalTime endTime;
+
+    @AssertTrue(message = "Start time must be before end time.")
+    public boolean isStartTimeBeforeEndTime() {
+        return startTime != null && endTime != null && startTime.isBefore(endTime);
+    }
+
+    @AssertTrue(message = "End date cannot be before start date.")
+    public boolean isEndDateNotBeforeStartDate() {
+        return startDate != null && endDate != null && !endDate.isBefore(startDate);
+    }
+}
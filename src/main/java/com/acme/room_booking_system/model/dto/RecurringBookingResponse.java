@@ -0,0 +1,25 @@
+package com.acme.room_booking_system.model.dto;
+
+import com.acme.room_booking_system.model.entity.RecurrenceFrequency;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RecurringBookingResponse {
+    private Long id;
+    private String roomName;
+    private String employeeEmail;
+    private RecurrenceFrequency frequency;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private LocalTime startTime;
+    private LocalTime endTime;
+}
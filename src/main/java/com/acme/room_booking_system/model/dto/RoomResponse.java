@@ -10,5 +10,16 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class RoomResponse {
+    private Long id;
     private String name;
+    //sent as the etag of room writes, to use in If-Match
+    private Long version;
+
+    public RoomResponse(Long id, String name) {
+        this(id, name, null);
+    }
+
+    public RoomResponse(String name) {
+        this(null, name, null);
+    }
 }
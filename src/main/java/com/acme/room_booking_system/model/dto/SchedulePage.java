@@ -0,0 +1,16 @@
+package com.acme.room_booking_system.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SchedulePage {
+    private List<DaySchedule> schedules;
+    //room id to pass as afterRoomId for the next page, null on the last page
+    private Long nextCursor;
+}
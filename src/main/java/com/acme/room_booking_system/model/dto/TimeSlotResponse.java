@@ -0,0 +1,15 @@
+package com.acme.room_booking_system.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimeSlotResponse {
+    private LocalTime startTime;
+    private LocalTime endTime;
+}
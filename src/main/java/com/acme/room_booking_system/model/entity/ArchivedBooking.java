@@ -0,0 +1,55 @@
+package com.acme.room_booking_system.model.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+//a past booking moved out of the live table, written only by the archive job and never changed afterwards
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+//created by the V4 migration, declared here so the mapping documents it
+@Table(name = "booking_archive", indexes = @Index(name = "idx_booking_archive_room_date", columnList = "room_id, date, start_time"))
+public class ArchivedBooking {
+
+    //the id the booking had in the live table
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private Long roomId;
+
+    //the version the booking had when it was archived, never changed afterwards
+    @Column(nullable = false)
+    private Long version;
+
+    @Column(nullable = false)
+    private String roomName;
+
+    @Column(nullable = false)
+    private String employeeEmail;
+
+    @Column(nullable = false)
+    private LocalDate date;
+
+    @Column(nullable = false)
+    private LocalTime startTime;
+
+    @Column(nullable = false)
+    private LocalTime endTime;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+}
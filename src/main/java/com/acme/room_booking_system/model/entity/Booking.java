@@ -1,5 +1,6 @@
 package com.acme.room_booking_system.model.entity;
 
+import com.acme.room_booking_system.persistence.JournalEntityListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
@@ -17,13 +18,21 @@ import java.time.LocalTime;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, JournalEntityListener.class})
+//created by the V2 migration, declared here so the mapping documents it
+@Table(indexes = @Index(name = "idx_booking_room_date_time", columnList = "room_id, date, start_time, end_time"))
 public class Booking {
 
+    //pooled sequence ids let hibernate batch inserts, identity columns would force one round trip per row
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "booking_seq")
+    @SequenceGenerator(name = "booking_seq", sequenceName = "booking_seq", allocationSize = 50)
     private Long id;
 
+    //checked on every update, a write based on a stale read fails instead of overwriting a concurrent one
+    @Version
+    private Long version;
+
     @ManyToOne
     @JoinColumn(name = "room_id", nullable = false)
     private Room room;
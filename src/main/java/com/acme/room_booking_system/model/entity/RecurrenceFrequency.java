@@ -0,0 +1,8 @@
+package com.acme.room_booking_system.model.entity;
+
+public enum RecurrenceFrequency {
+    //every day from the start date to the end date
+    DAILY,
+    //every week on the weekday of the start date
+    WEEKLY
+}
@@ -0,0 +1,97 @@
+package com.acme.room_booking_system.model.entity;
+
+import com.acme.room_booking_system.persistence.JournalEntityListener;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+
+//a booking repeated daily or weekly between two dates, stored once and expanded only when a date is looked at
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@EntityListeners({AuditingEntityListener.class, JournalEntityListener.class})
+//created by the V3 migration, declared here so the mapping documents it
+@Table(indexes = @Index(name = "idx_recurring_booking_room_dates", columnList = "room_id, start_date, end_date"))
+public class RecurringBooking {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "room_id", nullable = false)
+    private Room room;
+
+    @NotNull
+    @Column(nullable = false)
+    private String employeeEmail;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private RecurrenceFrequency frequency;
+
+    //first occurrence, weekly recurrences repeat on its weekday
+    @NotNull
+    @Column(nullable = false)
+    private LocalDate startDate;
+
+    //last day an occurrence may fall on, inclusive
+    @NotNull
+    @Column(nullable = false)
+    private LocalDate endDate;
+
+    @NotNull
+    @Column(nullable = false)
+    private LocalTime startTime;
+
+    @NotNull
+    @Column(nullable = false)
+    private LocalTime endTime;
+
+    @CreatedDate
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @LastModifiedDate
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    public boolean occursOn(LocalDate date) {
+        if (date.isBefore(startDate) || date.isAfter(endDate)) {
+            return false;
+        }
+        return frequency == RecurrenceFrequency.DAILY || date.getDayOfWeek() == startDate.getDayOfWeek();
+    }
+
+    //whether both recurrences have an occurrence on the same date, without expanding either of them
+    public boolean sharesDateWith(RecurringBooking other) {
+        LocalDate first = startDate.isAfter(other.startDate) ? startDate : other.startDate;
+        LocalDate last = endDate.isBefore(other.endDate) ? endDate : other.endDate;
+        if (first.isAfter(last)) {
+            return false;
+        }
+        if (frequency == RecurrenceFrequency.DAILY && other.frequency == RecurrenceFrequency.DAILY) {
+            return true;
+        }
+
+        RecurringBooking weekly = (frequency == RecurrenceFrequency.WEEKLY) ? this : other;
+        LocalDate candidate = first.with(TemporalAdjusters.nextOrSame(weekly.startDate.getDayOfWeek()));
+        return !candidate.isAfter(last) && occursOn(candidate) && other.occursOn(candidate);
+    }
+
+    public boolean overlapsTimes(LocalTime otherStartTime, LocalTime otherEndTime) {
+        return startTime.isBefore(otherEndTime) && endTime.isAfter(otherStartTime);
+    }
+}
@@ -1,10 +1,13 @@
 package com.acme.room_booking_system.model.entity;
 
+import com.acme.room_booking_system.persistence.JournalEntityListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -17,7 +20,7 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, JournalEntityListener.class})
 public class Room {
 
     @Id
@@ -28,6 +31,13 @@ public class Room {
     @Column(nullable = false, unique = true)
     private String name;
 
+    //checked on every rename, a write based on a stale read fails instead of overwriting a concurrent one
+    @Version
+    private Long version;
+
+    //rooms are cached detached, touching the lazy bookings outside a session would fail
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "room", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Booking> bookings = new ArrayList<>();
 
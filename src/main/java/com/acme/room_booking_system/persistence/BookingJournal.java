@@ -0,0 +1,200 @@
+package com.acme.room_booking_system.persistence;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+//append-only log of committed room and booking changes, written through one file channel from a direct buffer,
+//a record is only appended after its transaction committed, so the journal never holds a change that was rolled back
+@Component
+@ConditionalOnProperty(name = "booking.persistence.mode", havingValue = "journal")
+@Slf4j
+public class BookingJournal {
+
+    private final Path directory;
+    private final boolean syncOnWrite;
+
+    //one writer at a time, sequences are handed out in file order
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(JournalFiles.FRAME_BYTES + JournalFiles.MAX_RECORD_BYTES);
+    private final CRC32C crc = new CRC32C();
+
+    private FileChannel channel;
+    private long segmentStart;
+    private long lastSequence;
+    private boolean dirty;
+
+    public BookingJournal(@Value("${booking.persistence.directory:./data}") Path directory,
+                          @Value("${booking.persistence.sync-on-write:false}") boolean syncOnWrite) throws IOException {
+        this.directory = directory;
+        this.syncOnWrite = syncOnWrite;
+        Files.createDirectories(directory);
+        open();
+    }
+
+    //continue the newest segment after its last intact record, a torn tail left by a crash is cut off
+    private void open() throws IOException {
+        long snapshotSequence = JournalFiles.latestSnapshot(directory).map(JournalFiles::sequenceOf).orElse(0L);
+        List<Path> segments = JournalFiles.segments(directory);
+        if (segments.isEmpty()) {
+            lastSequence = snapshotSequence;
+            startSegment(lastSequence + 1);
+            return;
+        }
+        Path segment = segments.getLast();
+        JournalFiles.SegmentEnd end = JournalFiles.scan(segment, (sequence, payload) -> {
+        });
+        lastSequence = Math.max(snapshotSequence, end.lastSequence());
+        if (end.validBytes() == 0) {
+            Files.delete(segment);
+            startSegment(lastSequence + 1);
+            return;
+        }
+        channel = FileChannel.open(segment, StandardOpenOption.WRITE);
+        channel.truncate(end.validBytes());
+        channel.position(end.validBytes());
+        segmentStart = JournalFiles.sequenceOf(segment);
+        log.info("Journal continues {} after sequence {}", segment.getFileName(), lastSequence);
+    }
+
+    private void startSegment(long firstSequence) throws IOException {
+        channel = FileChannel.open(JournalFiles.segment(directory, firstSequence),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        buffer.clear();
+        buffer.putInt(JournalFiles.JOURNAL_MAGIC).putInt(JournalFiles.FORMAT).putLong(firstSequence).flip();
+        write();
+        channel.force(true);
+        segmentStart = firstSequence;
+    }
+
+    //appends right away, or once the surrounding transaction committed and never if it rolls back
+    public void appendAfterCommit(JournalRecord record) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            append(record);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                append(record);
+            }
+        });
+    }
+
+    public long append(JournalRecord record) {
+        lock.lock();
+        try {
+            long sequence = lastSequence + 1;
+            buffer.clear();
+            buffer.position(JournalFiles.FRAME_BYTES);
+            buffer.putLong(sequence);
+            record.write(buffer);
+            int length = buffer.position() - JournalFiles.FRAME_BYTES;
+            crc.reset();
+            crc.update(buffer.slice(JournalFiles.FRAME_BYTES, length));
+            buffer.putInt(0, length).putInt(Integer.BYTES, (int) crc.getValue()).flip();
+
+            long position = channel.position();
+            try {
+                write();
+                if (syncOnWrite) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                //never leave half a record in front of the next one
+                channel.truncate(position);
+                channel.position(position);
+                throw e;
+            }
+            lastSequence = sequence;
+            dirty = !syncOnWrite;
+            return sequence;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to the booking journal", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //closes the current segment and returns the last sequence it holds, the next record opens a new one,
+    //an empty segment is kept so repeated rotations do not pile up files
+    public long rotate() {
+        lock.lock();
+        try {
+            if (lastSequence >= segmentStart) {
+                channel.force(true);
+                channel.close();
+                startSegment(lastSequence + 1);
+                dirty = false;
+            }
+            return lastSequence;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not rotate the booking journal", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //segments holding nothing after the sequence, they are covered by a snapshot
+    public void deleteSegmentsUpTo(long sequence) {
+        List<Path> segments = JournalFiles.segments(directory);
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (JournalFiles.sequenceOf(segments.get(i + 1)) - 1 <= sequence) {
+                JournalFiles.delete(segments.get(i));
+            }
+        }
+    }
+
+    //without sync-on-write an os crash loses at most the records of the last interval, a process crash none
+    @Scheduled(fixedDelayString = "${booking.persistence.sync-interval:PT1S}")
+    public void sync() {
+        lock.lock();
+        try {
+            if (dirty) {
+                channel.force(false);
+                dirty = false;
+            }
+        } catch (IOException e) {
+            log.warn("Could not sync the booking journal", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            channel.force(true);
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write() throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.acme.room_booking_system.persistence;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+
+//binary form of the column types used by the journaled tables, none of their columns is nullable
+enum ColumnType {
+
+    LONG {
+        @Override
+        void write(ByteBuffer buffer, Object value) {
+            buffer.putLong(((Number) value).longValue());
+        }
+
+        @Override
+        Object read(ByteBuffer buffer) {
+            return buffer.getLong();
+        }
+
+        @Override
+        Object read(ResultSet resultSet, int column) throws SQLException {
+            return resultSet.getLong(column);
+        }
+    },
+
+    //varchar(255) columns, at most 1020 bytes of utf-8
+    STRING {
+        @Override
+        void write(ByteBuffer buffer, Object value) {
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            buffer.putShort((short) bytes.length).put(bytes);
+        }
+
+        @Override
+        Object read(ByteBuffer buffer) {
+            byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        Object read(ResultSet resultSet, int column) throws SQLException {
+            return resultSet.getString(column);
+        }
+    },
+
+    DATE {
+        @Override
+        void write(ByteBuffer buffer, Object value) {
+            buffer.putInt((int) ((LocalDate) value).toEpochDay());
+        }
+
+        @Override
+        Object read(ByteBuffer buffer) {
+            return LocalDate.ofEpochDay(buffer.getInt());
+        }
+
+        @Override
+        Object read(ResultSet resultSet, int column) throws SQLException {
+            return resultSet.getObject(column, LocalDate.class);
+        }
+    },
+
+    TIME {
+        @Override
+        void write(ByteBuffer buffer, Object value) {
+            buffer.putLong(((LocalTime) value).toNanoOfDay());
+        }
+
+        @Override
+        Object read(ByteBuffer buffer) {
+            return LocalTime.ofNanoOfDay(buffer.getLong());
+        }
+
+        @Override
+        Object read(ResultSet resultSet, int column) throws SQLException {
+            return resultSet.getObject(column, LocalTime.class);
+        }
+    },
+
+    TIMESTAMP {
+        @Override
+        void write(ByteBuffer buffer, Object value) {
+            LocalDateTime timestamp = (LocalDateTime) value;
+            buffer.putLong(timestamp.toEpochSecond(ZoneOffset.UTC)).putInt(timestamp.getNano());
+        }
+
+        @Override
+        Object read(ByteBuffer buffer) {
+            return LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+        }
+
+        @Override
+        Object read(ResultSet resultSet, int column) throws SQLException {
+            return resultSet.getObject(column, LocalDateTime.class);
+        }
+    };
+
+    abstract void write(ByteBuffer buffer, Object value);
+
+    abstract Object read(ByteBuffer buffer);
+
+    abstract Object read(ResultSet resultSet, int column) throws SQLException;
+}
@@ -0,0 +1,64 @@
+package com.acme.room_booking_system.persistence;
+
+import com.acme.room_booking_system.model.entity.Booking;
+import com.acme.room_booking_system.model.entity.RecurringBooking;
+import com.acme.room_booking_system.model.entity.Room;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+//hands every flushed room, booking and recurring booking write to the journal, the row is copied at flush time
+//and appended once the transaction commits, a no-op unless booking.persistence.mode is journal
+@Component
+public class JournalEntityListener {
+
+    private final ObjectProvider<BookingJournal> journal;
+
+    public JournalEntityListener(ObjectProvider<BookingJournal> journal) {
+        this.journal = journal;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void written(Object entity) {
+        BookingJournal bookingJournal = journal.getIfAvailable();
+        if (bookingJournal != null) {
+            bookingJournal.appendAfterCommit(upsert(entity));
+        }
+    }
+
+    @PostRemove
+    public void removed(Object entity) {
+        BookingJournal bookingJournal = journal.getIfAvailable();
+        if (bookingJournal == null) {
+            return;
+        }
+        JournalRecord record = switch (entity) {
+            case Room room -> new JournalRecord.Delete(JournalTable.ROOM, room.getId());
+            case Booking booking -> new JournalRecord.Delete(JournalTable.BOOKING, booking.getId());
+            case RecurringBooking recurrence -> new JournalRecord.Delete(JournalTable.RECURRING_BOOKING, recurrence.getId());
+            default -> throw new IllegalArgumentException("Not a journaled entity: " + entity.getClass());
+        };
+        bookingJournal.appendAfterCommit(record);
+    }
+
+    //values in the column order of JournalTable
+    private static JournalRecord upsert(Object entity) {
+        return switch (entity) {
+            case Room room -> new JournalRecord.Upsert(JournalTable.ROOM, new Object[]{
+                    room.getId(), room.getVersion(), room.getName(), room.getCreatedAt(), room.getUpdatedAt()});
+            case Booking booking -> new JournalRecord.Upsert(JournalTable.BOOKING, new Object[]{
+                    booking.getId(), booking.getRoom().getId(), booking.getVersion(), booking.getEmployeeEmail(),
+                    booking.getDate(), booking.getStartTime(), booking.getEndTime(),
+                    booking.getCreatedAt(), booking.getUpdatedAt()});
+            case RecurringBooking recurrence -> new JournalRecord.Upsert(JournalTable.RECURRING_BOOKING, new Object[]{
+                    recurrence.getId(), recurrence.getRoom().getId(), recurrence.getEmployeeEmail(),
+                    recurrence.getFrequency().name(), recurrence.getStartDate(), recurrence.getEndDate(),
+                    recurrence.getStartTime(), recurrence.getEndTime(),
+                    recurrence.getCreatedAt(), recurrence.getUpdatedAt()});
+            default -> throw new IllegalArgumentException("Not a journaled entity: " + entity.getClass());
+        };
+    }
+}
@@ -0,0 +1,132 @@
+package com.acme.room_booking_system.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+//layout of the persistence directory:
+//journal-<first sequence>.log  [int magic][int format][long first sequence] then [int length][int crc32c][long sequence][record]...
+//snapshot-<last sequence>.bin  [int magic][int format][long last sequence] then per table [byte table][int length][row]... [int 0],
+//                              closed by [byte -1][int crc32c of everything before][int magic]
+//file names carry zero-padded sequences, so name order is sequence order
+final class JournalFiles {
+
+    static final int JOURNAL_MAGIC = 0x524A4E4C;
+    static final int SNAPSHOT_MAGIC = 0x52534E50;
+    static final int FORMAT = 1;
+    static final int HEADER_BYTES = 16;
+    //length and checksum in front of every journal record
+    static final int FRAME_BYTES = 8;
+    static final int MAX_RECORD_BYTES = 1024 * 1024;
+
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private JournalFiles() {
+    }
+
+    static Path segment(Path directory, long firstSequence) {
+        return directory.resolve(JOURNAL_PREFIX + "%020d".formatted(firstSequence) + JOURNAL_SUFFIX);
+    }
+
+    static Path snapshot(Path directory, long lastSequence) {
+        return directory.resolve(SNAPSHOT_PREFIX + "%020d".formatted(lastSequence) + SNAPSHOT_SUFFIX);
+    }
+
+    static List<Path> segments(Path directory) {
+        return list(directory, JOURNAL_PREFIX, JOURNAL_SUFFIX);
+    }
+
+    static List<Path> snapshots(Path directory) {
+        return list(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+    }
+
+    static Optional<Path> latestSnapshot(Path directory) {
+        List<Path> snapshots = snapshots(directory);
+        return snapshots.isEmpty() ? Optional.empty() : Optional.of(snapshots.getLast());
+    }
+
+    //first sequence of a segment or last sequence of a snapshot, read from its name
+    static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        int start = name.indexOf('-') + 1;
+        return Long.parseLong(name.substring(start, name.indexOf('.', start)));
+    }
+
+    //hands every intact record of the segment to the visitor in file order, stops at the first torn or corrupt frame,
+    //which only a crash in the middle of an append leaves behind, and returns where the intact part ends
+    static SegmentEnd scan(Path segment, RecordVisitor visitor) throws IOException {
+        try (MappedFileReader reader = new MappedFileReader(segment)) {
+            ByteBuffer buffer = reader.require(HEADER_BYTES);
+            if (buffer == null) {
+                return new SegmentEnd(sequenceOf(segment) - 1, 0);
+            }
+            if (buffer.getInt() != JOURNAL_MAGIC || buffer.getInt() != FORMAT) {
+                throw new IllegalStateException("Not a journal segment of this format: " + segment);
+            }
+            long lastSequence = buffer.getLong() - 1;
+            long end = reader.position();
+            CRC32C crc = new CRC32C();
+            while ((buffer = reader.require(FRAME_BYTES)) != null) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= Long.BYTES || length > MAX_RECORD_BYTES || (buffer = reader.require(length)) == null) {
+                    break;
+                }
+                ByteBuffer payload = buffer.slice(buffer.position(), length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                lastSequence = payload.getLong();
+                visitor.accept(lastSequence, payload);
+                buffer.position(buffer.position() + length);
+                end = reader.position();
+            }
+            return new SegmentEnd(lastSequence, end);
+        }
+    }
+
+    static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<Path> list(Path directory, String prefix, String suffix) {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(prefix) && name.endsWith(suffix);
+                    })
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //a record of the segment, the payload positioned after its sequence
+    @FunctionalInterface
+    interface RecordVisitor {
+        void accept(long sequence, ByteBuffer payload) throws IOException;
+    }
+
+    //last intact sequence of a segment and the offset right after its record
+    record SegmentEnd(long lastSequence, long validBytes) {
+    }
+}
@@ -0,0 +1,69 @@
+package com.acme.room_booking_system.persistence;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+
+//one committed change in the journal: a row written, a row removed, or a batch of bookings moved to the archive
+public sealed interface JournalRecord {
+
+    byte UPSERT = 1;
+    byte DELETE = 2;
+    byte ARCHIVE = 3;
+
+    //archive batches are split so a record stays far below the size of a mapped window
+    int MAX_ARCHIVE_IDS = 8192;
+
+    void write(ByteBuffer buffer);
+
+    //whole row in column order, inserted when missing and otherwise overwritten unless the stored version is newer
+    record Upsert(JournalTable table, Object[] values) implements JournalRecord {
+
+        @Override
+        public void write(ByteBuffer buffer) {
+            buffer.put(UPSERT).put((byte) table.ordinal());
+            table.write(buffer, values);
+        }
+    }
+
+    record Delete(JournalTable table, long id) implements JournalRecord {
+
+        @Override
+        public void write(ByteBuffer buffer) {
+            buffer.put(DELETE).put((byte) table.ordinal()).putLong(id);
+        }
+    }
+
+    //the insert-select and delete of BookingArchiver, replayed as such instead of one row per booking
+    record Archive(long[] ids, LocalDateTime archivedAt) implements JournalRecord {
+
+        @Override
+        public void write(ByteBuffer buffer) {
+            buffer.put(ARCHIVE);
+            ColumnType.TIMESTAMP.write(buffer, archivedAt);
+            buffer.putInt(ids.length);
+            for (long id : ids) {
+                buffer.putLong(id);
+            }
+        }
+    }
+
+    static JournalRecord read(ByteBuffer buffer) {
+        byte kind = buffer.get();
+        return switch (kind) {
+            case UPSERT -> {
+                JournalTable table = JournalTable.values()[buffer.get()];
+                yield new Upsert(table, table.read(buffer));
+            }
+            case DELETE -> new Delete(JournalTable.values()[buffer.get()], buffer.getLong());
+            case ARCHIVE -> {
+                LocalDateTime archivedAt = (LocalDateTime) ColumnType.TIMESTAMP.read(buffer);
+                long[] ids = new long[buffer.getInt()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = buffer.getLong();
+                }
+                yield new Archive(ids, archivedAt);
+            }
+            default -> throw new IllegalStateException("Unknown journal record kind " + kind);
+        };
+    }
+}
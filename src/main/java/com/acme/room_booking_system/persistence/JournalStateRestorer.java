@@ -0,0 +1,269 @@
+package com.acme.room_booking_system.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+//fills the freshly migrated in-memory database from the latest snapshot and the journal written after it,
+//runs as the flyway step so hibernate, the indexes and the caches all start on the restored rows
+@Component
+@ConditionalOnProperty(name = "booking.persistence.mode", havingValue = "journal")
+@Slf4j
+public class JournalStateRestorer implements FlywayMigrationStrategy {
+
+    private static final int BATCH_SIZE = 1000;
+    //snapshot rows per transaction, keeps the undo log of the restore bounded
+    private static final int COMMIT_ROWS = 50_000;
+    //distance kept above the highest booking id, hibernate hands out ids from pooled blocks of 50 below a sequence value
+    private static final int BOOKING_SEQUENCE_GAP = 100;
+
+    private static final String ARCHIVE_SQL = "insert into booking_archive (id, room_id, version, room_name, employee_email, " +
+            "date, start_time, end_time, created_at, updated_at, archived_at) " +
+            "select b.id, b.room_id, b.version, r.name, b.employee_email, b.date, b.start_time, b.end_time, b.created_at, b.updated_at, ? " +
+            "from booking b join room r on r.id = b.room_id " +
+            "where b.id = ? and not exists (select 1 from booking_archive a where a.id = b.id)";
+
+    private final Path directory;
+
+    public JournalStateRestorer(@Value("${booking.persistence.directory:./data}") Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public void migrate(Flyway flyway) {
+        flyway.migrate();
+        try {
+            restore(flyway.getConfiguration().getDataSource());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not restore from " + directory, e);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not restore from " + directory, e);
+        }
+    }
+
+    public void restore(DataSource dataSource) throws IOException, SQLException {
+        Optional<Path> snapshot = JournalFiles.latestSnapshot(directory);
+        if (snapshot.isEmpty() && JournalFiles.segments(directory).isEmpty()) {
+            log.info("Nothing to restore in {}", directory);
+            return;
+        }
+        long started = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                //rows arrive table by table and journal records in commit order, not in foreign key order
+                statement.execute("set referential_integrity false");
+            }
+            try {
+                Map<JournalTable, Long> maxIds = new EnumMap<>(JournalTable.class);
+                long snapshotSequence = 0;
+                long rows = 0;
+                if (snapshot.isPresent()) {
+                    snapshotSequence = JournalFiles.sequenceOf(snapshot.get());
+                    rows = loadSnapshot(connection, snapshot.get(), maxIds);
+                }
+                Replay replay = new Replay(connection, maxIds);
+                long records = 0;
+                for (Path segment : JournalFiles.segments(directory)) {
+                    records += replay(segment, snapshotSequence, replay);
+                }
+                connection.commit();
+                resetGenerators(connection, maxIds);
+                log.info("Restored {} snapshot rows and {} journal records from {} in {} ms", rows, records, directory,
+                        (System.nanoTime() - started) / 1_000_000);
+            } finally {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("set referential_integrity true");
+                }
+                connection.commit();
+            }
+        }
+    }
+
+    //records after the snapshot, the snapshot already holds everything up to its sequence
+    private static long replay(Path segment, long afterSequence, Replay replay) throws IOException {
+        long[] applied = {0};
+        JournalFiles.scan(segment, (sequence, payload) -> {
+            if (sequence > afterSequence) {
+                replay.apply(JournalRecord.read(payload));
+                applied[0]++;
+            }
+        });
+        return applied[0];
+    }
+
+    private static long loadSnapshot(Connection connection, Path snapshot, Map<JournalTable, Long> maxIds)
+            throws IOException, SQLException {
+        long rows = 0;
+        try (MappedFileReader reader = new MappedFileReader(snapshot)) {
+            long footer = reader.size() - 2 * Integer.BYTES;
+            if (footer < JournalFiles.HEADER_BYTES || reader.readInt(footer + Integer.BYTES) != JournalFiles.SNAPSHOT_MAGIC
+                    || reader.readInt(footer) != reader.checksum(footer)) {
+                //written to a temporary file and moved into place, so this is damage rather than a crash mid-write
+                throw new IllegalStateException("Snapshot " + snapshot + " is damaged, restore it from a backup or remove it");
+            }
+            ByteBuffer buffer = reader.require(JournalFiles.HEADER_BYTES);
+            if (buffer.getInt() != JournalFiles.SNAPSHOT_MAGIC || buffer.getInt() != JournalFiles.FORMAT) {
+                throw new IllegalStateException("Not a snapshot of this format: " + snapshot);
+            }
+            buffer.getLong();
+            byte ordinal;
+            while ((ordinal = reader.require(1).get()) >= 0) {
+                JournalTable table = JournalTable.values()[ordinal];
+                long maxId = 0;
+                try (PreparedStatement insert = connection.prepareStatement(table.insertSql())) {
+                    int length;
+                    while ((length = reader.require(Integer.BYTES).getInt()) > 0) {
+                        Object[] values = table.read(reader.require(length));
+                        maxId = Math.max(maxId, (Long) values[0]);
+                        table.bindInsert(insert, values);
+                        insert.addBatch();
+                        if (++rows % BATCH_SIZE == 0) {
+                            insert.executeBatch();
+                        }
+                        if (rows % COMMIT_ROWS == 0) {
+                            connection.commit();
+                        }
+                    }
+                    insert.executeBatch();
+                }
+                maxIds.merge(table, maxId, Math::max);
+            }
+        }
+        connection.commit();
+        return rows;
+    }
+
+    //ids handed out after the restore start above every id of the snapshot and the journal, deleted ones included,
+    //so a later replay never mistakes a new row for one it saw deleted
+    private static void resetGenerators(Connection connection, Map<JournalTable, Long> maxIds) throws SQLException {
+        long maxBookingId = Math.max(maxId(connection, JournalTable.BOOKING, maxIds), maxId(connection, JournalTable.BOOKING_ARCHIVE, maxIds));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("alter sequence booking_seq restart with " + (maxBookingId + BOOKING_SEQUENCE_GAP));
+            statement.execute("alter table room alter column id restart with " + (maxId(connection, JournalTable.ROOM, maxIds) + 1));
+            statement.execute("alter table recurring_booking alter column id restart with "
+                    + (maxId(connection, JournalTable.RECURRING_BOOKING, maxIds) + 1));
+        }
+        connection.commit();
+    }
+
+    private static long maxId(Connection connection, JournalTable table, Map<JournalTable, Long> maxIds) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("select coalesce(max(id), 0) from " + table.tableName())) {
+            resultSet.next();
+            return Math.max(resultSet.getLong(1), maxIds.getOrDefault(table, 0L));
+        }
+    }
+
+    //applies journal records on top of the snapshot, each record may already be part of it, so every step is idempotent
+    private static final class Replay {
+
+        private final Connection connection;
+        private final Map<JournalTable, Long> maxIds;
+        private final Map<JournalTable, Statements> statements = new EnumMap<>(JournalTable.class);
+        //ids are never reused, a row deleted or archived later in the journal must not come back through an
+        //upsert appended after its delete by a transaction that committed first
+        private final Map<JournalTable, Set<Long>> removed = new EnumMap<>(JournalTable.class);
+
+        Replay(Connection connection, Map<JournalTable, Long> maxIds) {
+            this.connection = connection;
+            this.maxIds = maxIds;
+        }
+
+        void apply(JournalRecord record) throws IOException {
+            try {
+                switch (record) {
+                    case JournalRecord.Upsert upsert -> upsert(upsert.table(), upsert.values());
+                    case JournalRecord.Delete delete -> delete(delete.table(), delete.id());
+                    case JournalRecord.Archive archive -> archive(archive);
+                }
+            } catch (SQLException e) {
+                throw new IOException("Could not replay " + record, e);
+            }
+        }
+
+        private void upsert(JournalTable table, Object[] values) throws SQLException {
+            long id = (Long) values[0];
+            seen(table, id);
+            if (removed.computeIfAbsent(table, key -> new HashSet<>()).contains(id)) {
+                return;
+            }
+            Statements tableStatements = statements(table);
+            table.bindUpdate(tableStatements.update(), values);
+            if (tableStatements.update().executeUpdate() > 0) {
+                return;
+            }
+            //nothing updated: the row is missing, or it holds a newer version than this record
+            tableStatements.exists().setLong(1, id);
+            try (ResultSet resultSet = tableStatements.exists().executeQuery()) {
+                if (resultSet.next()) {
+                    return;
+                }
+            }
+            table.bindInsert(tableStatements.insert(), values);
+            tableStatements.insert().executeUpdate();
+        }
+
+        private void delete(JournalTable table, long id) throws SQLException {
+            seen(table, id);
+            removed.computeIfAbsent(table, key -> new HashSet<>()).add(id);
+            statements(table).delete().setLong(1, id);
+            statements(table).delete().executeUpdate();
+        }
+
+        private void archive(JournalRecord.Archive archive) throws SQLException {
+            try (PreparedStatement insert = connection.prepareStatement(ARCHIVE_SQL)) {
+                for (long id : archive.ids()) {
+                    seen(JournalTable.BOOKING, id);
+                    insert.setObject(1, archive.archivedAt());
+                    insert.setLong(2, id);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            for (long id : archive.ids()) {
+                delete(JournalTable.BOOKING, id);
+            }
+        }
+
+        private void seen(JournalTable table, long id) {
+            maxIds.merge(table, id, Math::max);
+        }
+
+        private Statements statements(JournalTable table) throws SQLException {
+            Statements tableStatements = statements.get(table);
+            if (tableStatements == null) {
+                tableStatements = new Statements(
+                        connection.prepareStatement(table.insertSql()),
+                        connection.prepareStatement(table.updateSql()),
+                        connection.prepareStatement("select 1 from " + table.tableName() + " where id = ?"),
+                        connection.prepareStatement("delete from " + table.tableName() + " where id = ?"));
+                statements.put(table, tableStatements);
+            }
+            return tableStatements;
+        }
+    }
+
+    private record Statements(PreparedStatement insert, PreparedStatement update, PreparedStatement exists,
+                              PreparedStatement delete) {
+    }
+}
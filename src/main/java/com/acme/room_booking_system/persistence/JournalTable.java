@@ -0,0 +1,119 @@
+package com.acme.room_booking_system.persistence;
+
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import static com.acme.room_booking_system.persistence.ColumnType.*;
+
+//tables kept by the journal and the snapshots, in restore order, each with its columns in file order and the id first
+public enum JournalTable {
+
+    ROOM("room", "version",
+            column("id", LONG), column("version", LONG), column("name", STRING),
+            column("created_at", TIMESTAMP), column("updated_at", TIMESTAMP)),
+
+    BOOKING("booking", "version",
+            column("id", LONG), column("room_id", LONG), column("version", LONG), column("employee_email", STRING),
+            column("date", DATE), column("start_time", TIME), column("end_time", TIME),
+            column("created_at", TIMESTAMP), column("updated_at", TIMESTAMP)),
+
+    RECURRING_BOOKING("recurring_booking", null,
+            column("id", LONG), column("room_id", LONG), column("employee_email", STRING), column("frequency", STRING),
+            column("start_date", DATE), column("end_date", DATE), column("start_time", TIME), column("end_time", TIME),
+            column("created_at", TIMESTAMP), column("updated_at", TIMESTAMP)),
+
+    //only written by bulk statements, kept in the snapshots and changed through the archive records of the journal
+    BOOKING_ARCHIVE("booking_archive", null,
+            column("id", LONG), column("room_id", LONG), column("version", LONG), column("room_name", STRING),
+            column("employee_email", STRING), column("date", DATE), column("start_time", TIME), column("end_time", TIME),
+            column("created_at", TIMESTAMP), column("updated_at", TIMESTAMP), column("archived_at", TIMESTAMP));
+
+    private final String name;
+    private final Column[] columns;
+    //index of the version column, -1 for tables without one
+    private final int versionIndex;
+
+    private final String selectSql;
+    private final String insertSql;
+    private final String updateSql;
+
+    JournalTable(String name, String versionColumn, Column... columns) {
+        this.name = name;
+        this.columns = columns;
+        this.versionIndex = Arrays.stream(columns).map(Column::name).toList().indexOf(versionColumn);
+
+        String columnList = Arrays.stream(columns).map(Column::name).collect(Collectors.joining(", "));
+        this.selectSql = "select " + columnList + " from " + name + " order by id";
+        this.insertSql = "insert into " + name + " (" + columnList + ") values ("
+                + Arrays.stream(columns).map(column -> "?").collect(Collectors.joining(", ")) + ")";
+        //an older version never overwrites a newer one, journal records of concurrent writers may arrive out of order
+        this.updateSql = "update " + name + " set "
+                + Arrays.stream(columns).skip(1).map(column -> column.name() + " = ?").collect(Collectors.joining(", "))
+                + " where id = ?" + (versionIndex < 0 ? "" : " and " + versionColumn + " <= ?");
+    }
+
+    String tableName() {
+        return name;
+    }
+
+    String selectSql() {
+        return selectSql;
+    }
+
+    String insertSql() {
+        return insertSql;
+    }
+
+    String updateSql() {
+        return updateSql;
+    }
+
+    void write(ByteBuffer buffer, Object[] values) {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].type().write(buffer, values[i]);
+        }
+    }
+
+    //copy the current row of the result set straight into the buffer
+    void write(ByteBuffer buffer, ResultSet resultSet) throws SQLException {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].type().write(buffer, columns[i].type().read(resultSet, i + 1));
+        }
+    }
+
+    Object[] read(ByteBuffer buffer) {
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = columns[i].type().read(buffer);
+        }
+        return values;
+    }
+
+    void bindInsert(PreparedStatement statement, Object[] values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            statement.setObject(i + 1, values[i]);
+        }
+    }
+
+    //the columns after the id, then the id, then the version the stored row must not exceed
+    void bindUpdate(PreparedStatement statement, Object[] values) throws SQLException {
+        for (int i = 1; i < values.length; i++) {
+            statement.setObject(i, values[i]);
+        }
+        statement.setObject(values.length, values[0]);
+        if (versionIndex >= 0) {
+            statement.setObject(values.length + 1, values[versionIndex]);
+        }
+    }
+
+    private static Column column(String name, ColumnType type) {
+        return new Column(name, type);
+    }
+
+    private record Column(String name, ColumnType type) {
+    }
+}
@@ -0,0 +1,66 @@
+package com.acme.room_booking_system.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+//sequential reads through memory-mapped windows, so restoring a snapshot of millions of rows is a walk over
+//the page cache instead of millions of read calls, a window is remapped once fewer bytes are left than asked for
+final class MappedFileReader implements AutoCloseable {
+
+    static final int WINDOW_BYTES = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    MappedFileReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+    }
+
+    long size() {
+        return size;
+    }
+
+    long position() {
+        return window == null ? 0 : windowStart + window.position();
+    }
+
+    //the current window with at least the given bytes left after its position, null when the file ends before that
+    ByteBuffer require(int bytes) throws IOException {
+        long position = position();
+        if (size - position < bytes) {
+            return null;
+        }
+        if (window == null || window.remaining() < bytes) {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_BYTES, size - position));
+            windowStart = position;
+        }
+        return window;
+    }
+
+    //a value somewhere in the file, without moving the read position
+    int readInt(long position) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, Integer.BYTES).getInt();
+    }
+
+    //checksum of the bytes in [0, end) without moving the read position
+    int checksum(long end) throws IOException {
+        CRC32C crc = new CRC32C();
+        for (long start = 0; start < end; start += WINDOW_BYTES) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_BYTES, end - start)));
+        }
+        return (int) crc.getValue();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,131 @@
+package com.acme.room_booking_system.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.zip.CRC32C;
+
+//writes every row of the journaled tables into a compact binary snapshot, so a restart reads one file and only the
+//journal written since, instead of the journal since the first booking
+@Component
+@ConditionalOnProperty(name = "booking.persistence.mode", havingValue = "journal")
+@Slf4j
+public class SnapshotWriter {
+
+    private static final int BUFFER_BYTES = 1024 * 1024;
+    //a row of the widest table with every string at its full 255 characters stays far below this
+    private static final int MAX_ROW_BYTES = 16 * 1024;
+    private static final int FETCH_SIZE = 10_000;
+
+    private final DataSource dataSource;
+    private final BookingJournal journal;
+
+    public SnapshotWriter(DataSource dataSource, BookingJournal journal) {
+        this.dataSource = dataSource;
+        this.journal = journal;
+    }
+
+    @Scheduled(fixedDelayString = "${booking.persistence.snapshot-interval:PT10M}",
+            initialDelayString = "${booking.persistence.snapshot-interval:PT10M}")
+    public void snapshotScheduled() {
+        long started = System.nanoTime();
+        long rows = snapshot();
+        log.info("Wrote a snapshot of {} rows in {} ms", rows, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    //rotates the journal first and then reads every table in one transaction, every change the read misses has a
+    //sequence after the snapshot and is replayed on restore, changes it already holds are replayed idempotently
+    public long snapshot() {
+        long sequence = journal.rotate();
+        Path directory = journal.getDirectory();
+        Path target = JournalFiles.snapshot(directory, sequence);
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        long rows;
+        try {
+            rows = write(temporary, sequence);
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            JournalFiles.delete(temporary);
+            throw new UncheckedIOException("Could not write a snapshot", e);
+        } catch (SQLException e) {
+            JournalFiles.delete(temporary);
+            throw new IllegalStateException("Could not read the tables for a snapshot", e);
+        }
+        for (Path snapshot : JournalFiles.snapshots(directory)) {
+            if (!snapshot.equals(target)) {
+                JournalFiles.delete(snapshot);
+            }
+        }
+        journal.deleteSegmentsUpTo(sequence);
+        return rows;
+    }
+
+    private long write(Path file, long sequence) throws IOException, SQLException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        CRC32C crc = new CRC32C();
+        long rows = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+             Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try {
+                buffer.putInt(JournalFiles.SNAPSHOT_MAGIC).putInt(JournalFiles.FORMAT).putLong(sequence);
+                for (JournalTable table : JournalTable.values()) {
+                    buffer.put((byte) table.ordinal());
+                    try (Statement statement = connection.createStatement()) {
+                        statement.setFetchSize(FETCH_SIZE);
+                        try (ResultSet resultSet = statement.executeQuery(table.selectSql())) {
+                            while (resultSet.next()) {
+                                if (buffer.remaining() < MAX_ROW_BYTES) {
+                                    flush(channel, buffer, crc);
+                                }
+                                int lengthAt = buffer.position();
+                                buffer.position(lengthAt + Integer.BYTES);
+                                table.write(buffer, resultSet);
+                                buffer.putInt(lengthAt, buffer.position() - lengthAt - Integer.BYTES);
+                                rows++;
+                            }
+                        }
+                    }
+                    buffer.putInt(0);
+                }
+                buffer.put((byte) -1);
+            } finally {
+                connection.rollback();
+            }
+            flush(channel, buffer, crc);
+            buffer.putInt((int) crc.getValue()).putInt(JournalFiles.SNAPSHOT_MAGIC).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        return rows;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer, CRC32C crc) throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,18 @@
+package com.acme.room_booking_system.replica;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//read-only transaction that may run on a replica when booking.replicas.urls is set, the label tells it apart from the
+//read-only transactions spring data opens around every repository query, which keep reading the primary
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Transactional(readOnly = true, label = ReadFromReplica.LABEL)
+public @interface ReadFromReplica {
+
+    String LABEL = "replica";
+}
@@ -0,0 +1,52 @@
+package com.acme.room_booking_system.replica;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Duration;
+import java.util.UUID;
+
+//clients that changed something within the last window, their reads go to the primary until the replicas have
+//caught up, so a client sees its own booking right after creating it while everybody else may read a replica;
+//all callers may share one user, so a client is told apart by the token of its read-your-writes cookie
+public class ReadYourWrites {
+
+    public static final String COOKIE = "read-your-writes";
+
+    //token of the current request, set by ReadYourWritesFilter
+    static final String TOKEN_ATTRIBUTE = ReadYourWrites.class.getName() + ".token";
+
+    private final Cache<String, Boolean> recentWriters;
+    private final Duration window;
+
+    public ReadYourWrites(long maxSize, Duration window) {
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(window)
+                .build();
+        this.window = window;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    //the window restarts with every write of the client, a client without a token gets a new one
+    public String recordWrite(String token) {
+        String client = (token == null) ? UUID.randomUUID().toString() : token;
+        recentWriters.put(client, Boolean.TRUE);
+        return client;
+    }
+
+    public boolean mustReadPrimary() {
+        String client = currentClient();
+        return client != null && recentWriters.getIfPresent(client) != null;
+    }
+
+    private static String currentClient() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return (attributes == null) ? null : (String) attributes.getAttribute(TOKEN_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+}
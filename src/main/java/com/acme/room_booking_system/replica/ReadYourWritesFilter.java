@@ -0,0 +1,66 @@
+package com.acme.room_booking_system.replica;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+//records the client of every request that may write, before it runs so its concurrent reads already go to the
+//primary, and again once it completed so the window starts after the commit; the token is handed back in a
+//cookie that lives as long as the window, so the reads that follow a write carry it
+class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+    private final ReadYourWrites readYourWrites;
+
+    ReadYourWritesFilter(ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String token = token(request);
+        if (SAFE_METHODS.contains(request.getMethod())) {
+            if (token != null) {
+                request.setAttribute(ReadYourWrites.TOKEN_ATTRIBUTE, token);
+            }
+            filterChain.doFilter(request, response);
+            return;
+        }
+        String client = readYourWrites.recordWrite(token);
+        request.setAttribute(ReadYourWrites.TOKEN_ATTRIBUTE, client);
+        //set before the body is written, the response is committed by then
+        response.addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(ReadYourWrites.COOKIE, client)
+                .path("/")
+                .httpOnly(true)
+                .maxAge(readYourWrites.getWindow())
+                .build()
+                .toString());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            readYourWrites.recordWrite(client);
+        }
+    }
+
+    private static String token(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (ReadYourWrites.COOKIE.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+}
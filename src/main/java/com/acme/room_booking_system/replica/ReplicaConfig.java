@@ -0,0 +1,87 @@
+package com.acme.room_booking_system.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionManager;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//splits reads from writes: spring.datasource stays the primary, @ReadFromReplica transactions run on one of the
+//pools of booking.replicas.urls, which are expected to be kept up to date by the database's own replication
+@Configuration
+@ConditionalOnExpression("!'${booking.replicas.urls:}'.isEmpty()")
+@Slf4j
+public class ReplicaConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource dataSource(DataSourceProperties properties,
+                                               @Value("${booking.replicas.urls}") List<String> urls,
+                                               @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                                               @Value("${spring.datasource.hikari.connection-timeout:30000}") long connectionTimeout,
+                                               @Value("${booking.sharding.urls:}") String shardUrls) {
+        //every shard would need replicas of its own
+        if (!shardUrls.isBlank()) {
+            throw new IllegalStateException("booking.replicas.urls does not support booking.sharding.urls");
+        }
+        HikariDataSource primary = pool(properties, properties.determineUrl(), "primary", poolSize, connectionTimeout);
+        Map<Object, Object> replicas = new HashMap<>();
+        for (int replica = 0; replica < urls.size(); replica++) {
+            HikariDataSource dataSource = pool(properties, urls.get(replica).trim(), "replica-" + replica, poolSize, connectionTimeout);
+            dataSource.setReadOnly(true);
+            replicas.put(replica, dataSource);
+        }
+        log.info("Serving read-only queries from {} replicas", urls.size());
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource();
+        routing.setTargetDataSources(replicas);
+        routing.setDefaultTargetDataSource(primary);
+        return routing;
+    }
+
+    //takes the place of the auto-configured jpa transaction manager
+    @Bean
+    public JpaTransactionManager transactionManager(@Value("${booking.replicas.urls}") List<String> urls,
+                                                    ReadYourWrites readYourWrites, MeterRegistry meterRegistry,
+                                                    ObjectProvider<TransactionManagerCustomizers> customizers) {
+        ReplicaTransactionManager transactionManager = new ReplicaTransactionManager(urls.size(), readYourWrites, meterRegistry);
+        //the PlatformTransactionManager overload is deprecated, pick the TransactionManager one
+        customizers.ifAvailable(customizer -> customizer.customize((TransactionManager) transactionManager));
+        return transactionManager;
+    }
+
+    @Bean
+    public ReadYourWrites readYourWrites(@Value("${booking.replicas.read-your-writes.max-clients:10000}") long maxClients,
+                                         @Value("${booking.replicas.read-your-writes.window:5s}") Duration window) {
+        return new ReadYourWrites(maxClients, window);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(ReadYourWrites readYourWrites) {
+        return new FilterRegistrationBean<>(new ReadYourWritesFilter(readYourWrites));
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, String url, String name,
+                                         int poolSize, long connectionTimeout) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        dataSource.setPoolName(name);
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSource.setConnectionTimeout(connectionTimeout);
+        return dataSource;
+    }
+}
@@ -0,0 +1,37 @@
+package com.acme.room_booking_system.replica;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+
+//hands out connections of the replica picked for the current transaction by ReplicaTransactionManager,
+//everything else, writes, migrations and reads outside a @ReadFromReplica transaction, gets the primary
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    static void use(int replica) {
+        CURRENT.set(replica);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return CURRENT.get();
+    }
+
+    //the pools are not beans of their own, they are closed with the routing datasource
+    public void close() throws Exception {
+        for (DataSource target : getResolvedDataSources().values()) {
+            if (target instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+        if (getResolvedDefaultDataSource() instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.acme.room_booking_system.replica;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+//picks the replica of a @ReadFromReplica transaction when it begins, round robin over the replicas,
+//or the primary while the client is inside its read-your-writes window
+class ReplicaTransactionManager extends JpaTransactionManager {
+
+    private final int replicaCount;
+    private final ReadYourWrites readYourWrites;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter replicaReads;
+    private final Counter primaryReads;
+
+    ReplicaTransactionManager(int replicaCount, ReadYourWrites readYourWrites, MeterRegistry meterRegistry) {
+        this.replicaCount = replicaCount;
+        this.readYourWrites = readYourWrites;
+        this.replicaReads = Counter.builder("booking.replicas.transactions")
+                .description("Read-only transactions that may use a replica, by where they ran")
+                .tag("target", "replica")
+                .register(meterRegistry);
+        this.primaryReads = Counter.builder("booking.replicas.transactions")
+                .description("Read-only transactions that may use a replica, by where they ran")
+                .tag("target", "primary")
+                .register(meterRegistry);
+    }
+
+    //the connection is taken in doBegin at the earliest, and only by an outermost transaction,
+    //repository calls inside it join and stay on the same replica
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        if (definition.isReadOnly() && definition instanceof TransactionAttribute attribute
+                && attribute.getLabels().contains(ReadFromReplica.LABEL)) {
+            if (readYourWrites.mustReadPrimary()) {
+                primaryReads.increment();
+            } else {
+                ReplicaRoutingDataSource.use(Math.floorMod(next.getAndIncrement(), replicaCount));
+                replicaReads.increment();
+            }
+        }
+        try {
+            super.doBegin(transaction, definition);
+        } catch (RuntimeException | Error e) {
+            ReplicaRoutingDataSource.clear();
+            throw e;
+        }
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        try {
+            super.doCleanupAfterCompletion(transaction);
+        } finally {
+            ReplicaRoutingDataSource.clear();
+        }
+    }
+}
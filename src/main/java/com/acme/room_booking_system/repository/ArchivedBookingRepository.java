@@ -0,0 +1,41 @@
+package com.acme.room_booking_system.repository;
+
+import com.acme.room_booking_system.archive.ArchivedDay;
+import com.acme.room_booking_system.model.dto.BookingResponse;
+import com.acme.room_booking_system.model.entity.ArchivedBooking;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ArchivedBookingRepository extends JpaRepository<ArchivedBooking, Long> {
+
+    //archived day schedule of a room, in the same shape as the live one
+    @Query("select new com.acme.room_booking_system.model.dto.BookingResponse(a.id, a.employeeEmail, a.startTime, a.endTime, a.version) " +
+            "from ArchivedBooking a where a.roomId = :roomId and a.date = :date order by a.startTime")
+    List<BookingResponse> findBookingResponsesByRoomIdAndDate(Long roomId, LocalDate date);
+
+    //archived bookings of the rooms between two dates, in the shape of the live range query under the current room names
+    @Query("select new com.acme.room_booking_system.model.dto.BookingResponse(a.id, r.name, a.employeeEmail, a.date, a.startTime, a.endTime, a.version) " +
+            "from ArchivedBooking a join Room r on r.id = a.roomId where a.roomId in :roomIds and a.date between :from and :to order by a.roomId, a.date, a.startTime")
+    List<BookingResponse> findBookingResponsesByRoomIdsAndDateBetween(Collection<Long> roomIds, LocalDate from, LocalDate to);
+
+    boolean existsByRoomId(Long roomId);
+
+    //room-days of the archived bookings, their cached schedules are stale once the batch committed
+    @Query("select distinct new com.acme.room_booking_system.archive.ArchivedDay(a.roomId, a.date) from ArchivedBooking a where a.id in :ids")
+    List<ArchivedDay> findArchivedDaysByIds(Collection<Long> ids);
+
+    //copy live bookings into the archive with a single insert-select, the caller deletes them in the same transaction
+    @Modifying
+    @Query("insert into ArchivedBooking (id, roomId, version, roomName, employeeEmail, date, startTime, endTime, createdAt, updatedAt, archivedAt) " +
+            "select b.id, r.id, b.version, r.name, b.employeeEmail, b.date, b.startTime, b.endTime, b.createdAt, b.updatedAt, :archivedAt " +
+            "from Booking b join b.room r where b.id in :ids")
+    int archiveBookings(Collection<Long> ids, LocalDateTime archivedAt);
+}
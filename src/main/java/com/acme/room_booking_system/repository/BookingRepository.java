@@ -1,17 +1,75 @@
 package com.acme.room_booking_system.repository;
 
+import com.acme.room_booking_system.model.dto.BookingResponse;
 import com.acme.room_booking_system.model.entity.Booking;
 import com.acme.room_booking_system.model.entity.Room;
+import com.acme.room_booking_system.sharding.OrderedById;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
     List<Booking> findByRoomAndDate(Room room, LocalDate date);
+
+    //keyset page of the bookings from the date onwards, with their rooms, for warming up the interval index
+    @OrderedById
+    @EntityGraph(attributePaths = "room")
+    @Query("select b from Booking b where b.date >= :date and b.id > :afterId order by b.id")
+    List<Booking> findByDateGreaterThanEqualAndIdAfter(LocalDate date, Long afterId, Limit limit);
     boolean existsByRoomAndDateAndStartTimeLessThanAndEndTimeGreaterThan(Room room, LocalDate date, LocalTime startTime, LocalTime endTime);
     boolean existsByRoomAndDateAndStartTimeLessThanAndEndTimeGreaterThanAndIdNot(Room room, LocalDate date, LocalTime startTime, LocalTime endTime, Long id);
-}
\ No newline at end of file
+    boolean existsByRoomId(Long roomId);
+
+    //oldest bookings before the date, one bounded batch of the archive job at a time
+    @OrderedById
+    @Query("select b.id from Booking b where b.date < :date order by b.id")
+    List<Long> findIdsByDateBefore(LocalDate date, Limit limit);
+
+    @Modifying
+    @Query("delete from Booking b where b.id in :ids")
+    int deleteByIds(Collection<Long> ids);
+
+    //bookings of the room between two dates that overlap [startTime, endTime) on their day
+    @Query("select b from Booking b where b.room = :room and b.date between :from and :to " +
+            "and b.startTime < :endTime and b.endTime > :startTime")
+    List<Booking> findByRoomAndDateRangeAndTimesOverlapping(Room room, LocalDate from, LocalDate to,
+                                                            LocalTime startTime, LocalTime endTime);
+
+    //day schedule of a room projected straight into responses
+    @Query("select new com.acme.room_booking_system.model.dto.BookingResponse(b.id, b.employeeEmail, b.startTime, b.endTime, b.version) " +
+            "from Booking b where b.room = :room and b.date = :date order by b.startTime")
+    List<BookingResponse> findBookingResponsesByRoomAndDate(Room room, LocalDate date);
+
+    //bookings of the rooms between two dates, ordered for grouping by room and day, answered by the room-date index
+    @Query("select new com.acme.room_booking_system.model.dto.BookingResponse(b.id, r.name, b.employeeEmail, b.date, b.startTime, b.endTime, b.version) " +
+            "from Booking b join b.room r where r.id in :roomIds and b.date between :from and :to order by r.id, b.date, b.startTime")
+    List<BookingResponse> findBookingResponsesByRoomIdsAndDateBetween(Collection<Long> roomIds, LocalDate from, LocalDate to);
+
+    //keyset page ordered by id, joining the room name in the same query
+    @OrderedById
+    @Query("select new com.acme.room_booking_system.model.dto.BookingResponse(b.id, r.name, b.employeeEmail, b.date, b.startTime, b.endTime, b.version) " +
+            "from Booking b join b.room r where b.id > :afterId order by b.id")
+    List<BookingResponse> findBookingResponsesAfter(Long afterId, Limit limit);
+
+    //forward-only cursor over all bookings, the caller must hold a transaction and close the stream
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new com.acme.room_booking_system.model.dto.BookingResponse(b.id, r.name, b.employeeEmail, b.date, b.startTime, b.endTime, b.version) " +
+            "from Booking b join b.room r order by b.id")
+    Stream<BookingResponse> streamBookingResponses();
+}
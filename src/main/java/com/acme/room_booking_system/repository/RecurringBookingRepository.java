@@ -0,0 +1,26 @@
+package com.acme.room_booking_system.repository;
+
+import com.acme.room_booking_system.model.entity.RecurringBooking;
+import com.acme.room_booking_system.model.entity.Room;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface RecurringBookingRepository extends JpaRepository<RecurringBooking, Long> {
+    @EntityGraph(attributePaths = "room")
+    List<RecurringBooking> findByEndDateGreaterThanEqual(LocalDate date);
+    boolean existsByRoomId(Long roomId);
+
+    //recurrences of the room whose date range overlaps [from, to], the caller still checks the weekdays
+    @Query("select r from RecurringBooking r where r.room = :room and r.startDate <= :to and r.endDate >= :from")
+    List<RecurringBooking> findByRoomAndDatesOverlapping(Room room, LocalDate from, LocalDate to);
+
+    //recurrences of every room whose date range overlaps [from, to]
+    @Query("select r from RecurringBooking r join fetch r.room where r.startDate <= :to and r.endDate >= :from")
+    List<RecurringBooking> findByDatesOverlapping(LocalDate from, LocalDate to);
+}
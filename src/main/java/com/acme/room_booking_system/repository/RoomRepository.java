@@ -1,13 +1,38 @@
 package com.acme.room_booking_system.repository;
 
+import com.acme.room_booking_system.model.dto.RoomResponse;
 import com.acme.room_booking_system.model.entity.Room;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface RoomRepository extends JpaRepository<Room, Long> {
     Optional<Room> findByName(String name);
     boolean existsByName(String name);
-}
\ No newline at end of file
+    List<Room> findByNameIn(Collection<? extends String> names);
+
+    @Query("select new com.acme.room_booking_system.model.dto.RoomResponse(r.name) from Room r order by r.id")
+    List<RoomResponse> findAllRoomResponses();
+
+    //every room with its id, to be matched against the in-memory occupancy
+    @Query("select new com.acme.room_booking_system.model.dto.RoomResponse(r.id, r.name, r.version) from Room r order by r.id")
+    List<RoomResponse> findAllRoomResponsesWithIds();
+
+    //keyset page of rooms ordered by id
+    @Query("select new com.acme.room_booking_system.model.dto.RoomResponse(r.id, r.name, r.version) from Room r where r.id > :afterId order by r.id")
+    List<RoomResponse> findRoomResponsesAfter(Long afterId, Limit limit);
+
+    //rooms without a booking overlapping [startTime, endTime) on the date, answered in a single query
+    @Query("select new com.acme.room_booking_system.model.dto.RoomResponse(r.id, r.name, r.version) from Room r " +
+            "where not exists (select b.id from Booking b where b.room = r and b.date = :date " +
+            "and b.startTime < :endTime and b.endTime > :startTime) order by r.id")
+    List<RoomResponse> findAvailableRoomResponses(LocalDate date, LocalTime startTime, LocalTime endTime);
+}
@@ -1,20 +1,59 @@
 package com.acme.room_booking_system.service;
 
+import com.acme.room_booking_system.cache.CachedSchedule;
+import com.acme.room_booking_system.cache.DayScheduleCache;
+import com.acme.room_booking_system.event.BookingEvent;
+import com.acme.room_booking_system.event.BookingEventBus;
+import com.acme.room_booking_system.event.BookingEventType;
+import com.acme.room_booking_system.exception.BadRequestException;
 import com.acme.room_booking_system.exception.BookingCancellationException;
+import com.acme.room_booking_system.exception.BookingOverlapException;
+import com.acme.room_booking_system.exception.DomainException;
+import com.acme.room_booking_system.exception.NotFoundException;
+import com.acme.room_booking_system.exception.PreconditionFailedException;
 import com.acme.room_booking_system.helper.BookingHelper;
+import com.acme.room_booking_system.helper.RecurringBookingHelper;
 import com.acme.room_booking_system.helper.RoomHelper;
+import com.acme.room_booking_system.index.BookingIntervalIndex;
+import com.acme.room_booking_system.index.SlotOccupancy;
+import com.acme.room_booking_system.lock.BookingLockManager;
+import com.acme.room_booking_system.metrics.BookingMetrics;
 import com.acme.room_booking_system.model.entity.Booking;
+import com.acme.room_booking_system.model.dto.BatchBookingResult;
+import com.acme.room_booking_system.model.dto.BookingPage;
 import com.acme.room_booking_system.model.dto.BookingRequest;
 import com.acme.room_booking_system.model.dto.BookingResponse;
+import com.acme.room_booking_system.model.dto.DaySchedule;
+import com.acme.room_booking_system.model.dto.RoomResponse;
+import com.acme.room_booking_system.model.dto.SchedulePage;
+import com.acme.room_booking_system.model.dto.TimeSlotResponse;
 import com.acme.room_booking_system.model.entity.Room;
+import com.acme.room_booking_system.replica.ReadFromReplica;
+import com.acme.room_booking_system.repository.ArchivedBookingRepository;
 import com.acme.room_booking_system.repository.BookingRepository;
+import com.acme.room_booking_system.sharding.ShardRouter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
-import java.util.Collections;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -23,65 +62,365 @@ public class BookingService {
     private final BookingRepository bookingRepository;
     private final BookingHelper bookingHelper;
     private final RoomHelper roomHelper;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final BookingLockManager bookingLockManager;
+    private final DayScheduleCache dayScheduleCache;
+    private final BookingMetrics bookingMetrics;
+    private final RecurringBookingHelper recurringBookingHelper;
+    private final BookingEventBus bookingEventBus;
+    private final ArchivedBookingRepository archivedBookingRepository;
+    private final ShardRouter shardRouter;
 
+    @Value("${booking.update.max-attempts:3}")
+    private int maxUpdateAttempts = 3;
+
+    //the queries of a read share one read-only transaction, on a replica when booking.replicas.urls is set
+    @ReadFromReplica
     public List<BookingResponse> getBookingsByRoomAndDate(String roomName, LocalDate date) {
         Room room = roomHelper.findRoomByName(roomName);
-        List<Booking> bookings = bookingRepository.findByRoomAndDate(room, date);
+        return findDaySchedule(room, date);
+    }
+
+    //same schedule already serialized, served from memory until a booking of the room-day changes,
+    //no transaction around it so a hit never takes a connection, a miss reads the primary so no replica lag gets cached
+    public CachedSchedule getCachedBookingsByRoomAndDate(String roomName, LocalDate date) {
+        Room room = roomHelper.findRoomByName(roomName);
+        return dayScheduleCache.get(room.getId(), date, () -> findDaySchedule(room, date));
+    }
+
+    //live bookings and recurring occurrences of the day, past days also look in the archive
+    private List<BookingResponse> findDaySchedule(Room room, LocalDate date) {
+        List<BookingResponse> bookings = bookingRepository.findBookingResponsesByRoomAndDate(room, date);
+        if (date.isBefore(LocalDate.now())) {
+            List<BookingResponse> archived = archivedBookingRepository.findBookingResponsesByRoomIdAndDate(room.getId(), date);
+            if (!archived.isEmpty()) {
+                bookings = Stream.concat(archived.stream(), bookings.stream())
+                        .sorted(Comparator.comparing(BookingResponse::getStartTime))
+                        .toList();
+            }
+        }
+        return recurringBookingHelper.withOccurrences(room, date, bookings);
+    }
+
+    //day schedules of a room between two dates, both included, read with one range query
+    @ReadFromReplica
+    public List<DaySchedule> getSchedulesByRoom(String roomName, LocalDate from, LocalDate to) {
+        bookingHelper.validateDateRange(from, to, 1);
+        Room room = roomHelper.findRoomByName(roomName);
+        return findSchedules(List.of(new RoomResponse(room.getId(), room.getName())), from, to);
+    }
+
+    //day schedules of a page of rooms between two dates, rooms ordered by id
+    @ReadFromReplica
+    public SchedulePage getSchedules(LocalDate from, LocalDate to, Long afterRoomId, int limit) {
+        bookingHelper.validateDateRange(from, to, limit);
 
-        if (bookings == null) {
-            bookings = Collections.emptyList();
+        //fetch one extra room to know whether another page follows
+        List<RoomResponse> rooms = roomHelper.findRoomPage(afterRoomId, limit + 1);
+        if (rooms.size() <= limit) {
+            return new SchedulePage(findSchedules(rooms, from, to), null);
         }
 
-        return bookings.stream()
-                .map(booking ->  new BookingResponse(
-                        booking.getEmployeeEmail(),
-                        booking.getStartTime(),
-                        booking.getEndTime()))
-                .collect(Collectors.toList());
+        List<RoomResponse> page = rooms.subList(0, limit);
+        return new SchedulePage(findSchedules(page, from, to), page.get(limit - 1).getId());
+    }
+
+    //validate the range of an export up front, before any of the response is written
+    public void validateScheduleRange(LocalDate from, LocalDate to, int roomsPerPage) {
+        bookingHelper.validateDateRange(from, to, roomsPerPage);
+    }
+
+    //day schedules of every room, read page by page so only one page of rooms is held at a time,
+    //the caller validates the range first with validateScheduleRange,
+    //reads the primary page by page instead of holding a transaction open for the whole response
+    public void exportSchedules(LocalDate from, LocalDate to, int roomsPerPage, Consumer<DaySchedule> consumer) {
+        Long afterRoomId = null;
+        List<RoomResponse> rooms;
+        do {
+            rooms = roomHelper.findRoomPage(afterRoomId, roomsPerPage);
+            findSchedules(rooms, from, to).forEach(consumer);
+            afterRoomId = rooms.isEmpty() ? null : rooms.get(rooms.size() - 1).getId();
+        } while (rooms.size() == roomsPerPage);
+    }
+
+    //bookings, archived bookings and occurrences of the rooms in the range, grouped by room and day in room order,
+    //days without any booking are left out
+    private List<DaySchedule> findSchedules(List<RoomResponse> rooms, LocalDate from, LocalDate to) {
+        if (rooms.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, String> roomNamesById = new LinkedHashMap<>();
+        rooms.forEach(room -> roomNamesById.put(room.getId(), room.getName()));
+
+        List<BookingResponse> bookings = new ArrayList<>(
+                bookingRepository.findBookingResponsesByRoomIdsAndDateBetween(roomNamesById.keySet(), from, to));
+        LocalDate today = LocalDate.now();
+        if (from.isBefore(today)) {
+            LocalDate archivedTo = to.isBefore(today) ? to : today.minusDays(1);
+            bookings.addAll(archivedBookingRepository.findBookingResponsesByRoomIdsAndDateBetween(roomNamesById.keySet(), from, archivedTo));
+        }
+        bookings.addAll(recurringBookingHelper.findOccurrenceResponses(roomNamesById, from, to));
+
+        //room name -> date -> bookings of the day, room name and date are carried by the schedule instead
+        Map<String, TreeMap<LocalDate, List<BookingResponse>>> days = new LinkedHashMap<>();
+        roomNamesById.values().forEach(roomName -> days.put(roomName, new TreeMap<>()));
+        for (BookingResponse booking : bookings) {
+            days.get(booking.getRoomName())
+                    .computeIfAbsent(booking.getDate(), key -> new ArrayList<>())
+                    .add(new BookingResponse(booking.getId(), booking.getEmployeeEmail(), booking.getStartTime(),
+                            booking.getEndTime(), booking.getVersion()));
+        }
+
+        List<DaySchedule> schedules = new ArrayList<>();
+        days.forEach((roomName, bookingsByDate) -> bookingsByDate.forEach((date, dayBookings) -> {
+            dayBookings.sort(Comparator.comparing(BookingResponse::getStartTime));
+            schedules.add(new DaySchedule(roomName, date, dayBookings));
+        }));
+        return schedules;
+    }
+
+    @ReadFromReplica
+    public List<TimeSlotResponse> getFreeSlots(String roomName, LocalDate date) {
+        Room room = roomHelper.findRoomByName(roomName);
+
+        long occupiedHours = bookingIntervalIndex.covers(date)
+                ? bookingIntervalIndex.occupiedHours(room.getId(), date)
+                : SlotOccupancy.occupiedHours(bookingRepository.findByRoomAndDate(room, date));
+        occupiedHours |= recurringBookingHelper.occupiedHours(room, date);
+
+        return bookingHelper.mapToFreeSlots(date, occupiedHours);
     }
 
     public BookingResponse createBooking(BookingRequest request) {
         Room room = roomHelper.findRoomByName(request.getRoomName());
 
-        bookingHelper.validateBookingAndDates(request, room, null);
+        //the overlap check and the insert must not interleave with other writers on the same room and date
+        //the event is published under the lock too, so subscribers see the changes of a room-day in write order
+        return bookingLockManager.executeLocked(room.getId(), () -> {
+            bookingHelper.validateBookingAndDates(request, room, null);
+
+            Booking savedBooking = bookingMetrics.timeSave(BookingMetrics.CREATE,
+                    () -> bookingRepository.save(bookingHelper.mapToBooking(room, request)));
+            bookingIntervalIndex.add(savedBooking);
+            dayScheduleCache.evict(room.getId(), request.getDate());
+
+            BookingResponse response = bookingHelper.mapToBookingResponse(room.getName(), savedBooking);
+            bookingEventBus.publish(BookingEvent.booking(BookingEventType.BOOKING_CREATED, room.getName(),
+                    request.getDate(), null, response));
+            return response;
+        }, request.getDate());
+    }
+
+    public List<BatchBookingResult> createBookings(List<BookingRequest> requests) {
+        bookingHelper.validateBatchSize(requests.size());
+        BatchBookingResult[] results = new BatchBookingResult[requests.size()];
+
+        //resolve every room of the batch with a single query
+        Map<String, Room> roomsByName = roomHelper.findRoomsByNames(requests.stream()
+                .map(BookingRequest::getRoomName)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+
+        //validate each request on its own and group the valid ones by room id and date, keeping the batch order
+        Map<Long, Room> roomsById = new HashMap<>();
+        Map<Long, Map<LocalDate, List<Integer>>> candidates = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            BookingRequest request = requests.get(i);
+            try {
+                bookingHelper.validateBatchBookingRequest(request);
+
+                Room room = roomsByName.get(request.getRoomName());
+                if (room == null) {
+                    throw new NotFoundException("Room not found with name: " + request.getRoomName());
+                }
+                roomsById.put(room.getId(), room);
+                candidates.computeIfAbsent(room.getId(), key -> new HashMap<>())
+                        .computeIfAbsent(request.getDate(), key -> new ArrayList<>())
+                        .add(i);
+            } catch (DomainException e) {
+                bookingMetrics.countBatchRejection(e.getClass().getSimpleName());
+                results[i] = BatchBookingResult.failed(i, e.getMessage());
+            }
+        }
+
+        Map<Long, List<LocalDate>> datesByRoom = candidates.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> new ArrayList<>(entry.getValue().keySet())));
+
+        bookingLockManager.executeLocked(datesByRoom, () -> {
+            List<Integer> acceptedIndexes = new ArrayList<>();
+            List<Booking> acceptedBookings = new ArrayList<>();
 
-        Booking booking = bookingHelper.mapToBooking(room, request);
-        booking = bookingRepository.save(booking);
+            candidates.forEach((roomId, indexesByDate) -> indexesByDate.forEach((date, indexes) -> {
+                Room room = roomsById.get(roomId);
 
-        return bookingHelper.mapToBookingResponse(room.getName(), booking);
+                //one pass per room-day against the existing bookings and the rest of the batch
+                List<Integer> overlapping = bookingHelper.findOverlappingBatchRequests(room, date, indexes, requests);
+                overlapping.forEach(i -> {
+                    bookingMetrics.countBatchRejection(BookingOverlapException.class.getSimpleName());
+                    results[i] = BatchBookingResult.failed(i, "Booking time overlaps with another booking.");
+                });
+
+                for (int i : indexes) {
+                    if (results[i] == null) {
+                        acceptedIndexes.add(i);
+                        acceptedBookings.add(bookingHelper.mapToBooking(room, requests.get(i)));
+                    }
+                }
+            }));
+
+            //a single transaction with jdbc batched inserts
+            List<Booking> savedBookings = bookingMetrics.timeSave(BookingMetrics.BATCH,
+                    () -> bookingRepository.saveAll(acceptedBookings));
+            for (int i = 0; i < savedBookings.size(); i++) {
+                Booking savedBooking = savedBookings.get(i);
+                bookingIntervalIndex.add(savedBooking);
+                dayScheduleCache.evict(savedBooking.getRoom().getId(), savedBooking.getDate());
+
+                int index = acceptedIndexes.get(i);
+                BookingResponse response = bookingHelper.mapToBookingResponse(savedBooking.getRoom().getName(), savedBooking);
+                results[index] = BatchBookingResult.created(index, response);
+                bookingEventBus.publish(BookingEvent.booking(BookingEventType.BOOKING_CREATED, savedBooking.getRoom().getName(),
+                        savedBooking.getDate(), null, response));
+            }
+            return null;
+        });
+
+        return Arrays.asList(results);
     }
 
-    public List<BookingResponse> getAllBookings() {
-        return bookingRepository.findAll().stream()
-                .map(booking -> bookingHelper.mapToBookingResponse(booking.getRoom().getName(), booking))
-                .collect(Collectors.toList());
+    @ReadFromReplica
+    public BookingPage getAllBookings(Long afterId, int limit) {
+        bookingHelper.validatePageSize(limit);
+
+        //fetch one extra row to know whether another page follows
+        List<BookingResponse> bookings = bookingRepository.findBookingResponsesAfter(
+                (afterId == null) ? 0L : afterId, Limit.of(limit + 1));
+
+        if (bookings.size() <= limit) {
+            return new BookingPage(bookings, null);
+        }
+
+        List<BookingResponse> page = bookings.subList(0, limit);
+        return new BookingPage(page, page.get(limit - 1).getId());
+    }
+
+    //hand every booking to the consumer one by one, the projections are never managed so the export runs in constant heap,
+    //a cursor needs a transaction of its own shard, so shards are exported one after the other, each in id order
+    public void exportBookings(Consumer<BookingResponse> consumer) {
+        shardRouter.forEachShardReadOnly(() -> {
+            try (Stream<BookingResponse> bookings = bookingRepository.streamBookingResponses()) {
+                bookings.forEach(consumer);
+            }
+        });
     }
 
     public BookingResponse updateBooking(Long bookingId, BookingRequest request) {
-        Booking existingBooking = bookingHelper.findBookingById(bookingId);
+        return updateBooking(bookingId, request, null);
+    }
+
+    //with an expected version (If-Match) a concurrent change fails the update, without one the request replaces
+    //the booking as a whole, so it is safe to read the booking again and apply the request on top of the fresh row
+    public BookingResponse updateBooking(Long bookingId, BookingRequest request, Long expectedVersion) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return tryUpdateBooking(bookingId, request, expectedVersion);
+            } catch (OptimisticLockingFailureException e) {
+                if (expectedVersion != null) {
+                    throw bookingChanged(bookingId);
+                }
+                if (attempt >= maxUpdateAttempts) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private BookingResponse tryUpdateBooking(Long bookingId, BookingRequest request, Long expectedVersion) {
         Room room = roomHelper.findRoomByName(request.getRoomName());
+        while (true) {
+            //this read only tells which room-day to lock, the booking is read again once it is held
+            Booking unlockedBooking = bookingHelper.findBookingById(bookingId);
+            Room previousRoom = unlockedBooking.getRoom();
+            LocalDate previousDate = unlockedBooking.getDate();
+            //a booking lives on the shard of its room, moving the row between databases is not supported
+            if (shardRouter.isSharded() && ShardRouter.shardOfRoom(previousRoom.getId()) != ShardRouter.shardOfRoom(room.getId())) {
+                throw new BadRequestException("A booking cannot be moved to a room on another shard.");
+            }
+
+            //lock the room-day the booking leaves and the one it moves to, which may be of another room
+            Map<Long, Set<LocalDate>> datesByRoom = new HashMap<>();
+            datesByRoom.computeIfAbsent(previousRoom.getId(), key -> new HashSet<>()).add(previousDate);
+            datesByRoom.computeIfAbsent(room.getId(), key -> new HashSet<>()).add(request.getDate());
 
-        bookingHelper.validateBookingAndDates(request, room, bookingId);
+            BookingResponse response = bookingLockManager.executeLocked(datesByRoom, () -> {
+                Booking existingBooking = bookingHelper.findBookingById(bookingId);
+                //moved away from the locked room-day while waiting, lock where it is now
+                if (!existingBooking.getRoom().getId().equals(previousRoom.getId()) || !existingBooking.getDate().equals(previousDate)) {
+                    return null;
+                }
+                if (expectedVersion != null && !expectedVersion.equals(existingBooking.getVersion())) {
+                    throw bookingChanged(bookingId);
+                }
+                LocalTime previousStartTime = existingBooking.getStartTime();
 
-        //existingBooking.setRoom(room);
-        existingBooking.setEmployeeEmail(request.getEmployeeEmail());
-        existingBooking.setDate(request.getDate());
-        existingBooking.setStartTime(request.getStartTime());
-        existingBooking.setEndTime(request.getEndTime());
+                bookingHelper.validateBookingAndDates(request, room, bookingId);
 
-        Booking updatedBooking = bookingRepository.save(existingBooking);
+                existingBooking.setRoom(room);
+                existingBooking.setEmployeeEmail(request.getEmployeeEmail());
+                existingBooking.setDate(request.getDate());
+                existingBooking.setStartTime(request.getStartTime());
+                existingBooking.setEndTime(request.getEndTime());
 
-        return bookingHelper.mapToBookingResponse(room.getName(), updatedBooking);
+                Booking savedBooking = bookingMetrics.timeSave(BookingMetrics.UPDATE, () -> bookingRepository.save(existingBooking));
+                bookingIntervalIndex.move(savedBooking, previousRoom.getId(), previousDate, previousStartTime);
+                dayScheduleCache.evict(previousRoom.getId(), previousDate);
+                dayScheduleCache.evict(room.getId(), request.getDate());
+
+                BookingResponse updated = bookingHelper.mapToBookingResponse(room.getName(), savedBooking);
+                String previousRoomName = previousRoom.getId().equals(room.getId()) ? null : previousRoom.getName();
+                bookingEventBus.publish(BookingEvent.booking(BookingEventType.BOOKING_UPDATED, room.getName(), previousRoomName,
+                        request.getDate(), previousDate, updated));
+                return updated;
+            });
+            if (response != null) {
+                return response;
+            }
+        }
+    }
+
+    private PreconditionFailedException bookingChanged(Long bookingId) {
+        return new PreconditionFailedException("Booking " + bookingId + " was changed by another request.");
     }
 
     public void cancelBooking(Long bookingId) {
-        Booking booking = bookingHelper.findBookingById(bookingId);
+        while (true) {
+            //this read only tells which room-day to lock, the booking is read again once it is held
+            Booking unlockedBooking = bookingHelper.findBookingById(bookingId);
+            Long roomId = unlockedBooking.getRoom().getId();
+            LocalDate date = unlockedBooking.getDate();
 
-        //prevent canceling past bookings
-        if (booking.getDate().isBefore(LocalDate.now())) {
-            throw new BookingCancellationException("Cannot cancel past bookings.");
-        }
+            boolean canceled = bookingLockManager.executeLocked(roomId, () -> {
+                Booking booking = bookingHelper.findBookingById(bookingId);
+                //moved away from the locked room-day while waiting, lock where it is now
+                if (!booking.getRoom().getId().equals(roomId) || !booking.getDate().equals(date)) {
+                    return false;
+                }
+
+                //prevent canceling past bookings
+                if (booking.getDate().isBefore(LocalDate.now())) {
+                    throw new BookingCancellationException("Cannot cancel past bookings.");
+                }
 
-        bookingRepository.delete(booking);
+                bookingMetrics.timeSave(BookingMetrics.DELETE, () -> bookingRepository.delete(booking));
+                bookingIntervalIndex.remove(booking);
+                dayScheduleCache.evict(roomId, date);
+                bookingEventBus.publish(BookingEvent.booking(BookingEventType.BOOKING_CANCELED, booking.getRoom().getName(),
+                        date, null, bookingHelper.mapToBookingResponse(booking.getRoom().getName(), booking)));
+                return true;
+            }, date);
+            if (canceled) {
+                return;
+            }
+        }
     }
 }
@@ -0,0 +1,82 @@
+package com.acme.room_booking_system.service;
+
+import com.acme.room_booking_system.cache.DayScheduleCache;
+import com.acme.room_booking_system.event.BookingEvent;
+import com.acme.room_booking_system.event.BookingEventBus;
+import com.acme.room_booking_system.event.BookingEventType;
+import com.acme.room_booking_system.exception.BookingCancellationException;
+import com.acme.room_booking_system.helper.BookingHelper;
+import com.acme.room_booking_system.helper.RecurringBookingHelper;
+import com.acme.room_booking_system.helper.RoomHelper;
+import com.acme.room_booking_system.index.RecurringBookingIndex;
+import com.acme.room_booking_system.lock.BookingLockManager;
+import com.acme.room_booking_system.model.dto.RecurringBookingRequest;
+import com.acme.room_booking_system.model.dto.RecurringBookingResponse;
+import com.acme.room_booking_system.model.entity.RecurringBooking;
+import com.acme.room_booking_system.model.entity.Room;
+import com.acme.room_booking_system.repository.RecurringBookingRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+public class RecurringBookingService {
+
+    private final RecurringBookingRepository recurringBookingRepository;
+    private final RecurringBookingHelper recurringBookingHelper;
+    private final BookingHelper bookingHelper;
+    private final RoomHelper roomHelper;
+    private final RecurringBookingIndex recurringBookingIndex;
+    private final BookingLockManager bookingLockManager;
+    private final DayScheduleCache dayScheduleCache;
+    private final BookingEventBus bookingEventBus;
+
+    public RecurringBookingResponse createRecurringBooking(RecurringBookingRequest request) {
+        Room room = roomHelper.findRoomByName(request.getRoomName());
+        RecurringBooking recurrence = recurringBookingHelper.mapToRecurringBooking(room, request);
+
+        //hold the locks of every occurrence day, so no single booking can slip into one of them during the check
+        List<LocalDate> dates = recurringBookingHelper.occurrenceDates(recurrence);
+        return bookingLockManager.executeLocked(Map.of(room.getId(), dates), () -> {
+            bookingHelper.validateRecurringBooking(request, room);
+
+            RecurringBooking saved = recurringBookingRepository.save(recurrence);
+            recurringBookingIndex.add(saved);
+            dayScheduleCache.evictRoom(room.getId());
+
+            RecurringBookingResponse response = recurringBookingHelper.mapToRecurringBookingResponse(saved);
+            bookingEventBus.publish(BookingEvent.recurringBooking(BookingEventType.RECURRING_BOOKING_CREATED,
+                    room.getName(), response));
+            return response;
+        });
+    }
+
+    //occurrences already past are kept, a recurrence that has started ends yesterday instead of being deleted
+    public void cancelRecurringBooking(Long recurringBookingId) {
+        RecurringBooking recurrence = recurringBookingHelper.findRecurringBookingById(recurringBookingId);
+        LocalDate today = LocalDate.now();
+
+        if (recurrence.getEndDate().isBefore(today)) {
+            throw new BookingCancellationException("Cannot cancel past recurring bookings.");
+        }
+
+        Long roomId = recurrence.getRoom().getId();
+        bookingLockManager.executeLocked(Map.of(roomId, recurringBookingHelper.occurrenceDates(recurrence)), () -> {
+            if (recurrence.getStartDate().isBefore(today)) {
+                recurrence.setEndDate(today.minusDays(1));
+                recurringBookingRepository.save(recurrence);
+            } else {
+                recurringBookingRepository.delete(recurrence);
+            }
+            recurringBookingIndex.remove(recurrence);
+            dayScheduleCache.evictRoom(roomId);
+            bookingEventBus.publish(BookingEvent.recurringBooking(BookingEventType.RECURRING_BOOKING_CANCELED,
+                    recurrence.getRoom().getName(), recurringBookingHelper.mapToRecurringBookingResponse(recurrence)));
+            return null;
+        });
+    }
+}
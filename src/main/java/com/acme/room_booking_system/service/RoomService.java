@@ -1,16 +1,29 @@
 package com.acme.room_booking_system.service;
 
+import com.acme.room_booking_system.event.BookingEvent;
+import com.acme.room_booking_system.event.BookingEventBus;
+import com.acme.room_booking_system.event.BookingEventType;
+import com.acme.room_booking_system.exception.PreconditionFailedException;
 import com.acme.room_booking_system.exception.RoomDeletionException;
+import com.acme.room_booking_system.helper.RecurringBookingHelper;
 import com.acme.room_booking_system.helper.RoomHelper;
+import com.acme.room_booking_system.index.BookingIntervalIndex;
 import com.acme.room_booking_system.model.entity.Room;
 import com.acme.room_booking_system.model.dto.RoomRequest;
 import com.acme.room_booking_system.model.dto.RoomResponse;
+import com.acme.room_booking_system.replica.ReadFromReplica;
+import com.acme.room_booking_system.repository.ArchivedBookingRepository;
+import com.acme.room_booking_system.repository.BookingRepository;
 import com.acme.room_booking_system.repository.RoomRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -18,6 +31,14 @@ public class RoomService {
 
     private final RoomRepository roomRepository;
     private final RoomHelper roomHelper;
+    private final BookingRepository bookingRepository;
+    private final ArchivedBookingRepository archivedBookingRepository;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final RecurringBookingHelper recurringBookingHelper;
+    private final BookingEventBus bookingEventBus;
+
+    @Value("${room.update.max-attempts:3}")
+    private int maxUpdateAttempts = 3;
 
     public RoomResponse createRoom(RoomRequest request) {
         roomHelper.checkRoomNameUniqueness(request.getName());
@@ -25,34 +46,100 @@ public class RoomService {
         Room room = new Room();
         room.setName(request.getName());
 
-        room = roomRepository.save(room);
-        return new RoomResponse(room.getName());
+        Room savedRoom = roomHelper.saveRoom(request.getName(), () -> roomRepository.save(room));
+        roomHelper.cacheRoom(savedRoom);
+
+        RoomResponse response = new RoomResponse(savedRoom.getId(), savedRoom.getName(), savedRoom.getVersion());
+        bookingEventBus.publish(BookingEvent.room(BookingEventType.ROOM_CREATED, savedRoom.getName(), null, response));
+        return response;
     }
 
+    @ReadFromReplica
     public List<RoomResponse> getAllRooms() {
-        return roomRepository.findAll().stream()
-                .map(room -> new RoomResponse(room.getName()))
-                .collect(Collectors.toList());
+        return roomRepository.findAllRoomResponses();
+    }
+
+    //rooms free during the whole window, checked against the in-memory occupancy of the date in one pass
+    @ReadFromReplica
+    public List<RoomResponse> getAvailableRooms(LocalDate date, LocalTime startTime, LocalTime endTime) {
+        roomHelper.validateTimeWindow(startTime, endTime);
+
+        List<RoomResponse> freeRooms = bookingIntervalIndex.covers(date)
+                ? bookingIntervalIndex.freeRooms(roomRepository.findAllRoomResponsesWithIds(), RoomResponse::getId,
+                        date, startTime, endTime)
+                : roomRepository.findAvailableRoomResponses(date, startTime, endTime);
+
+        //recurring bookings are not part of the occupancy, drop the rooms with an occurrence in the window
+        Set<Long> busyRoomIds = recurringBookingHelper.findBusyRoomIds(date, startTime, endTime);
+        if (busyRoomIds.isEmpty()) {
+            return freeRooms;
+        }
+        return freeRooms.stream()
+                .filter(room -> !busyRoomIds.contains(room.getId()))
+                .toList();
     }
 
     public RoomResponse updateRoom(Long roomId, RoomRequest request) {
+        return updateRoom(roomId, request, null);
+    }
+
+    //with an expected version (If-Match) a concurrent rename fails the update, without one the new name
+    //simply replaces the current one, so it is safe to read the room again and rename the fresh row
+    public RoomResponse updateRoom(Long roomId, RoomRequest request, Long expectedVersion) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return tryUpdateRoom(roomId, request, expectedVersion);
+            } catch (OptimisticLockingFailureException e) {
+                if (expectedVersion != null) {
+                    throw roomChanged(roomId);
+                }
+                if (attempt >= maxUpdateAttempts) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private RoomResponse tryUpdateRoom(Long roomId, RoomRequest request, Long expectedVersion) {
         Room room = roomHelper.findRoomById(roomId);
+        if (expectedVersion != null && !expectedVersion.equals(room.getVersion())) {
+            throw roomChanged(roomId);
+        }
         roomHelper.checkRoomNameUniqueness(request.getName());
 
+        String previousName = room.getName();
         room.setName(request.getName());
 
-        room = roomRepository.save(room);
-        return new RoomResponse(room.getName());
+        Room savedRoom = roomHelper.saveRoom(request.getName(), () -> roomRepository.save(room));
+        //evict only after the rename is committed, so a concurrent lookup cannot cache the old row again,
+        //the new name is left to the next lookup as a concurrent rename may already have moved the room on
+        roomHelper.evictRoom(previousName);
+        roomHelper.evictRoom(savedRoom.getName());
+
+        RoomResponse response = new RoomResponse(savedRoom.getId(), savedRoom.getName(), savedRoom.getVersion());
+        bookingEventBus.publish(BookingEvent.room(BookingEventType.ROOM_UPDATED, savedRoom.getName(), previousName, response));
+        return response;
+    }
+
+    private PreconditionFailedException roomChanged(Long roomId) {
+        return new PreconditionFailedException("Room " + roomId + " was changed by another request.");
     }
 
     public void deleteRoom(Long roomId) {
         Room room = roomHelper.findRoomById(roomId);
 
-        //prevent deletion if the room has active bookings
-        if (!room.getBookings().isEmpty()) {
+        //prevent deletion if the room has active bookings, without loading them
+        if (bookingRepository.existsByRoomId(room.getId()) || recurringBookingHelper.hasRecurringBookings(room.getId())) {
             throw new RoomDeletionException("Cannot delete room with active bookings.");
         }
+        //the archive keeps the room id of its bookings, they would be left pointing at nothing
+        if (archivedBookingRepository.existsByRoomId(room.getId())) {
+            throw new RoomDeletionException("Cannot delete room with archived bookings.");
+        }
 
         roomRepository.delete(room);
+        roomHelper.evictRoom(room.getName());
+        bookingEventBus.publish(BookingEvent.room(BookingEventType.ROOM_DELETED, room.getName(), null,
+                new RoomResponse(room.getName())));
     }
 }
@@ -0,0 +1,14 @@
+package com.acme.room_booking_system.sharding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//marks repository queries ordered by id, their per-shard results are merged by id before a Limit is applied;
+//each shard's booking_seq starts at its own id base, but hibernate hands out a fetched block of 50 ids to whichever
+//shard saves next, so booking ids are unique across shards without following the shard order
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface OrderedById {
+}
@@ -0,0 +1,39 @@
+package com.acme.room_booking_system.sharding;
+
+import java.util.function.Supplier;
+
+//shard the repository calls and transactions of the current thread run on, read by ShardRoutingDataSource
+//when a connection is taken, unset means the first shard
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    //run on the shard and restore the previous one afterwards, so pinned sections can nest
+    public static <T> T call(int shard, Supplier<T> work) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public static void run(int shard, Runnable work) {
+        call(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+}
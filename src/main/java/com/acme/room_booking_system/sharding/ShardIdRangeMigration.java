@@ -0,0 +1,54 @@
+package com.acme.room_booking_system.sharding;
+
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Statement;
+
+//moves the id generators of a shard into its own id range, once, right after the tables are created;
+//the shard index is the checksum, so a database listed at another position of booking.sharding.urls fails validation;
+//implements JavaMigration itself, BaseJavaMigration insists on a V<version>__ class name
+public class ShardIdRangeMigration implements JavaMigration {
+
+    private final int shard;
+
+    public ShardIdRangeMigration(int shard) {
+        this.shard = shard;
+    }
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("5.1");
+    }
+
+    @Override
+    public String getDescription() {
+        return "shard id range";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return shard;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return true;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        if (shard == 0) {
+            return;
+        }
+        long firstId = ShardRouter.idBase(shard) + 1;
+        try (Statement statement = context.getConnection().createStatement()) {
+            statement.execute("alter table room alter column id restart with " + firstId);
+            statement.execute("alter table recurring_booking alter column id restart with " + firstId);
+            //the shard ranges keep booking ids unique, a booking is still routed by its room since
+            //hibernate's pooled ids can come from another shard's sequence
+            statement.execute("alter sequence booking_seq restart with " + firstId);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.acme.room_booking_system.sharding;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+//rooms and everything booked in them live on one of booking.sharding.urls, chosen by room id:
+//every shard hands out ids from its own range, so the shard of a room is read off its id without a lookup
+@Component
+public class ShardRouter {
+
+    //shard of a generated room id, shard 0 keeps the ids of a database from before sharding;
+    //SlotOccupancy packs a room id into 43 bits of its key, so 32 leaves room for 2048 shards of 4 billion rooms
+    static final int SHARD_SHIFT = 32;
+    static final int MAX_SHARDS = 1 << 11;
+
+    private final int shardCount;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ShardRouter(PlatformTransactionManager transactionManager,
+                       @Value("${booking.sharding.urls:}") List<String> urls) {
+        this.shardCount = Math.max(1, urls.size());
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    //run the work once per shard, one after the other, repository calls and transactions inside stay on that shard
+    public void forEachShard(Runnable work) {
+        for (int shard = 0; shard < shardCount; shard++) {
+            ShardContext.run(shard, work);
+        }
+    }
+
+    //same, each shard in a read-only transaction of its own, for cursors that need one
+    public void forEachShardReadOnly(Runnable work) {
+        forEachShard(() -> readOnlyTransaction.executeWithoutResult(status -> work.run()));
+    }
+
+    //first id handed out by the generators of a shard
+    public static long idBase(int shard) {
+        return (long) shard << SHARD_SHIFT;
+    }
+
+    public static int shardOfRoom(long roomId) {
+        return (int) (roomId >>> SHARD_SHIFT);
+    }
+
+    //a new room has no id yet, its name spreads new rooms evenly, from then on the room is found by id
+    public static int shardForNewRoom(String name, int shardCount) {
+        return Math.floorMod(name.hashCode(), shardCount);
+    }
+}
@@ -0,0 +1,264 @@
+package com.acme.room_booking_system.sharding;
+
+import com.acme.room_booking_system.model.dto.BookingResponse;
+import com.acme.room_booking_system.model.dto.RoomResponse;
+import com.acme.room_booking_system.model.entity.ArchivedBooking;
+import com.acme.room_booking_system.model.entity.Booking;
+import com.acme.room_booking_system.model.entity.RecurringBooking;
+import com.acme.room_booking_system.model.entity.Room;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+//sits in front of every repository and runs each call on the shard of the room it is about: a room, booking or
+//recurring booking argument, a roomId parameter, or the id of a room; roomIds and entity lists are split by shard,
+//calls about no room in particular run on all shards in parallel and their results are merged
+class ShardRoutingInterceptor implements MethodInterceptor {
+
+    //shard calls wait on jdbc, one virtual thread per call costs next to nothing
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+    //shard of the connection a transaction started outside any pinned section runs on
+    private static final Integer TRANSACTION_SHARD = 0;
+
+    private final ParameterNameDiscoverer parameterNames = new DefaultParameterNameDiscoverer();
+    private final int shardCount;
+    //ids of this repository are room ids and carry their shard
+    private final boolean roomRepository;
+
+    ShardRoutingInterceptor(int shardCount, Class<?> domainType) {
+        this.shardCount = shardCount;
+        this.roomRepository = domainType == Room.class;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        //pinned by ShardContext or a nested call of a routed one
+        if (ShardContext.current() != null) {
+            return invocation.proceed();
+        }
+        //a transaction already holds the connection of the shard it started on, it cannot follow the routing;
+        //reads of a read-only service method only join it on that shard, see gather
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            throw new IllegalStateException("A transaction around " + invocation.getMethod().getName()
+                    + " must be pinned to a shard with ShardRouter");
+        }
+
+        Method method = invocation.getMethod();
+        Object[] arguments = invocation.getArguments();
+        String[] names = parameterNames.getParameterNames(method);
+        for (int i = 0; i < arguments.length; i++) {
+            Object argument = arguments[i];
+            String name = (names == null) ? null : names[i];
+            if (isEntity(argument)) {
+                return onShard(invocation, shardOf(argument), arguments);
+            }
+            if ("roomId".equals(name) && argument instanceof Long roomId) {
+                return onShard(invocation, ShardRouter.shardOfRoom(roomId), arguments);
+            }
+            if (roomRepository && method.getName().endsWith("ById") && argument instanceof Long roomId) {
+                return onShard(invocation, ShardRouter.shardOfRoom(roomId), arguments);
+            }
+            if ("roomIds".equals(name) && argument instanceof Collection<?> roomIds) {
+                return scatter(invocation, splitArgument(arguments, i, roomIds, roomId -> ShardRouter.shardOfRoom((Long) roomId)));
+            }
+            if (argument instanceof Iterable<?> entities && isEntity(first(entities))) {
+                return saveInPlace(invocation, i, entities);
+            }
+        }
+        Map<Integer, Object[]> everyShard = new TreeMap<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            everyShard.put(shard, arguments);
+        }
+        return scatter(invocation, everyShard);
+    }
+
+    //run the call once per shard in parallel with the arguments of that shard and merge the results in shard order
+    private Object scatter(MethodInvocation invocation, Map<Integer, Object[]> argumentsByShard) throws Throwable {
+        Method method = invocation.getMethod();
+        if (Stream.class.isAssignableFrom(method.getReturnType())) {
+            throw new IllegalStateException(method.getName() + " returns a cursor, run it per shard with ShardRouter");
+        }
+        List<Object> results = gather(invocation, argumentsByShard);
+        return merge(method, invocation.getArguments(), results);
+    }
+
+    private Object onShard(MethodInvocation invocation, int shard, Object[] arguments) throws Throwable {
+        return ((Optional<?>) gather(invocation, Map.of(shard, arguments)).getFirst()).orElse(null);
+    }
+
+    //a single call without a transaction runs on the calling thread, the others on a thread each; a read-only
+    //transaction already holds a connection of the first shard, see ShardContext, so the call for that shard
+    //joins it on the calling thread and only the other shards take a connection of their own
+    private List<Object> gather(MethodInvocation invocation, Map<Integer, Object[]> argumentsByShard) throws Throwable {
+        Integer inlineShard;
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            inlineShard = argumentsByShard.containsKey(TRANSACTION_SHARD) ? TRANSACTION_SHARD : null;
+        } else {
+            inlineShard = (argumentsByShard.size() == 1) ? argumentsByShard.keySet().iterator().next() : null;
+        }
+        Map<Integer, Future<Object>> futures = new TreeMap<>();
+        argumentsByShard.forEach((shard, arguments) -> {
+            if (!shard.equals(inlineShard)) {
+                futures.put(shard, EXECUTOR.submit(() -> Optional.ofNullable(ShardContext.call(shard, () -> proceed(invocation, arguments)))));
+            }
+        });
+        Object inlineResult = (inlineShard == null) ? null
+                : Optional.ofNullable(ShardContext.call(inlineShard, () -> proceed(invocation, argumentsByShard.get(inlineShard))));
+
+        List<Object> results = new ArrayList<>();
+        for (Integer shard : argumentsByShard.keySet()) {
+            if (shard.equals(inlineShard)) {
+                results.add(inlineResult);
+                continue;
+            }
+            try {
+                results.add(futures.get(shard).get());
+            } catch (ExecutionException e) {
+                throw e.getCause();
+            }
+        }
+        return results;
+    }
+
+    //saveAll and deleteAll of entities from several shards: each shard gets its own entities,
+    //a returned list keeps the positions of the argument
+    private Object saveInPlace(MethodInvocation invocation, int index, Iterable<?> entities) throws Throwable {
+        List<Object> all = new ArrayList<>();
+        entities.forEach(all::add);
+        Map<Integer, List<Integer>> positionsByShard = new TreeMap<>();
+        for (int i = 0; i < all.size(); i++) {
+            positionsByShard.computeIfAbsent(shardOf(all.get(i)), key -> new ArrayList<>()).add(i);
+        }
+        Map<Integer, Object[]> argumentsByShard = new TreeMap<>();
+        positionsByShard.forEach((shard, positions) -> {
+            Object[] arguments = invocation.getArguments().clone();
+            arguments[index] = positions.stream().map(all::get).toList();
+            argumentsByShard.put(shard, arguments);
+        });
+        List<Object> results = gather(invocation, argumentsByShard);
+        if (!List.class.isAssignableFrom(invocation.getMethod().getReturnType())) {
+            return null;
+        }
+        Object[] saved = new Object[all.size()];
+        int shardIndex = 0;
+        for (List<Integer> positions : positionsByShard.values()) {
+            List<?> shardSaved = (List<?>) ((Optional<?>) results.get(shardIndex++)).orElseThrow();
+            for (int i = 0; i < positions.size(); i++) {
+                saved[positions.get(i)] = shardSaved.get(i);
+            }
+        }
+        return new ArrayList<>(List.of(saved));
+    }
+
+    private Object merge(Method method, Object[] arguments, List<Object> results) {
+        Class<?> type = method.getReturnType();
+        List<Object> values = results.stream().<Object>map(result -> ((Optional<?>) result).orElse(null)).toList();
+        if (type == void.class) {
+            return null;
+        }
+        if (type == Optional.class) {
+            return values.stream().map(Optional.class::cast).filter(Optional::isPresent).findFirst().orElse(Optional.empty());
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return values.stream().anyMatch(Boolean.TRUE::equals);
+        }
+        if (type == long.class || type == Long.class) {
+            return values.stream().mapToLong(value -> ((Number) value).longValue()).sum();
+        }
+        if (type == int.class || type == Integer.class) {
+            return values.stream().mapToInt(value -> ((Number) value).intValue()).sum();
+        }
+        if (Iterable.class.isAssignableFrom(type)) {
+            List<Object> merged = new ArrayList<>();
+            values.forEach(value -> ((Iterable<?>) value).forEach(merged::add));
+            //room ids grow with the shard, so shard order already is id order for rooms
+            if (method.isAnnotationPresent(OrderedById.class)) {
+                merged.sort(Comparator.comparing(ShardRoutingInterceptor::idOf));
+            }
+            for (Object argument : arguments) {
+                if (argument instanceof Limit limit && limit.isLimited() && merged.size() > limit.max()) {
+                    return new ArrayList<>(merged.subList(0, limit.max()));
+                }
+            }
+            return merged;
+        }
+        return values.stream().filter(value -> value != null).findFirst().orElse(null);
+    }
+
+    private int shardOf(Object entity) {
+        return switch (entity) {
+            case Room room -> room.getId() != null
+                    ? ShardRouter.shardOfRoom(room.getId())
+                    : ShardRouter.shardForNewRoom(room.getName(), shardCount);
+            case Booking booking -> shardOf(booking.getRoom());
+            case RecurringBooking recurrence -> shardOf(recurrence.getRoom());
+            case ArchivedBooking archived -> ShardRouter.shardOfRoom(archived.getRoomId());
+            default -> throw new IllegalArgumentException("Not a sharded entity: " + entity.getClass());
+        };
+    }
+
+    private static boolean isEntity(Object argument) {
+        return argument instanceof Room || argument instanceof Booking || argument instanceof RecurringBooking
+                || argument instanceof ArchivedBooking;
+    }
+
+    private static Object first(Iterable<?> values) {
+        Iterator<?> iterator = values.iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    private static Map<Integer, Object[]> splitArgument(Object[] arguments, int index, Collection<?> values,
+                                                        Function<Object, Integer> shardOf) {
+        Map<Integer, List<Object>> valuesByShard = new TreeMap<>();
+        values.forEach(value -> valuesByShard.computeIfAbsent(shardOf.apply(value), key -> new ArrayList<>()).add(value));
+        Map<Integer, Object[]> argumentsByShard = new TreeMap<>();
+        valuesByShard.forEach((shard, shardValues) -> {
+            Object[] shardArguments = arguments.clone();
+            shardArguments[index] = shardValues;
+            argumentsByShard.put(shard, shardArguments);
+        });
+        return argumentsByShard;
+    }
+
+    private static Long idOf(Object value) {
+        return switch (value) {
+            case Long id -> id;
+            case Booking booking -> booking.getId();
+            case BookingResponse booking -> booking.getId();
+            case RoomResponse room -> room.getId();
+            default -> throw new IllegalArgumentException("No id to merge " + value.getClass() + " by");
+        };
+    }
+
+    //every shard gets its own copy of the invocation, the original one can only proceed once
+    private static Object proceed(MethodInvocation invocation, Object[] arguments) {
+        try {
+            return ((ProxyMethodInvocation) invocation).invocableClone(arguments).proceed();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.acme.room_booking_system.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//replaces the single datasource with one pool per url of booking.sharding.urls behind a routing datasource,
+//each shard is migrated on its own and every repository is wrapped by ShardRoutingInterceptor
+@Configuration
+@ConditionalOnExpression("!'${booking.sharding.urls:}'.isEmpty()")
+@Slf4j
+public class ShardingConfig {
+
+    @Bean
+    public ShardRoutingDataSource dataSource(DataSourceProperties properties,
+                                             @Value("${booking.sharding.urls}") List<String> urls,
+                                             @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                                             @Value("${spring.datasource.hikari.connection-timeout:30000}") long connectionTimeout,
+                                             @Value("${booking.persistence.mode:none}") String persistenceMode) {
+        //snapshots and restores read and write a single database
+        if ("journal".equals(persistenceMode)) {
+            throw new IllegalStateException("booking.persistence.mode=journal does not support booking.sharding.urls");
+        }
+        if (urls.size() > ShardRouter.MAX_SHARDS) {
+            throw new IllegalStateException("booking.sharding.urls supports at most " + ShardRouter.MAX_SHARDS + " shards");
+        }
+        Map<Object, Object> shards = new HashMap<>();
+        for (int shard = 0; shard < urls.size(); shard++) {
+            HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(urls.get(shard).trim())
+                    .build();
+            dataSource.setPoolName("shard-" + shard);
+            dataSource.setMaximumPoolSize(poolSize);
+            dataSource.setConnectionTimeout(connectionTimeout);
+            Flyway.configure()
+                    .dataSource(dataSource)
+                    .javaMigrations(new ShardIdRangeMigration(shard))
+                    .load()
+                    .migrate();
+            shards.put(shard, dataSource);
+        }
+        log.info("Routing rooms and bookings over {} shards", urls.size());
+
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(shards);
+        routing.setDefaultTargetDataSource(shards.get(0));
+        return routing;
+    }
+
+    //the auto-configured migration runs on the default shard, which is already migrated with the same steps
+    @Bean
+    public FlywayConfigurationCustomizer shardIdRangeMigration() {
+        return configuration -> configuration.javaMigrations(new ShardIdRangeMigration(0));
+    }
+
+    //static, post processors are created before the rest of the configuration
+    @Bean
+    public static BeanPostProcessor shardRoutingRepositories(Environment environment) {
+        int shardCount = environment.getRequiredProperty("booking.sharding.urls", String[].class).length;
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    //first advice of the repository proxy, so the shard is pinned before its transaction starts
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repository) -> proxyFactory.addAdvice(0,
+                                    new ShardRoutingInterceptor(shardCount, repository.getDomainType()))));
+                }
+                return bean;
+            }
+        };
+    }
+}
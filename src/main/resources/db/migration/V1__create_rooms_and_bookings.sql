@@ -0,0 +1,24 @@
+create table room (
+    id bigint generated by default as identity,
+    name varchar(255) not null,
+    created_at timestamp(6) not null,
+    updated_at timestamp(6) not null,
+    primary key (id)
+);
+
+create unique index uk_room_name on room (name);
+
+create sequence booking_seq start with 1 increment by 50;
+
+create table booking (
+    id bigint not null,
+    room_id bigint not null,
+    employee_email varchar(255) not null,
+    date date not null,
+    start_time time(6) not null,
+    end_time time(6) not null,
+    created_at timestamp(6) not null,
+    updated_at timestamp(6) not null,
+    primary key (id),
+    constraint fk_booking_room foreign key (room_id) references room (id)
+);
@@ -0,0 +1,2 @@
+-- covers the overlap check and the day schedule: equality on room and date, range on the times
+create index idx_booking_room_date_time on booking (room_id, date, start_time, end_time);
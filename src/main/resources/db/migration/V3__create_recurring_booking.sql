@@ -0,0 +1,18 @@
+create table recurring_booking (
+    id bigint generated by default as identity,
+    room_id bigint not null,
+    employee_email varchar(255) not null,
+    frequency varchar(255) not null,
+    start_date date not null,
+    end_date date not null,
+    start_time time(6) not null,
+    end_time time(6) not null,
+    created_at timestamp(6) not null,
+    updated_at timestamp(6) not null,
+    primary key (id),
+    constraint fk_recurring_booking_room foreign key (room_id) references room (id),
+    constraint ck_recurring_booking_frequency check (frequency in ('DAILY', 'WEEKLY'))
+);
+
+-- recurrences of a room active on a date: equality on room, ranges on the dates
+create index idx_recurring_booking_room_dates on recurring_booking (room_id, start_date, end_date);
@@ -0,0 +1,17 @@
+-- bookings older than the archive horizon, moved out of the live table by BookingArchiver;
+-- no foreign key and a copy of the room name, so rooms can still be renamed or deleted later
+create table booking_archive (
+    id bigint not null,
+    room_id bigint not null,
+    room_name varchar(255) not null,
+    employee_email varchar(255) not null,
+    date date not null,
+    start_time time(6) not null,
+    end_time time(6) not null,
+    created_at timestamp(6) not null,
+    updated_at timestamp(6) not null,
+    archived_at timestamp(6) not null,
+    primary key (id)
+);
+
+create index idx_booking_archive_room_date on booking_archive (room_id, date, start_time);
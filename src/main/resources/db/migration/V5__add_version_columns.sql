@@ -0,0 +1,5 @@
+-- optimistic locking: hibernate bumps the version on every update and fails updates made from a stale read
+alter table room add column version bigint default 0 not null;
+alter table booking add column version bigint default 0 not null;
+-- archived bookings keep the version they had when they were archived
+alter table booking_archive add column version bigint default 0 not null;
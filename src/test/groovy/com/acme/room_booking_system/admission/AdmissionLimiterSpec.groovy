@@ -0,0 +1,170 @@
+package com.acme.room_booking_system.admission
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import jakarta.servlet.FilterChain
+import org.springframework.mock.web.MockHttpServletRequest
+import org.springframework.mock.web.MockHttpServletResponse
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.TimeUnit
+
+import static com.acme.room_booking_system.admission.AdmissionLimiter.Priority.READ
+import static com.acme.room_booking_system.admission.AdmissionLimiter.Priority.WRITE
+import static com.acme.room_booking_system.admission.AdmissionLimiter.Rejection.CLIENT
+import static com.acme.room_booking_system.admission.AdmissionLimiter.Rejection.GLOBAL
+
+class AdmissionLimiterSpec extends Specification {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+
+    def "Reject requests over the limit until one of them completed"() {
+        given: "A fixed limit of four"
+        def limiter = limiter(4, 1.0, 1.0)
+
+        when: "Four requests are in flight"
+        def admitted = (1..4).collect { limiter.tryAcquire(null, READ) }
+
+        then: "A fifth is turned away"
+        admitted.every { it.admitted }
+        limiter.tryAcquire(null, READ).rejection == GLOBAL
+        rejections("read", "global") == 1
+
+        when: "One completes"
+        admitted[0].release()
+
+        then: "The next one is let in"
+        limiter.tryAcquire(null, READ).admitted
+    }
+
+    def "Keep a share of the limit for reads"() {
+        given: "Writes may use half of a limit of four"
+        def limiter = limiter(4, 0.5, 1.0)
+
+        when:
+        def writes = (1..3).collect { limiter.tryAcquire(null, WRITE) }
+
+        then: "The third write is rejected"
+        writes*.admitted == [true, true, false]
+        rejections("write", "global") == 1
+
+        and: "Reads still get the rest"
+        (1..2).every { limiter.tryAcquire(null, READ).admitted }
+        !limiter.tryAcquire(null, READ).admitted
+    }
+
+    def "Limit a client to its share of the limit while other clients compete"() {
+        given: "A client may hold half of a limit of four, another one has a request in flight"
+        def limiter = limiter(4, 1.0, 0.5)
+        limiter.tryAcquire("bob", READ)
+
+        when:
+        def requests = (1..3).collect { limiter.tryAcquire("alice", READ) }
+
+        then: "Its third request is rejected while the other client is let in"
+        requests*.admitted == [true, true, false]
+        requests[2].rejection == CLIENT
+        limiter.tryAcquire("bob", READ).admitted
+
+        when: "One of its requests completes"
+        requests[0].release()
+
+        then:
+        limiter.tryAcquire("alice", READ).admitted
+    }
+
+    def "Let a client alone use the whole limit"() {
+        given: "Every caller authenticates as the same user"
+        def limiter = limiter(4, 1.0, 0.5)
+
+        expect: "It is only held back by the limit itself"
+        (1..4).every { limiter.tryAcquire("test", READ).admitted }
+        limiter.tryAcquire("test", READ).rejection == GLOBAL
+    }
+
+    def "Grow the limit while the latency holds and shrink it once the latency rises"() {
+        given:
+        def limit = new GradientLimit(10, 2, 100, 1.5, 0.2)
+
+        when: "Requests keep the limit busy at a steady latency"
+        50.times { limit.onSample(millis(10), limit.get()) }
+        def grown = limit.get()
+
+        then:
+        grown > 10
+
+        when: "They become ten times slower"
+        50.times { limit.onSample(millis(100), limit.get()) }
+
+        then: "The limit drops well below where it was"
+        limit.get() < grown / 2
+    }
+
+    def "Keep the limit while it is far from used"() {
+        given:
+        def limit = new GradientLimit(10, 2, 100, 1.5, 0.2)
+
+        when: "Single requests come in, fast or slow"
+        50.times { limit.onSample(millis(10), 1) }
+        50.times { limit.onSample(millis(100), 1) }
+
+        then:
+        limit.get() == 10
+    }
+
+    def "Answer a rejected request with 429 and Retry-After without running it"() {
+        given: "A limit of one that is in use"
+        def limiter = limiter(1, 1.0, 1.0)
+        limiter.tryAcquire(null, READ)
+        def filter = new AdmissionFilter(limiter, new ObjectMapper().registerModule(new JavaTimeModule()), Duration.ofSeconds(2))
+        FilterChain chain = Mock()
+        def response = new MockHttpServletResponse()
+
+        when:
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/rooms"), response, chain)
+
+        then:
+        0 * chain.doFilter(_, _)
+        response.status == 429
+        response.getHeader("Retry-After") == "2"
+        response.contentAsString.contains("concurrency limit")
+
+        when: "A request outside the api arrives"
+        filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), new MockHttpServletResponse(), chain)
+
+        then: "It is not limited"
+        1 * chain.doFilter(_, _)
+    }
+
+    def "Leave requests that went async out of the latency samples"() {
+        given: "A request that hands its response to a stream"
+        def limiter = limiter(4, 1.0, 1.0)
+        def filter = new AdmissionFilter(limiter, new ObjectMapper(), Duration.ofSeconds(1))
+        def request = new MockHttpServletRequest("GET", "/api/bookings/events")
+        request.asyncSupported = true
+        FilterChain chain = Mock() {
+            doFilter(_, _) >> { request.startAsync() }
+        }
+
+        when:
+        filter.doFilter(request, new MockHttpServletResponse(), chain)
+
+        then: "Its permit is returned without a latency sample"
+        meterRegistry.get("booking.admission.inflight").gauge().value() == 0
+        meterRegistry.get("booking.admission.latency").tag("window", "short").gauge().value() == 0
+    }
+
+    private AdmissionLimiter limiter(int limit, double writeShare, double clientShare) {
+        new AdmissionLimiter(meterRegistry, limit, limit, limit, 1.5, 0.2, writeShare, clientShare)
+    }
+
+    private double rejections(String priority, String limit) {
+        meterRegistry.get("booking.admission.rejections").tag("priority", priority).tag("limit", limit).counter().count()
+    }
+
+    private static long millis(long value) {
+        TimeUnit.MILLISECONDS.toNanos(value)
+    }
+}
@@ -0,0 +1,126 @@
+package com.acme.room_booking_system.archive
+
+import com.acme.room_booking_system.cache.DayScheduleCache
+import com.acme.room_booking_system.exception.RoomDeletionException
+import com.acme.room_booking_system.model.dto.RoomRequest
+import com.acme.room_booking_system.model.entity.Booking
+import com.acme.room_booking_system.repository.ArchivedBookingRepository
+import com.acme.room_booking_system.repository.BookingRepository
+import com.acme.room_booking_system.repository.RoomRepository
+import com.acme.room_booking_system.service.BookingService
+import com.acme.room_booking_system.service.RoomService
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import spock.lang.Specification
+
+import java.time.LocalDate
+import java.time.LocalTime
+
+@SpringBootTest(properties = ["booking.archive.horizon-days=90", "booking.archive.batch-size=2"])
+class BookingArchiverSpec extends Specification {
+
+    @Autowired
+    BookingArchiver bookingArchiver
+
+    @Autowired
+    BookingService bookingService
+
+    @Autowired
+    RoomService roomService
+
+    @Autowired
+    BookingRepository bookingRepository
+
+    @Autowired
+    ArchivedBookingRepository archivedBookingRepository
+
+    @Autowired
+    RoomRepository roomRepository
+
+    @Autowired
+    DayScheduleCache dayScheduleCache
+
+    def old = LocalDate.now().minusDays(200)
+    def recent = LocalDate.now().minusDays(10)
+
+    def setup() {
+        roomService.createRoom(new RoomRequest("Archive Room"))
+    }
+
+    def cleanup() {
+        archivedBookingRepository.deleteAll()
+        dayScheduleCache.evictRoom(roomRepository.findByName("Archive Room").orElseThrow().id)
+        bookingRepository.deleteAll()
+        roomRepository.findAll().each { roomService.deleteRoom(it.id) }
+    }
+
+    def "Move old bookings to the archive in batches and keep recent ones live"() {
+        given: "Five old bookings and one recent booking"
+        (8..12).each { save(old, it) }
+        save(recent, 9)
+
+        when: "The archiver runs with a batch size of two"
+        def archived = bookingArchiver.archive()
+
+        then: "All old bookings moved over three batches"
+        archived == 5
+        archivedBookingRepository.count() == 5
+
+        and: "Only the recent booking is left in the live table"
+        bookingRepository.findAll()*.date == [recent]
+
+        and: "A second run has nothing left to do"
+        bookingArchiver.archive() == 0
+    }
+
+    def "Serve archived bookings in the schedule of a past day"() {
+        given: "An archived booking and a later live booking on the same past day"
+        save(old, 8)
+        bookingArchiver.archive()
+        save(old, 10)
+
+        when: "The schedule of the day is read"
+        def bookings = bookingService.getBookingsByRoomAndDate("Archive Room", old)
+
+        then: "Both bookings are returned in start order"
+        bookings*.startTime == [LocalTime.of(8, 0), LocalTime.of(10, 0)]
+    }
+
+    def "Archived bookings block deleting their room"() {
+        given: "An archived booking"
+        save(old, 8)
+        bookingArchiver.archive()
+
+        when: "The room is deleted"
+        roomService.deleteRoom(roomRepository.findByName("Archive Room").orElseThrow().id)
+
+        then: "The room stays with the archive that points at it"
+        thrown(RoomDeletionException)
+        roomRepository.count() == 1
+    }
+
+    def "Evict the cached schedules of the archived days and serve them in the live shape"() {
+        given: "A past day whose schedule is cached"
+        save(old, 8)
+        def roomId = roomRepository.findByName("Archive Room").orElseThrow().id
+        def live = bookingService.getBookingsByRoomAndDate("Archive Room", old)
+        bookingService.getCachedBookingsByRoomAndDate("Archive Room", old)
+
+        when: "Its booking is archived"
+        bookingArchiver.archive()
+        def reloaded = false
+        dayScheduleCache.get(roomId, old, { reloaded = true; [] })
+
+        then: "The cached schedule is gone"
+        reloaded
+
+        and: "The archived booking keeps its id and version"
+        bookingService.getBookingsByRoomAndDate("Archive Room", old) == live
+    }
+
+    private void save(LocalDate date, int hour) {
+        def room = roomRepository.findByName("Archive Room").orElseThrow()
+        bookingRepository.save(new Booking(room: room, employeeEmail: "archive@acme.com", date: date,
+                startTime: LocalTime.of(hour, 0), endTime: LocalTime.of(hour + 1, 0)))
+    }
+}
@@ -0,0 +1,77 @@
+package com.acme.room_booking_system.controller
+
+import com.acme.room_booking_system.admission.AdmissionLimiter
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.boot.test.web.server.LocalServerPort
+import spock.lang.Specification
+
+import java.net.http.HttpClient
+import java.net.http.HttpRequest
+import java.net.http.HttpResponse
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+
+//many more concurrent clients than the limit admits, over http through the whole filter chain like the load benchmark
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = ["booking.admission.initial-limit=4", "booking.admission.min-limit=4", "booking.admission.max-limit=4"])
+class AdmissionControlSpec extends Specification {
+
+    @LocalServerPort
+    int port
+
+    @Autowired
+    AdmissionLimiter admissionLimiter
+
+    HttpClient client = HttpClient.newHttpClient()
+
+    def "Answer requests over the limit with 429 and Retry-After and admit them again once permits are free"() {
+        given: "Every permit is held"
+        def held = (1..4).collect { admissionLimiter.tryAcquire(null, AdmissionLimiter.Priority.READ) }
+
+        when:
+        def rejected = get("/api/bookings?limit=10")
+
+        then:
+        rejected.statusCode() == 429
+        rejected.headers().firstValue("Retry-After").isPresent()
+        rejected.body().contains("concurrency limit")
+
+        when: "The permits are released"
+        held*.release()
+
+        then:
+        get("/api/bookings?limit=10").statusCode() == 200
+    }
+
+    def "Either serve or shed every request of a burst far over the limit"() {
+        given: "A hundred clients starting at once"
+        def start = new CountDownLatch(1)
+        def executor = Executors.newVirtualThreadPerTaskExecutor()
+
+        when:
+        def futures = (1..100).collect { i ->
+            executor.submit({
+                start.await()
+                get(i % 2 == 0 ? "/api/bookings?limit=10" : "/api/rooms")
+            } as Callable<HttpResponse<String>>)
+        }
+        start.countDown()
+        def responses = futures*.get()
+        executor.close()
+
+        then: "Nothing fails, the shed requests say when to retry"
+        responses.every { it.statusCode() in [200, 429] }
+        responses.findAll { it.statusCode() == 429 }.every { it.headers().firstValue("Retry-After").isPresent() }
+    }
+
+    private HttpResponse<String> get(String path) {
+        def authorization = "Basic " + Base64.encoder.encodeToString("test:test".getBytes(StandardCharsets.UTF_8))
+        client.send(HttpRequest.newBuilder(URI.create("http://localhost:${port}${path}"))
+                .header("Authorization", authorization)
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString())
+    }
+}
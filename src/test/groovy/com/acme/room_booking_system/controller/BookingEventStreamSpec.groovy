@@ -0,0 +1,101 @@
+package com.acme.room_booking_system.controller
+
+import com.acme.room_booking_system.event.BookingEventBus
+import com.acme.room_booking_system.model.dto.BookingRequest
+import com.acme.room_booking_system.model.dto.RoomRequest
+import com.acme.room_booking_system.repository.BookingRepository
+import com.acme.room_booking_system.repository.RoomRepository
+import com.acme.room_booking_system.service.BookingService
+import com.acme.room_booking_system.service.RoomService
+import jakarta.servlet.AsyncEvent
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.test.web.servlet.MockMvc
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.time.LocalDate
+import java.time.LocalTime
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class BookingEventStreamSpec extends Specification {
+
+    @Autowired
+    MockMvc mockMvc
+
+    @Autowired
+    BookingService bookingService
+
+    @Autowired
+    RoomService roomService
+
+    @Autowired
+    BookingEventBus bookingEventBus
+
+    @Autowired
+    BookingRepository bookingRepository
+
+    @Autowired
+    RoomRepository roomRepository
+
+    def date = LocalDate.now().plusDays(1)
+    def conditions = new PollingConditions(timeout: 5)
+
+    def cleanup() {
+        bookingRepository.deleteAll()
+        roomRepository.findAll().each { roomService.deleteRoom(it.id) }
+    }
+
+    def "Stream only the changes of the subscribed room and date"() {
+        given: "Two rooms and a subscriber of the first room on the date"
+        roomService.createRoom(new RoomRequest("Stream Room"))
+        roomService.createRoom(new RoomRequest("Other Room"))
+        def subscribers = bookingEventBus.subscriberCount()
+        def response = mockMvc.perform(get("/api/bookings/stream")
+                .param("roomName", "Stream Room")
+                .param("date", date.toString())
+                .with(httpBasic("test", "test")))
+                .andReturn().response
+        conditions.eventually { assert bookingEventBus.subscriberCount() == subscribers + 1 }
+
+        when: "Bookings change in both rooms and on other dates"
+        def booking = bookingService.createBooking(request("Stream Room", date, 9, 10))
+        bookingService.createBooking(request("Other Room", date, 9, 10))
+        bookingService.createBooking(request("Stream Room", date.plusDays(1), 9, 10))
+        bookingService.cancelBooking(booking.id)
+
+        then: "The subscriber receives the creation and the cancellation of its room-day only"
+        conditions.eventually {
+            def content = response.contentAsString
+            assert content.contains("event:BOOKING_CREATED")
+            assert content.contains("event:BOOKING_CANCELED")
+            assert !content.contains("Other Room")
+            assert !content.contains(date.plusDays(1).toString())
+        }
+    }
+
+    def "Close a timed out stream without an error"() {
+        given: "An open stream"
+        def subscribers = bookingEventBus.subscriberCount()
+        def result = mockMvc.perform(get("/api/bookings/stream").with(httpBasic("test", "test"))).andReturn()
+        conditions.eventually { assert bookingEventBus.subscriberCount() == subscribers + 1 }
+
+        when: "The container times it out"
+        def asyncContext = result.request.asyncContext
+        asyncContext.listeners.each { it.onTimeout(new AsyncEvent(asyncContext)) }
+
+        then: "The stream ends normally and the subscriber is gone"
+        mockMvc.perform(asyncDispatch(result)).andReturn().response.status == 200
+        bookingEventBus.subscriberCount() == subscribers
+    }
+
+    private BookingRequest request(String roomName, LocalDate date, int startHour, int endHour) {
+        new BookingRequest(roomName, "employee@acme.com", date, LocalTime.of(startHour, 0), LocalTime.of(endHour, 0))
+    }
+}
@@ -0,0 +1,105 @@
+package com.acme.room_booking_system.controller
+
+import com.acme.room_booking_system.model.dto.BookingRequest
+import com.acme.room_booking_system.model.dto.RoomRequest
+import com.acme.room_booking_system.repository.BookingRepository
+import com.acme.room_booking_system.repository.RoomRepository
+import com.acme.room_booking_system.service.BookingService
+import com.acme.room_booking_system.service.RoomService
+import jakarta.persistence.EntityManagerFactory
+import org.hibernate.SessionFactory
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.test.web.servlet.MockMvc
+import spock.lang.Specification
+
+import java.time.LocalDate
+import java.time.LocalTime
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class BookingScheduleEtagSpec extends Specification {
+
+    @Autowired
+    MockMvc mockMvc
+
+    @Autowired
+    BookingService bookingService
+
+    @Autowired
+    RoomService roomService
+
+    @Autowired
+    BookingRepository bookingRepository
+
+    @Autowired
+    RoomRepository roomRepository
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory
+
+    def date = LocalDate.now().plusDays(1)
+
+    def cleanup() {
+        bookingRepository.deleteAll()
+        //delete rooms through the service so they are evicted from the room cache
+        roomRepository.findAll().each { roomService.deleteRoom(it.id) }
+    }
+
+    def "Answer unchanged schedules with 304 until a booking changes"() {
+        given: "A room with a booking"
+        roomService.createRoom(new RoomRequest("Lobby Room"))
+        def booking = bookingService.createBooking(request(9, 10))
+
+        when: "The schedule is read"
+        def first = schedule(null)
+
+        then: "It is returned with an etag"
+        first.status == 200
+        first.getHeader("ETag") != null
+        first.contentAsString.contains("09:00")
+
+        when: "It is read again with the etag"
+        def statistics = entityManagerFactory.unwrap(SessionFactory).statistics
+        statistics.clear()
+        def second = schedule(first.getHeader("ETag"))
+
+        then: "Nothing changed and nothing was queried"
+        second.status == 304
+        second.contentAsByteArray.length == 0
+        statistics.prepareStatementCount == 0
+
+        when: "Another booking is created and the schedule is read with the old etag"
+        bookingService.createBooking(request(11, 12))
+        def third = schedule(first.getHeader("ETag"))
+
+        then: "The new schedule is returned with a new etag"
+        third.status == 200
+        third.getHeader("ETag") != first.getHeader("ETag")
+        third.contentAsString.contains("11:00")
+
+        when: "A booking is cancelled and the schedule is read with the latest etag"
+        bookingService.cancelBooking(booking.id)
+        def fourth = schedule(third.getHeader("ETag"))
+
+        then: "The cancelled booking is gone"
+        fourth.status == 200
+        !fourth.contentAsString.contains("09:00")
+    }
+
+    private def schedule(String etag) {
+        def request = get("/api/bookings/Lobby Room").param("date", date.toString()).with(httpBasic("test", "test"))
+        if (etag != null) {
+            request.header("If-None-Match", etag)
+        }
+        mockMvc.perform(request).andReturn().response
+    }
+
+    private BookingRequest request(int startHour, int endHour) {
+        new BookingRequest("Lobby Room", "employee@acme.com", date, LocalTime.of(startHour, 0), LocalTime.of(endHour, 0))
+    }
+}
@@ -0,0 +1,51 @@
+package com.acme.room_booking_system.exception
+
+import org.springframework.http.HttpStatus
+import spock.lang.Specification
+
+import java.time.Duration
+
+class DomainExceptionSpec extends Specification {
+
+    def "Business rejections carry no stack trace and map to their own status"() {
+        expect:
+        exception.stackTrace.length == 0
+        exception.status == status
+
+        where:
+        exception                                            || status
+        new BadRequestException("bad")                       || HttpStatus.BAD_REQUEST
+        new BookingOverlapException("overlap")               || HttpStatus.CONFLICT
+        new InvalidBookingDurationException("duration")      || HttpStatus.UNPROCESSABLE_ENTITY
+        new BookingCancellationException("past")             || HttpStatus.CONFLICT
+        new RoomAlreadyExistsException("taken")              || HttpStatus.CONFLICT
+        new RoomDeletionException("in use")                  || HttpStatus.CONFLICT
+        new IdempotencyKeyReusedException("reused")          || HttpStatus.UNPROCESSABLE_ENTITY
+        new PreconditionFailedException("stale")             || HttpStatus.PRECONDITION_FAILED
+        new NotFoundException("missing")                     || HttpStatus.NOT_FOUND
+    }
+
+    def "Log one rejection per kind and interval and count the ones left out"() {
+        given:
+        def limiter = new RejectionLogLimiter(Duration.ofHours(1))
+
+        expect: "The first rejection of each kind is logged"
+        limiter.tryAcquire("BookingOverlapException") == 0
+        limiter.tryAcquire("InvalidBookingDurationException") == 0
+
+        and: "Further rejections within the interval are left out"
+        limiter.tryAcquire("BookingOverlapException") == -1
+        limiter.tryAcquire("BookingOverlapException") == -1
+    }
+
+    def "Report the rejections left out once the interval has passed"() {
+        given:
+        def limiter = new RejectionLogLimiter(Duration.ZERO)
+
+        when: "Rejections follow each other with no interval"
+        def results = (1..3).collect { limiter.tryAcquire("BookingOverlapException") }
+
+        then: "Every one is logged with nothing left out"
+        results == [0L, 0L, 0L]
+    }
+}
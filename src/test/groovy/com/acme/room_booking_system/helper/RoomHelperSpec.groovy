@@ -0,0 +1,101 @@
+package com.acme.room_booking_system.helper
+
+import com.acme.room_booking_system.exception.NotFoundException
+import com.acme.room_booking_system.exception.RoomAlreadyExistsException
+import com.acme.room_booking_system.model.entity.Room
+import com.acme.room_booking_system.repository.RoomRepository
+import com.acme.room_booking_system.sharding.ShardRouter
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.dao.DataIntegrityViolationException
+import spock.lang.Specification
+
+import java.time.Duration
+
+class RoomHelperSpec extends Specification {
+
+    RoomHelper roomHelper
+    RoomRepository roomRepository = Mock()
+    ShardRouter shardRouter = Mock()
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+
+    def room = new Room(id: 1L, name: "Room A")
+
+    def setup() {
+        roomHelper = new RoomHelper(roomRepository, shardRouter, meterRegistry, 100, Duration.ofMinutes(10))
+    }
+
+    def "Look up a room name only once"() {
+        when: "The same room is resolved twice"
+        def first = roomHelper.findRoomByName("Room A")
+        def second = roomHelper.findRoomByName("Room A")
+
+        then: "The repository is queried once and the second lookup is a cache hit"
+        1 * roomRepository.findByName("Room A") >> Optional.of(room)
+        first.is(room)
+        second.is(room)
+        meterRegistry.get("cache.gets").tag("cache", "rooms").tag("result", "hit").functionCounter().count() == 1
+        meterRegistry.get("cache.gets").tag("cache", "rooms").tag("result", "miss").functionCounter().count() == 1
+        meterRegistry.get("room.lookup").timer().count() == 2
+    }
+
+    def "Do not cache unknown room names"() {
+        when: "An unknown room is resolved"
+        roomHelper.findRoomByName("Room X")
+
+        then: "An exception is thrown"
+        1 * roomRepository.findByName("Room X") >> Optional.empty()
+        thrown(NotFoundException)
+
+        when: "The room is created and resolved again"
+        def found = roomHelper.findRoomByName("Room X")
+
+        then: "The repository is asked again"
+        1 * roomRepository.findByName("Room X") >> Optional.of(new Room(id: 2L, name: "Room X"))
+        found.id == 2L
+    }
+
+    def "Query only the room names missing from the cache"() {
+        given: "A cached room"
+        roomHelper.cacheRoom(room)
+
+        when: "Several rooms are resolved"
+        def rooms = roomHelper.findRoomsByNames(["Room A", "Room B", "Room C"])
+
+        then: "Only the uncached names are queried and unknown names are left out"
+        1 * roomRepository.findByNameIn({ it as Set == ["Room B", "Room C"] as Set }) >> [new Room(id: 2L, name: "Room B")]
+        rooms.keySet() == ["Room A", "Room B"] as Set
+    }
+
+    def "Reject cached room names without a query"() {
+        given: "A cached room"
+        roomHelper.cacheRoom(room)
+
+        when: "The name uniqueness is checked"
+        roomHelper.checkRoomNameUniqueness("Room A")
+
+        then: "The name is rejected"
+        thrown(RoomAlreadyExistsException)
+        0 * roomRepository._
+    }
+
+    def "Translate a unique name violation into a room conflict"() {
+        when: "Saving the room hits the unique name constraint"
+        roomHelper.saveRoom("Room A", { throw new DataIntegrityViolationException("duplicate") })
+
+        then: "The room already exists"
+        def e = thrown(RoomAlreadyExistsException)
+        e.message == "Room with name Room A already exists."
+    }
+
+    def "Evicted rooms are looked up again"() {
+        given: "A cached room"
+        roomHelper.cacheRoom(room)
+
+        when: "The room is evicted and resolved"
+        roomHelper.evictRoom("Room A")
+        roomHelper.findRoomByName("Room A")
+
+        then: "The repository is queried"
+        1 * roomRepository.findByName("Room A") >> Optional.of(room)
+    }
+}
@@ -0,0 +1,155 @@
+package com.acme.room_booking_system.idempotency
+
+import com.acme.room_booking_system.exception.BadRequestException
+import com.acme.room_booking_system.exception.BookingOverlapException
+import com.acme.room_booking_system.exception.IdempotencyKeyReusedException
+import com.acme.room_booking_system.model.dto.BookingRequest
+import com.acme.room_booking_system.model.dto.BookingResponse
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Specification
+
+import java.time.Duration
+import java.time.LocalDate
+import java.time.LocalTime
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.Supplier
+
+class IdempotencyStoreSpec extends Specification {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+    IdempotencyStore store = new IdempotencyStore(new ObjectMapper().registerModule(new JavaTimeModule()),
+            meterRegistry, 100, Duration.ofHours(1))
+
+    def request = new BookingRequest("Room", "employee@acme.com", LocalDate.now().plusDays(1), LocalTime.of(10, 0), LocalTime.of(11, 0))
+    def response = new BookingResponse(1L, "Room", "employee@acme.com", request.date, request.startTime, request.endTime)
+
+    def "Run a retry with the same key only once"() {
+        given:
+        Supplier<BookingResponse> call = Mock()
+
+        when: "The same request is sent twice with one key"
+        def first = store.execute("key-1", "create-booking", request, call)
+        def second = store.execute("key-1", "create-booking", request, call)
+
+        then: "The call runs once and the retry gets the stored response"
+        1 * call.get() >> response
+        !first.replayed()
+        second.replayed()
+        second.body().is(response)
+        meterRegistry.get("booking.idempotency.replays").counter().count() == 1
+    }
+
+    def "Run every call without a key"() {
+        given:
+        Supplier<BookingResponse> call = Mock()
+
+        when:
+        store.execute(null, "create-booking", request, call)
+        store.execute(null, "create-booking", request, call)
+
+        then:
+        2 * call.get() >> response
+    }
+
+    def "Reject a key reused for a different request"() {
+        given: "A stored call"
+        store.execute("key-1", "create-booking", request, { response })
+
+        when: "The key is sent with another request"
+        store.execute("key-1", "create-booking", new BookingRequest("Room", "employee@acme.com", request.date,
+                LocalTime.of(12, 0), LocalTime.of(13, 0)), { response })
+
+        then:
+        thrown(IdempotencyKeyReusedException)
+    }
+
+    def "Reject a key reused for the same update under another precondition"() {
+        given: "An update stored under If-Match version 1"
+        store.execute("key-1", "update-booking-1", request, 1L, { response })
+
+        when: "The key is sent with the same body but If-Match version 2"
+        store.execute("key-1", "update-booking-1", request, 2L, { response })
+
+        then:
+        thrown(IdempotencyKeyReusedException)
+
+        when: "The key is sent with the same body and no If-Match"
+        store.execute("key-1", "update-booking-1", request, { response })
+
+        then:
+        thrown(IdempotencyKeyReusedException)
+
+        when: "The retry carries the original precondition"
+        def retried = store.execute("key-1", "update-booking-1", request, 1L, { response })
+
+        then:
+        retried.replayed()
+    }
+
+    def "Do not store failed calls"() {
+        given:
+        Supplier<BookingResponse> call = Mock()
+
+        when: "The first call fails"
+        store.execute("key-1", "create-booking", request, call)
+
+        then:
+        1 * call.get() >> { throw new BookingOverlapException("Booking time overlaps with another booking.") }
+        thrown(BookingOverlapException)
+
+        when: "It is retried with the same key"
+        def retry = store.execute("key-1", "create-booking", request, call)
+
+        then: "The call runs again"
+        1 * call.get() >> response
+        !retry.replayed()
+    }
+
+    def "Reject keys that are blank or too long"() {
+        when:
+        store.execute(key, "create-booking", request, { response })
+
+        then:
+        thrown(BadRequestException)
+
+        where:
+        key << ["", "k" * 256]
+    }
+
+    def "Let a retry wait for the call still running with its key"() {
+        given: "A call that blocks until released"
+        def executions = new AtomicInteger()
+        def started = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def executor = Executors.newFixedThreadPool(2)
+
+        when: "A retry arrives while the first call runs"
+        def first = executor.submit({
+            store.execute("key-1", "create-booking", request, {
+                executions.incrementAndGet()
+                started.countDown()
+                release.await()
+                response
+            })
+        } as Callable)
+        started.await()
+        def retry = executor.submit({
+            store.execute("key-1", "create-booking", request, { executions.incrementAndGet(); response })
+        } as Callable)
+        release.countDown()
+
+        then: "Both get the response of a single execution"
+        !first.get(5, TimeUnit.SECONDS).replayed()
+        retry.get(5, TimeUnit.SECONDS).replayed()
+        executions.get() == 1
+
+        cleanup:
+        executor.shutdownNow()
+    }
+}
@@ -0,0 +1,170 @@
+package com.acme.room_booking_system.index
+
+import com.acme.room_booking_system.model.entity.Booking
+import com.acme.room_booking_system.model.entity.Room
+import com.acme.room_booking_system.repository.BookingRepository
+import org.springframework.data.domain.Limit
+import spock.lang.Specification
+
+import java.time.LocalDate
+import java.time.LocalTime
+import java.util.function.ToLongFunction
+
+class BookingIntervalIndexSpec extends Specification {
+
+    BookingIntervalIndex bookingIntervalIndex
+    BookingRepository bookingRepository = Mock()
+
+    def room = new Room(id: 1L, name: "Room A")
+    def date = LocalDate.now().plusDays(1)
+
+    def setup() {
+        bookingIntervalIndex = new BookingIntervalIndex(bookingRepository, new SlotOccupancy(), 2)
+    }
+
+    def "Warm up loads upcoming bookings in pages and marks the index ready"() {
+        given: "Three bookings stored in the database, read two at a time"
+        bookingRepository.findByDateGreaterThanEqualAndIdAfter(LocalDate.now(), 0L, Limit.of(2)) >> [booking(1L, 10, 12), booking(2L, 13, 14)]
+        bookingRepository.findByDateGreaterThanEqualAndIdAfter(LocalDate.now(), 2L, Limit.of(2)) >> [booking(3L, 15, 16)]
+
+        when: "The index is warmed up"
+        bookingIntervalIndex.warmUp()
+
+        then: "Every page is indexed"
+        bookingIntervalIndex.isReady()
+        bookingIntervalIndex.overlaps(room.id, date, LocalTime.of(11, 0), LocalTime.of(13, 0), null)
+        bookingIntervalIndex.overlaps(room.id, date, LocalTime.of(15, 30), LocalTime.of(17, 0), null)
+    }
+
+    def "Warm up skips bookings cancelled after their page was read"() {
+        given: "A page read before the booking is cancelled"
+        def cancelled = booking(1L, 10, 12)
+        bookingRepository.findByDateGreaterThanEqualAndIdAfter(LocalDate.now(), 0L, Limit.of(2)) >> {
+            bookingIntervalIndex.remove(cancelled)
+            [cancelled]
+        }
+
+        when: "The index is warmed up"
+        bookingIntervalIndex.warmUp()
+
+        then: "The cancelled booking is not indexed"
+        !bookingIntervalIndex.overlaps(room.id, date, LocalTime.of(10, 0), LocalTime.of(12, 0), null)
+    }
+
+    def "Cover the days from today once warmed up"() {
+        given: "No bookings in the database"
+        bookingRepository.findByDateGreaterThanEqualAndIdAfter(*_) >> []
+
+        when: "The index is warmed up"
+        bookingIntervalIndex.warmUp()
+
+        then: "Only today and later days are answered by the index"
+        bookingIntervalIndex.covers(LocalDate.now())
+        bookingIntervalIndex.covers(date)
+        !bookingIntervalIndex.covers(LocalDate.now().minusDays(1))
+    }
+
+    def "Evict room-days that have passed"() {
+        given: "A booking of yesterday and one of tomorrow"
+        def yesterday = LocalDate.now().minusDays(1)
+        bookingIntervalIndex.add(new Booking(id: 1L, room: room, date: yesterday, startTime: LocalTime.of(9, 0), endTime: LocalTime.of(10, 0)))
+        bookingIntervalIndex.add(booking(2L, 9, 10))
+
+        when: "Past days are evicted"
+        bookingIntervalIndex.evictPastDays()
+
+        then: "Only the upcoming day is kept"
+        bookingIntervalIndex.occupiedHours(room.id, yesterday) == 0L
+        !bookingIntervalIndex.overlaps(room.id, yesterday, LocalTime.of(9, 0), LocalTime.of(10, 0), null)
+        bookingIntervalIndex.occupiedHours(room.id, date) != 0L
+    }
+
+    def "Detect overlaps against indexed bookings"() {
+        given: "Two bookings of the room"
+        bookingIntervalIndex.add(booking(1L, 9, 10))
+        bookingIntervalIndex.add(booking(2L, 12, 14))
+
+        expect: "Only intersecting intervals overlap"
+        bookingIntervalIndex.overlaps(room.id, date, LocalTime.of(start, 0), LocalTime.of(end, 0), null) == overlaps
+
+        where:
+        start | end || overlaps
+        8     | 9   || false
+        8     | 10  || true
+        10    | 12  || false
+        11    | 13  || true
+        13    | 14  || true
+        14    | 15  || false
+    }
+
+    def "Compare exact intervals when bookings do not start on the hour"() {
+        given: "A booking from 10:30 to 11:30"
+        bookingIntervalIndex.add(new Booking(id: 1L, room: room, date: date, startTime: LocalTime.of(10, 30), endTime: LocalTime.of(11, 30)))
+
+        expect: "Requests sharing only part of an hour are checked precisely"
+        bookingIntervalIndex.overlaps(room.id, date, LocalTime.parse(start), LocalTime.parse(end), null) == overlaps
+
+        where:
+        start   | end     || overlaps
+        "09:30" | "10:30" || false
+        "10:00" | "11:00" || true
+        "11:30" | "12:30" || false
+        "11:00" | "12:00" || true
+        "09:00" | "10:00" || false
+    }
+
+    def "Ignore the excluded booking when updating"() {
+        given: "Two adjacent bookings of the room"
+        bookingIntervalIndex.add(booking(1L, 9, 10))
+        bookingIntervalIndex.add(booking(2L, 10, 11))
+
+        expect: "The excluded booking does not count as an overlap"
+        !bookingIntervalIndex.overlaps(room.id, date, LocalTime.of(10, 0), LocalTime.of(11, 0), 2L)
+        bookingIntervalIndex.overlaps(room.id, date, LocalTime.of(9, 0), LocalTime.of(11, 0), 2L)
+    }
+
+    def "Keep the index current when bookings are moved and removed"() {
+        given: "An indexed booking"
+        def booking = booking(1L, 9, 10)
+        bookingIntervalIndex.add(booking)
+
+        when: "The booking is moved to a later time"
+        booking.startTime = LocalTime.of(15, 0)
+        booking.endTime = LocalTime.of(16, 0)
+        bookingIntervalIndex.move(booking, booking.getRoom().getId(), date, LocalTime.of(9, 0))
+
+        then: "Only the new time is occupied"
+        !bookingIntervalIndex.overlaps(room.id, date, LocalTime.of(9, 0), LocalTime.of(10, 0), null)
+        bookingIntervalIndex.overlaps(room.id, date, LocalTime.of(15, 0), LocalTime.of(16, 0), null)
+
+        when: "The booking is removed"
+        bookingIntervalIndex.remove(booking)
+
+        then: "The slot is free again"
+        !bookingIntervalIndex.overlaps(room.id, date, LocalTime.of(15, 0), LocalTime.of(16, 0), null)
+        bookingIntervalIndex.occupiedHours(room.id, date) == 0L
+    }
+
+    def "Keep only the rooms free during the window"() {
+        given: "Room 1 booked 10-12 and room 2 booked 12:30-13:00"
+        def other = new Room(id: 2L, name: "Room B")
+        bookingIntervalIndex.add(booking(1L, 10, 12))
+        bookingIntervalIndex.add(new Booking(id: 2L, room: other, date: date,
+                startTime: LocalTime.of(12, 30), endTime: LocalTime.of(13, 0)))
+
+        expect: "Rooms without bookings are always free and booked rooms only outside their intervals"
+        bookingIntervalIndex.freeRooms([1L, 2L, 3L], { it } as ToLongFunction, date,
+                LocalTime.parse(start), LocalTime.parse(end)) == free
+
+        where:
+        start   | end     || free
+        "08:00" | "10:00" || [1L, 2L, 3L]
+        "11:00" | "12:00" || [2L, 3L]
+        "12:00" | "12:30" || [1L, 2L, 3L]
+        "12:00" | "13:00" || [1L, 3L]
+    }
+
+    private Booking booking(Long id, int startHour, int endHour) {
+        new Booking(id: id, room: room, date: date, startTime: LocalTime.of(startHour, 0), endTime: LocalTime.of(endHour, 0))
+    }
+}
@@ -0,0 +1,37 @@
+package com.acme.room_booking_system.index
+
+import spock.lang.Specification
+
+import java.time.LocalDate
+import java.time.LocalTime
+
+class SlotOccupancySpec extends Specification {
+
+    def "Build hour masks for booking intervals"() {
+        expect: "Touched hours include partial hours and full hours only whole ones"
+        SlotOccupancy.touchedHours(LocalTime.parse(start), LocalTime.parse(end)) == touched
+        SlotOccupancy.fullHours(LocalTime.parse(start), LocalTime.parse(end)) == full
+
+        where:
+        start   | end     || touched    | full
+        "10:00" | "11:00" || 0x400L     | 0x400L
+        "10:00" | "12:00" || 0xC00L     | 0xC00L
+        "10:30" | "11:30" || 0xC00L     | 0L
+        "22:00" | "23:00" || 0x400000L  | 0x400000L
+    }
+
+    def "Store and clear occupancy of many room-days"() {
+        given: "An occupancy engine filled with enough room-days to resize"
+        def slotOccupancy = new SlotOccupancy()
+        def date = LocalDate.of(2030, 1, 1)
+        (1L..5000L).each { roomId -> slotOccupancy.update(roomId, date.plusDays(roomId % 7), roomId) }
+
+        when: "Every other room-day is cleared"
+        (1L..5000L).findAll { it % 2 == 0 }.each { roomId -> slotOccupancy.update(roomId, date.plusDays(roomId % 7), 0L) }
+
+        then: "Only the remaining room-days keep their masks"
+        (1L..5000L).every { roomId ->
+            slotOccupancy.occupiedHours(roomId, date.plusDays(roomId % 7)) == (roomId % 2 == 0 ? 0L : roomId)
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.acme.room_booking_system.persistence
+
+import org.flywaydb.core.Flyway
+import org.h2.jdbcx.JdbcDataSource
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.time.LocalDate
+import java.time.LocalDateTime
+import java.time.LocalTime
+
+class JournalPersistenceSpec extends Specification {
+
+    @TempDir
+    Path directory
+
+    def now = LocalDateTime.of(2024, 5, 1, 9, 30, 15, 123456000)
+    def date = LocalDate.of(2024, 6, 3)
+
+    def "Restore the snapshot and the journal written after it"() {
+        given: "A database with a room and two bookings captured in a snapshot"
+        def source = migrated("source")
+        def journal = new BookingJournal(directory, false)
+        execute(source, "insert into room (id, version, name, created_at, updated_at) values (1, 0, 'Snapshot Room', ?, ?)", now, now)
+        insertBooking(source, 10, 9)
+        insertBooking(source, 11, 10)
+        new SnapshotWriter(source, journal).snapshot()
+
+        and: "Changes after the snapshot only in the journal"
+        journal.append(room(2, 0, "Journal Room"))
+        journal.append(booking(12, 2, 0, 14))
+        journal.append(booking(10, 1, 1, 16))
+        journal.append(new JournalRecord.Delete(JournalTable.BOOKING, 11))
+        journal.close()
+
+        when: "A fresh database is restored from the directory"
+        def target = restored("target")
+
+        then: "It holds the snapshot rows with the journal applied"
+        rows(target, "select id, name from room order by id") == [[1L, "Snapshot Room"], [2L, "Journal Room"]]
+        rows(target, "select id, room_id, version, start_time from booking order by id") ==
+                [[10L, 1L, 1L, LocalTime.of(16, 0)], [12L, 2L, 0L, LocalTime.of(14, 0)]]
+        rows(target, "select created_at from room where id = 1") == [[now]]
+    }
+
+    def "Never let an older version overwrite a newer one or bring back a deleted row"() {
+        given: "Records that arrive out of commit order"
+        def journal = new BookingJournal(directory, false)
+        journal.append(room(1, 0, "Room"))
+        journal.append(booking(10, 1, 2, 12))
+        journal.append(booking(10, 1, 1, 11))
+        journal.append(new JournalRecord.Delete(JournalTable.BOOKING, 20))
+        journal.append(booking(20, 1, 0, 15))
+        journal.close()
+
+        when:
+        def target = restored("target")
+
+        then: "The newest version is kept and the deleted booking stays deleted"
+        rows(target, "select id, version, start_time from booking") == [[10L, 2L, LocalTime.of(12, 0)]]
+    }
+
+    def "Replay archive batches as a move into the archive"() {
+        given:
+        def journal = new BookingJournal(directory, false)
+        journal.append(room(1, 0, "Archive Room"))
+        journal.append(booking(10, 1, 3, 9))
+        journal.append(booking(11, 1, 0, 10))
+        journal.append(new JournalRecord.Archive([10L] as long[], now))
+        journal.close()
+
+        when:
+        def target = restored("target")
+
+        then:
+        rows(target, "select id from booking") == [[11L]]
+        rows(target, "select id, version, room_name, archived_at from booking_archive") == [[10L, 3L, "Archive Room", now]]
+    }
+
+    def "Cut off a torn record and keep appending after the last intact one"() {
+        given: "A segment whose last record was only partly written"
+        def journal = new BookingJournal(directory, false)
+        journal.append(room(1, 0, "Room"))
+        journal.close()
+        def segment = JournalFiles.segments(directory).last
+        Files.write(segment, [0, 0, 0, 40, 1, 2, 3] as byte[], StandardOpenOption.APPEND)
+
+        when: "The journal is opened again and appends"
+        def reopened = new BookingJournal(directory, false)
+        def sequence = reopened.append(room(2, 0, "Second Room"))
+        reopened.close()
+
+        then: "The new record follows the intact one and both are restored"
+        sequence == 2
+        rows(restored("target"), "select name from room order by id") == [["Room"], ["Second Room"]]
+    }
+
+    def "Continue ids above every restored and deleted row"() {
+        given:
+        def journal = new BookingJournal(directory, false)
+        journal.append(room(1, 0, "Room"))
+        journal.append(room(5, 0, "Deleted Room"))
+        journal.append(new JournalRecord.Delete(JournalTable.ROOM, 5))
+        journal.append(booking(400, 1, 0, 9))
+        journal.close()
+        def target = restored("target")
+
+        when:
+        execute(target, "insert into room (version, name, created_at, updated_at) values (0, 'New Room', ?, ?)", now, now)
+
+        then:
+        rows(target, "select id from room where name = 'New Room'") == [[6L]]
+        rows(target, "select next value for booking_seq")[0][0] > 400L
+    }
+
+    def "Snapshots replace the journal segments they cover"() {
+        given:
+        def source = migrated("source")
+        def journal = new BookingJournal(directory, false)
+        execute(source, "insert into room (id, version, name, created_at, updated_at) values (1, 0, 'Room', ?, ?)", now, now)
+        journal.append(room(1, 0, "Room"))
+
+        when: "Two snapshots are written"
+        def writer = new SnapshotWriter(source, journal)
+        writer.snapshot()
+        journal.append(room(1, 1, "Room"))
+        writer.snapshot()
+        journal.close()
+
+        then: "Only the latest snapshot and the current segment are left"
+        JournalFiles.snapshots(directory)*.fileName*.toString() == ["snapshot-00000000000000000002.bin"]
+        JournalFiles.segments(directory)*.fileName*.toString() == ["journal-00000000000000000003.log"]
+    }
+
+    private JournalRecord room(long id, long version, String name) {
+        new JournalRecord.Upsert(JournalTable.ROOM, [id, version, name, now, now] as Object[])
+    }
+
+    private JournalRecord booking(long id, long roomId, long version, int hour) {
+        new JournalRecord.Upsert(JournalTable.BOOKING, [id, roomId, version, "journal@acme.com", date,
+                                                        LocalTime.of(hour, 0), LocalTime.of(hour + 1, 0), now, now] as Object[])
+    }
+
+    private void insertBooking(JdbcDataSource dataSource, long id, int hour) {
+        execute(dataSource, "insert into booking (id, room_id, version, employee_email, date, start_time, end_time, created_at, updated_at) " +
+                "values (?, 1, 0, 'journal@acme.com', ?, ?, ?, ?, ?)", id, date, LocalTime.of(hour, 0), LocalTime.of(hour + 1, 0), now, now)
+    }
+
+    private JdbcDataSource restored(String name) {
+        def dataSource = dataSource(name)
+        new JournalStateRestorer(directory).migrate(Flyway.configure().dataSource(dataSource).load())
+        dataSource
+    }
+
+    private static JdbcDataSource migrated(String name) {
+        def dataSource = dataSource(name)
+        Flyway.configure().dataSource(dataSource).load().migrate()
+        dataSource
+    }
+
+    private static JdbcDataSource dataSource(String name) {
+        def dataSource = new JdbcDataSource()
+        dataSource.setURL("jdbc:h2:mem:journal-${name}-${UUID.randomUUID()};DB_CLOSE_DELAY=-1")
+        dataSource.setUser("sa")
+        dataSource
+    }
+
+    private static void execute(JdbcDataSource dataSource, String sql, Object... parameters) {
+        dataSource.connection.withCloseable { connection ->
+            def statement = connection.prepareStatement(sql)
+            parameters.eachWithIndex { parameter, i -> statement.setObject(i + 1, parameter) }
+            statement.executeUpdate()
+        }
+    }
+
+    private static List<List<Object>> rows(JdbcDataSource dataSource, String sql) {
+        dataSource.connection.withCloseable { connection ->
+            def resultSet = connection.createStatement().executeQuery(sql)
+            def rows = []
+            while (resultSet.next()) {
+                def row = []
+                for (int i = 1; i <= resultSet.metaData.columnCount; i++) {
+                    def value = resultSet.getObject(i)
+                    row << (value instanceof java.sql.Timestamp ? value.toLocalDateTime()
+                            : value instanceof java.sql.Time ? value.toLocalTime() : value)
+                }
+                rows << row
+            }
+            rows
+        }
+    }
+}
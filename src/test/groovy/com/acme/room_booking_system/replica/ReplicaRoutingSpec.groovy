@@ -0,0 +1,96 @@
+package com.acme.room_booking_system.replica
+
+import com.acme.room_booking_system.model.dto.RoomRequest
+import com.acme.room_booking_system.repository.RoomRepository
+import com.acme.room_booking_system.service.RoomService
+import io.micrometer.core.instrument.MeterRegistry
+import org.flywaydb.core.Flyway
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.http.MediaType
+import org.springframework.test.web.servlet.MockMvc
+import spock.lang.Specification
+
+import java.sql.DriverManager
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
+
+//the replica is a database of its own without replication, so where a read ran shows in what it finds
+@SpringBootTest(properties = ["spring.datasource.url=jdbc:h2:mem:replica-spec-primary;DB_CLOSE_DELAY=-1",
+        "booking.replicas.urls=jdbc:h2:mem:replica-spec-0;DB_CLOSE_DELAY=-1"])
+@AutoConfigureMockMvc
+class ReplicaRoutingSpec extends Specification {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica-spec-0;DB_CLOSE_DELAY=-1"
+
+    //migrated before the context starts, like a replica that is already in sync
+    static {
+        Flyway.configure().dataSource(REPLICA_URL, "sa", "").load().migrate()
+        DriverManager.getConnection(REPLICA_URL, "sa", "").withCloseable { connection ->
+            connection.createStatement().execute("insert into room (name, created_at, updated_at) values ('Replica Room', now(), now())")
+        }
+    }
+
+    @Autowired
+    MockMvc mockMvc
+
+    @Autowired
+    RoomService roomService
+
+    @Autowired
+    RoomRepository roomRepository
+
+    @Autowired
+    MeterRegistry meterRegistry
+
+    def cleanup() {
+        roomRepository.findAll().each { roomService.deleteRoom(it.id) }
+    }
+
+    def "Serve read-only service calls from the replica and everything else from the primary"() {
+        given:
+        def replicaReads = transactions("replica")
+
+        when: "A room is created on the primary"
+        roomService.createRoom(new RoomRequest("Primary Room"))
+
+        then: "The listing reads the replica, which has not seen it"
+        roomService.getAllRooms()*.name == ["Replica Room"]
+        transactions("replica") == replicaReads + 1
+
+        and: "Plain repository reads stay on the primary"
+        roomRepository.findAll()*.name == ["Primary Room"]
+    }
+
+    def "Let a client read its own writes from the primary while others read the replica"() {
+        when: "A client creates a room"
+        def created = mockMvc.perform(post("/api/rooms").with(httpBasic("test", "test"))
+                .contentType(MediaType.APPLICATION_JSON).content('{"name": "Fresh Room"}')).andReturn().response
+        def token = created.getCookie(ReadYourWrites.COOKIE)
+
+        then: "It gets a token for its reads"
+        created.status == 201
+        token != null
+
+        when: "It lists the rooms right away"
+        def own = mockMvc.perform(get("/api/rooms").with(httpBasic("test", "test")).cookie(token)).andReturn().response
+
+        then: "It sees its new room"
+        own.contentAsString.contains("Fresh Room")
+        !own.contentAsString.contains("Replica Room")
+
+        when: "Another client of the same user lists the rooms"
+        def other = mockMvc.perform(get("/api/rooms").with(httpBasic("test", "test"))).andReturn().response
+
+        then: "It is served by the replica"
+        other.contentAsString.contains("Replica Room")
+        !other.contentAsString.contains("Fresh Room")
+    }
+
+    private double transactions(String target) {
+        meterRegistry.get("booking.replicas.transactions").tag("target", target).counter().count()
+    }
+}
@@ -0,0 +1,33 @@
+package com.acme.room_booking_system.repository
+
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.jdbc.core.JdbcTemplate
+import spock.lang.Specification
+
+@SpringBootTest
+class BookingIndexSpec extends Specification {
+
+    @Autowired
+    JdbcTemplate jdbcTemplate
+
+    def "The migrations create the booking and room indexes"() {
+        when: "The indexes of the schema are listed"
+        def indexes = jdbcTemplate.queryForList(
+                "select index_name from information_schema.indexes where table_name in ('BOOKING', 'ROOM')", String)
+
+        then: "The overlap index and the unique room name index exist"
+        indexes.contains("IDX_BOOKING_ROOM_DATE_TIME")
+        indexes.contains("UK_ROOM_NAME")
+    }
+
+    def "The overlap check is answered from the composite index"() {
+        when: "The plan of the overlap predicate is explained"
+        def plan = jdbcTemplate.queryForObject("explain select b.id from booking b " +
+                "where b.room_id = 1 and b.date = date '2030-01-01' and b.start_time < time '11:00' and b.end_time > time '10:00' " +
+                "fetch first 1 rows only", String)
+
+        then: "The composite index is used"
+        plan.contains("IDX_BOOKING_ROOM_DATE_TIME")
+    }
+}
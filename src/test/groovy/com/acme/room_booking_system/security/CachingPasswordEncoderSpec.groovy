@@ -0,0 +1,63 @@
+package com.acme.room_booking_system.security
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.security.crypto.password.PasswordEncoder
+import spock.lang.Specification
+
+import java.time.Duration
+
+class CachingPasswordEncoderSpec extends Specification {
+
+    CachingPasswordEncoder encoder
+    PasswordEncoder delegate = Mock()
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+
+    def setup() {
+        encoder = new CachingPasswordEncoder(delegate, meterRegistry, 100, Duration.ofMinutes(5))
+    }
+
+    def "Verify a correct password only once"() {
+        when: "The same credentials are checked twice"
+        def first = encoder.matches("secret", "hash")
+        def second = encoder.matches("secret", "hash")
+
+        then: "The delegate hashes once and the second check is a cache hit"
+        1 * delegate.matches("secret", "hash") >> true
+        first
+        second
+        meterRegistry.get("cache.gets").tag("cache", "credentials").tag("result", "hit").functionCounter().count() == 1
+    }
+
+    def "Do not cache failed checks"() {
+        when: "A wrong password is checked twice"
+        def first = encoder.matches("wrong", "hash")
+        def second = encoder.matches("wrong", "hash")
+
+        then: "The delegate is asked every time"
+        2 * delegate.matches("wrong", "hash") >> false
+        !first
+        !second
+    }
+
+    def "Verify again once the encoded password changes"() {
+        given: "Credentials verified against the old hash"
+        delegate.matches("secret", "old hash") >> true
+        encoder.matches("secret", "old hash")
+
+        when: "The same password is checked against a new hash"
+        def matches = encoder.matches("secret", "new hash")
+
+        then: "The delegate decides"
+        1 * delegate.matches("secret", "new hash") >> false
+        !matches
+    }
+
+    def "Encode with the delegate"() {
+        when: "A password is encoded"
+        def encoded = encoder.encode("secret")
+
+        then: "The delegate encodes it"
+        1 * delegate.encode("secret") >> "hash"
+        encoded == "hash"
+    }
+}
@@ -0,0 +1,97 @@
+package com.acme.room_booking_system.service
+
+import com.acme.room_booking_system.model.dto.BookingRequest
+import com.acme.room_booking_system.model.dto.RoomRequest
+import com.acme.room_booking_system.repository.BookingRepository
+import com.acme.room_booking_system.repository.RoomRepository
+import jakarta.persistence.EntityManagerFactory
+import org.hibernate.SessionFactory
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import spock.lang.Specification
+
+import java.time.LocalDate
+import java.time.LocalTime
+
+@SpringBootTest
+class BookingBatchSpec extends Specification {
+
+    @Autowired
+    BookingService bookingService
+
+    @Autowired
+    RoomService roomService
+
+    @Autowired
+    BookingRepository bookingRepository
+
+    @Autowired
+    RoomRepository roomRepository
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory
+
+    def date = LocalDate.now().plusDays(1)
+
+    def cleanup() {
+        bookingRepository.deleteAll()
+        //delete rooms through the service so they are evicted from the room cache
+        roomRepository.findAll().each { roomService.deleteRoom(it.id) }
+    }
+
+    def "Report success or failure for every request of a batch"() {
+        given: "A room with an existing booking"
+        roomService.createRoom(new RoomRequest("Batch Room"))
+        bookingService.createBooking(request("Batch Room", 8, 9))
+
+        and: "A batch mixing valid, overlapping and invalid requests"
+        def requests = [
+                request("Batch Room", 10, 11),
+                request("Batch Room", 10, 12),
+                request("Batch Room", 8, 9),
+                request("Unknown Room", 10, 11),
+                new BookingRequest("Batch Room", "not-an-email", date, LocalTime.of(13, 0), LocalTime.of(14, 0)),
+                request("Batch Room", 12, 14)
+        ]
+
+        when: "The batch is submitted"
+        def results = bookingService.createBookings(requests)
+
+        then: "Each request gets its own outcome in batch order"
+        results*.index == [0, 1, 2, 3, 4, 5]
+        results*.created == [true, false, false, false, false, true]
+        results[1].error == "Booking time overlaps with another booking."
+        results[2].error == "Booking time overlaps with another booking."
+        results[3].error == "Room not found with name: Unknown Room"
+        results[4].error == "Invalid email format"
+        results[5].booking.startTime == LocalTime.of(12, 0)
+
+        and: "Only the accepted bookings are stored"
+        bookingRepository.count() == 3
+    }
+
+    def "Insert large batches with jdbc batching"() {
+        given: "Ten rooms and a batch filling twenty hours of each"
+        def roomNames = (1..10).collect { "Batch Room ${it}".toString() }
+        roomNames.each { roomService.createRoom(new RoomRequest(it)) }
+        def requests = roomNames.collectMany { roomName -> (0..<20).collect { hour -> request(roomName, hour, hour + 1) } }
+
+        def statistics = entityManagerFactory.unwrap(SessionFactory).statistics
+        statistics.clear()
+
+        when: "The batch is submitted"
+        def results = bookingService.createBookings(requests)
+
+        then: "Every booking is created"
+        results.every { it.created }
+        bookingRepository.count() == 200
+
+        and: "The inserts are sent in a handful of jdbc batches instead of one statement per row"
+        statistics.entityInsertCount == 200
+        statistics.prepareStatementCount < 20
+    }
+
+    private BookingRequest request(String roomName, int startHour, int endHour) {
+        new BookingRequest(roomName, "employee@acme.com", date, LocalTime.of(startHour, 0), LocalTime.of(endHour, 0))
+    }
+}
@@ -0,0 +1,88 @@
+package com.acme.room_booking_system.service
+
+import com.acme.room_booking_system.exception.BookingOverlapException
+import com.acme.room_booking_system.model.dto.BookingRequest
+import com.acme.room_booking_system.model.dto.RoomRequest
+import com.acme.room_booking_system.repository.BookingRepository
+import com.acme.room_booking_system.repository.RoomRepository
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import spock.lang.Specification
+
+import java.time.LocalDate
+import java.time.LocalTime
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+@SpringBootTest
+class BookingConcurrencySpec extends Specification {
+
+    @Autowired
+    BookingService bookingService
+
+    @Autowired
+    RoomService roomService
+
+    @Autowired
+    BookingRepository bookingRepository
+
+    @Autowired
+    RoomRepository roomRepository
+
+    def cleanup() {
+        bookingRepository.deleteAll()
+        //delete rooms through the service so they are evicted from the room cache
+        roomRepository.findAll().each { roomService.deleteRoom(it.id) }
+    }
+
+    def "Parallel overlapping bookings never double book a room"() {
+        given: "Two rooms and thousands of overlapping booking requests for the same day"
+        def roomNames = ["Stress Room A", "Stress Room B"]
+        roomNames.each { roomService.createRoom(new RoomRequest(it)) }
+
+        def date = LocalDate.now().plusDays(1)
+        def random = new Random(42)
+        def requests = (1..4000).collect {
+            def startHour = 6 + random.nextInt(14)
+            def hours = 1 + random.nextInt(3)
+            new BookingRequest(roomNames[it % 2], "employee${it}@acme.com", date,
+                    LocalTime.of(startHour, 0), LocalTime.of(startHour + hours, 0))
+        }
+
+        def executor = Executors.newFixedThreadPool(64)
+        def startGate = new CountDownLatch(1)
+        def accepted = new AtomicInteger()
+        def rejected = new AtomicInteger()
+
+        when: "All requests are fired at once"
+        def futures = requests.collect { request ->
+            executor.submit({
+                startGate.await()
+                try {
+                    bookingService.createBooking(request)
+                    accepted.incrementAndGet()
+                } catch (BookingOverlapException ignored) {
+                    rejected.incrementAndGet()
+                }
+            } as Callable)
+        }
+        startGate.countDown()
+        futures*.get()
+        executor.shutdown()
+
+        then: "Every request is either accepted or rejected as an overlap"
+        accepted.get() + rejected.get() == requests.size()
+        accepted.get() > 0
+
+        and: "The stored bookings of each room never overlap"
+        def storedBookings = roomNames.collect { roomName ->
+            bookingRepository.findByRoomAndDate(roomRepository.findByName(roomName).get(), date).sort { it.startTime }
+        }
+        storedBookings.every { bookings ->
+            (1..<bookings.size()).every { i -> !bookings[i].startTime.isBefore(bookings[i - 1].endTime) }
+        }
+        storedBookings.sum { it.size() } == accepted.get()
+    }
+}
@@ -0,0 +1,121 @@
+package com.acme.room_booking_system.service
+
+import com.acme.room_booking_system.exception.BadRequestException
+import com.acme.room_booking_system.model.dto.BookingRequest
+import com.acme.room_booking_system.model.dto.DaySchedule
+import com.acme.room_booking_system.model.dto.RecurringBookingRequest
+import com.acme.room_booking_system.model.dto.RoomRequest
+import com.acme.room_booking_system.model.entity.RecurrenceFrequency
+import com.acme.room_booking_system.repository.BookingRepository
+import com.acme.room_booking_system.repository.RecurringBookingRepository
+import com.acme.room_booking_system.repository.RoomRepository
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.time.LocalDate
+import java.time.LocalTime
+
+@SpringBootTest
+class BookingScheduleRangeSpec extends Specification {
+
+    @Autowired
+    BookingService bookingService
+
+    @Autowired
+    RecurringBookingService recurringBookingService
+
+    @Autowired
+    RoomService roomService
+
+    @Autowired
+    BookingRepository bookingRepository
+
+    @Autowired
+    RecurringBookingRepository recurringBookingRepository
+
+    @Autowired
+    RoomRepository roomRepository
+
+    @Shared
+    def tomorrow = LocalDate.now().plusDays(1)
+
+    def setup() {
+        (1..3).each { roomService.createRoom(new RoomRequest("Range Room " + it)) }
+    }
+
+    def cleanup() {
+        recurringBookingRepository.findAll().each { recurringBookingService.cancelRecurringBooking(it.id) }
+        bookingRepository.deleteAll()
+        roomRepository.findAll().each { roomService.deleteRoom(it.id) }
+    }
+
+    def "Group the bookings of a room by day with the occurrences merged in"() {
+        given: "Two bookings on the first day, one on the third and a daily booking over the first two days"
+        bookingService.createBooking(booking("Range Room 1", tomorrow, 14, 15))
+        bookingService.createBooking(booking("Range Room 1", tomorrow, 9, 10))
+        bookingService.createBooking(booking("Range Room 1", tomorrow.plusDays(2), 9, 10))
+        bookingService.createBooking(booking("Range Room 1", tomorrow.plusDays(10), 9, 10))
+        recurringBookingService.createRecurringBooking(new RecurringBookingRequest("Range Room 1", "daily@acme.com",
+                RecurrenceFrequency.DAILY, tomorrow, tomorrow.plusDays(1), LocalTime.of(11, 0), LocalTime.of(12, 0)))
+
+        when: "A week of the room is read"
+        List<DaySchedule> schedules = bookingService.getSchedulesByRoom("Range Room 1", tomorrow, tomorrow.plusDays(6))
+
+        then: "Only the days with bookings are returned, each in start order"
+        schedules*.date == [tomorrow, tomorrow.plusDays(1), tomorrow.plusDays(2)]
+        schedules*.roomName.unique() == ["Range Room 1"]
+        schedules[0].bookings*.startTime == [LocalTime.of(9, 0), LocalTime.of(11, 0), LocalTime.of(14, 0)]
+        schedules[1].bookings*.startTime == [LocalTime.of(11, 0)]
+        schedules[2].bookings*.startTime == [LocalTime.of(9, 0)]
+    }
+
+    def "Page through the schedules of all rooms by room id"() {
+        given: "A booking in every room"
+        (1..3).each { bookingService.createBooking(booking("Range Room " + it, tomorrow, 9, 10)) }
+
+        when: "The first page of two rooms is read"
+        def first = bookingService.getSchedules(tomorrow, tomorrow.plusDays(6), null, 2)
+
+        then: "It holds the first two rooms and a cursor"
+        first.schedules*.roomName == ["Range Room 1", "Range Room 2"]
+        first.nextCursor != null
+
+        when: "The next page is read"
+        def second = bookingService.getSchedules(tomorrow, tomorrow.plusDays(6), first.nextCursor, 2)
+
+        then: "It holds the last room and no cursor"
+        second.schedules*.roomName == ["Range Room 3"]
+        second.nextCursor == null
+    }
+
+    def "Export the schedules of all rooms page by page"() {
+        given: "A booking in every room"
+        (1..3).each { bookingService.createBooking(booking("Range Room " + it, tomorrow, 9, 10)) }
+
+        when: "All rooms are exported two at a time"
+        def exported = []
+        bookingService.exportSchedules(tomorrow, tomorrow, 2, { exported << it })
+
+        then: "Every room is handed over once"
+        exported*.roomName == ["Range Room 1", "Range Room 2", "Range Room 3"]
+    }
+
+    def "Reject ranges that are reversed or too long"() {
+        when:
+        bookingService.getSchedulesByRoom("Range Room 1", from, to)
+
+        then:
+        thrown(BadRequestException)
+
+        where:
+        from                  | to
+        tomorrow.plusDays(1)  | tomorrow
+        tomorrow              | tomorrow.plusDays(31)
+    }
+
+    private static BookingRequest booking(String roomName, LocalDate date, int startHour, int endHour) {
+        new BookingRequest(roomName, "range@acme.com", date, LocalTime.of(startHour, 0), LocalTime.of(endHour, 0))
+    }
+}
@@ -1,16 +1,29 @@
 package com.acme.room_booking_system.service
 
+import com.acme.room_booking_system.cache.DayScheduleCache
+import com.acme.room_booking_system.event.BookingEventBus
+import com.acme.room_booking_system.event.BookingEventType
+import com.acme.room_booking_system.exception.BadRequestException
 import com.acme.room_booking_system.exception.BookingCancellationException
 import com.acme.room_booking_system.exception.BookingOverlapException
 import com.acme.room_booking_system.exception.InvalidBookingDurationException
+import com.acme.room_booking_system.exception.NotFoundException
 import com.acme.room_booking_system.helper.BookingHelper
+import com.acme.room_booking_system.helper.RecurringBookingHelper
+import com.acme.room_booking_system.index.BookingIntervalIndex
+import com.acme.room_booking_system.lock.BookingLockManager
+import com.acme.room_booking_system.metrics.BookingMetrics
 import com.acme.room_booking_system.model.dto.BookingResponse
+import com.acme.room_booking_system.model.dto.TimeSlotResponse
 import com.acme.room_booking_system.model.entity.Booking
 import com.acme.room_booking_system.model.entity.Room
 import com.acme.room_booking_system.model.dto.BookingRequest
+import com.acme.room_booking_system.repository.ArchivedBookingRepository
 import com.acme.room_booking_system.repository.BookingRepository
+import com.acme.room_booking_system.sharding.ShardRouter
 import com.acme.room_booking_system.helper.RoomHelper
-import jakarta.persistence.EntityNotFoundException
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.data.domain.Limit
 import spock.lang.Specification
 
 import java.time.LocalDate
@@ -22,9 +35,21 @@ class BookingServiceSpec extends Specification {
     BookingRepository bookingRepository = Mock()
     BookingHelper bookingHelper = Mock()
     RoomHelper roomHelper = Mock()
+    BookingIntervalIndex bookingIntervalIndex = Mock()
+    BookingLockManager bookingLockManager = new BookingLockManager(16)
+    DayScheduleCache dayScheduleCache = Mock()
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+    BookingEventBus bookingEventBus = Mock()
+    ArchivedBookingRepository archivedBookingRepository = Mock()
+    ShardRouter shardRouter = Mock()
+    RecurringBookingHelper recurringBookingHelper = Mock() {
+        withOccurrences(_, _, _) >> { room, date, bookings -> bookings }
+    }
 
     def setup() {
-        bookingService = new BookingService(bookingRepository, bookingHelper, roomHelper)
+        bookingService = new BookingService(bookingRepository, bookingHelper, roomHelper, bookingIntervalIndex, bookingLockManager, dayScheduleCache,
+                new BookingMetrics(meterRegistry), recurringBookingHelper, bookingEventBus,
+                archivedBookingRepository, shardRouter)
     }
 
     def "Get bookings by room and date successfully"() {
@@ -32,14 +57,14 @@ class BookingServiceSpec extends Specification {
         def roomName = "Room A"
         def room = new Room(id: 1L, name: roomName)
         def bookings = [
-                new Booking(id: 1L, employeeEmail: "asterios@gmail.com", startTime: LocalTime.of(10, 0), endTime: LocalTime.of(11, 0)),
-                new Booking(id: 2L, employeeEmail: "stelios@gmail.com", startTime: LocalTime.of(11, 0), endTime: LocalTime.of(12, 0))
+                new BookingResponse("asterios@gmail.com", LocalTime.of(10, 0), LocalTime.of(11, 0)),
+                new BookingResponse("stelios@gmail.com", LocalTime.of(11, 0), LocalTime.of(12, 0))
         ]
         def date = LocalDate.now()
 
         when: "Bookings are retrieved by room and date"
         roomHelper.findRoomByName(roomName) >> room
-        bookingRepository.findByRoomAndDate(room, date) >> bookings
+        bookingRepository.findBookingResponsesByRoomAndDate(room, date) >> bookings
 
         def result = bookingService.getBookingsByRoomAndDate(roomName, date)
 
@@ -58,14 +83,54 @@ class BookingServiceSpec extends Specification {
         def date = LocalDate.now()
 
         when: "Bookings are retrieved by room and date"
-        roomHelper.findRoomByName(roomName) >> room
-        bookingRepository.findByRoomAndDate(room, date) >> []
+        bookingRepository.findBookingResponsesByRoomAndDate(room, date) >> []
 
         def result = bookingService.getBookingsByRoomAndDate(roomName, date)
 
         then: "An empty list is returned"
         result.size() == 0
-        1 * roomHelper.findRoomByName(roomName)
+        1 * roomHelper.findRoomByName(roomName) >> room
+    }
+
+    def "Get free slots from the occupancy index"() {
+        given: "A room with its 10:00-12:00 hours occupied"
+        def roomName = "Room A"
+        def room = new Room(id: 1L, name: roomName)
+        def date = LocalDate.now().plusDays(1)
+        def occupiedHours = (1L << 10) | (1L << 11)
+        def freeSlots = [new TimeSlotResponse(LocalTime.of(0, 0), LocalTime.of(10, 0)),
+                         new TimeSlotResponse(LocalTime.of(12, 0), LocalTime.of(23, 0))]
+
+        when: "The free slots are retrieved"
+        roomHelper.findRoomByName(roomName) >> room
+        bookingIntervalIndex.covers(date) >> true
+        bookingIntervalIndex.occupiedHours(room.id, date) >> occupiedHours
+        bookingHelper.mapToFreeSlots(date, occupiedHours) >> freeSlots
+
+        def result = bookingService.getFreeSlots(roomName, date)
+
+        then: "The free slots are returned without querying the bookings"
+        result == freeSlots
+        0 * bookingRepository.findByRoomAndDate(_, _)
+    }
+
+    def "Read the free slots of a day before the index horizon from the database"() {
+        given: "A past day the index does not hold"
+        def roomName = "Room A"
+        def room = new Room(id: 1L, name: roomName)
+        def date = LocalDate.now().minusDays(1)
+        def booking = new Booking(id: 1L, room: room, date: date, startTime: LocalTime.of(10, 0), endTime: LocalTime.of(12, 0))
+
+        when: "The free slots are retrieved"
+        roomHelper.findRoomByName(roomName) >> room
+        bookingIntervalIndex.covers(date) >> false
+
+        bookingService.getFreeSlots(roomName, date)
+
+        then: "The bookings of the day are read instead of the empty index"
+        1 * bookingRepository.findByRoomAndDate(room, date) >> [booking]
+        0 * bookingIntervalIndex.occupiedHours(*_)
+        1 * bookingHelper.mapToFreeSlots(date, (1L << 10) | (1L << 11))
     }
 
     def "Create a booking successfully"() {
@@ -91,6 +156,15 @@ class BookingServiceSpec extends Specification {
         createdBooking.employeeEmail == request.employeeEmail
         createdBooking.startTime == request.startTime
         createdBooking.endTime == request.endTime
+
+        and: "The cached schedule of the room-day is evicted"
+        1 * dayScheduleCache.evict(room.id, request.date)
+
+        and: "The save is timed"
+        meterRegistry.get("booking.repository.save").tag("operation", "create").timer().count() == 1
+
+        and: "The change is published"
+        1 * bookingEventBus.publish({ it.type() == BookingEventType.BOOKING_CREATED && it.booking().is(bookingResponse) })
     }
 
     def "Throw exception when booking date is in the past"() {
@@ -103,13 +177,13 @@ class BookingServiceSpec extends Specification {
         when: "The booking is attempted"
         roomHelper.findRoomByName(request.roomName) >> room
         bookingHelper.validateBookingAndDates(request, room, null) >> {
-            throw new IllegalArgumentException("The booking date cannot be in the past.")
+            throw new BadRequestException("The booking date cannot be in the past.")
         }
 
         bookingService.createBooking(request)
 
         then: "An exception is thrown"
-        def e = thrown(IllegalArgumentException)
+        def e = thrown(BadRequestException)
         e.message == "The booking date cannot be in the past."
     }
 
@@ -122,13 +196,13 @@ class BookingServiceSpec extends Specification {
         when: "The booking is attempted"
         roomHelper.findRoomByName(request.roomName) >> room
         bookingHelper.validateBookingAndDates(request, room, null) >> {
-            throw new IllegalArgumentException("The booking start time cannot be in the past.")
+            throw new BadRequestException("The booking start time cannot be in the past.")
         }
 
         bookingService.createBooking(request)
 
         then: "An exception is thrown"
-        def e = thrown(IllegalArgumentException)
+        def e = thrown(BadRequestException)
         e.message == "The booking start time cannot be in the past."
     }
 
@@ -170,30 +244,41 @@ class BookingServiceSpec extends Specification {
         e.message == "Booking time overlaps with another booking."
     }
 
-    def "Return all bookings"() {
+    def "Return the first page of bookings"() {
         given: "A list of bookings"
-        def bookings = [
-                new Booking(id: 1L, room: new Room(name: "Room A"), employeeEmail: "asterios@gmail.com", date: LocalDate.now(), startTime: LocalTime.of(10, 0), endTime: LocalTime.of(11, 0)),
-                new Booking(id: 2L, room: new Room(name: "Room B"), employeeEmail: "stelios@gmail.com", date: LocalDate.now(), startTime: LocalTime.of(11, 0), endTime: LocalTime.of(12, 0))
-        ]
         def bookingResponses = [
-                new BookingResponse("Room A", "asterios@gmail.com", LocalDate.now(), LocalTime.of(10, 0), LocalTime.of(11, 0)),
-                new BookingResponse("Room B", "stelios@gmail.com", LocalDate.now(), LocalTime.of(11, 0), LocalTime.of(12, 0))
+                new BookingResponse(1L, "Room A", "asterios@gmail.com", LocalDate.now(), LocalTime.of(10, 0), LocalTime.of(11, 0)),
+                new BookingResponse(2L, "Room B", "stelios@gmail.com", LocalDate.now(), LocalTime.of(11, 0), LocalTime.of(12, 0))
         ]
 
-        when: "All bookings are retrieved"
-        bookingRepository.findAll() >> bookings
-        bookingHelper.mapToBookingResponse("Room A", bookings[0]) >> bookingResponses[0]
-        bookingHelper.mapToBookingResponse("Room B", bookings[1]) >> bookingResponses[1]
+        when: "The first page of bookings is retrieved"
+        bookingRepository.findBookingResponsesAfter(0L, Limit.of(3)) >> bookingResponses
 
-        def result = bookingService.getAllBookings()
+        def result = bookingService.getAllBookings(null, 2)
 
-        then: "The list of bookings is returned as BookingResponse list"
-        result.size() == 2
-        result[0].employeeEmail == "asterios@gmail.com"
-        result[1].employeeEmail == "stelios@gmail.com"
-        result[0].startTime == LocalTime.of(10, 0)
-        result[1].endTime == LocalTime.of(12, 0)
+        then: "The bookings are returned as BookingResponse list without a next cursor"
+        result.bookings.size() == 2
+        result.bookings[0].employeeEmail == "asterios@gmail.com"
+        result.bookings[1].employeeEmail == "stelios@gmail.com"
+        result.bookings[0].startTime == LocalTime.of(10, 0)
+        result.bookings[1].endTime == LocalTime.of(12, 0)
+        result.nextCursor == null
+    }
+
+    def "Return a next cursor when more bookings follow"() {
+        given: "More bookings than the page size"
+        def bookingResponses = (11L..13L).collect { id ->
+            new BookingResponse(id, "Room A", "asterios@gmail.com", LocalDate.now(), LocalTime.of(10, 0), LocalTime.of(11, 0))
+        }
+
+        when: "A page after a cursor is retrieved"
+        bookingRepository.findBookingResponsesAfter(10L, Limit.of(3)) >> bookingResponses
+
+        def result = bookingService.getAllBookings(10L, 2)
+
+        then: "Only the page is returned and the cursor points at its last booking"
+        result.bookings*.id == [11L, 12L]
+        result.nextCursor == 12L
     }
 
     def "Update booking successfully"() {
@@ -221,6 +306,34 @@ class BookingServiceSpec extends Specification {
         result.endTime == request.endTime
     }
 
+    def "Move a booking to another room under the locks of both rooms"() {
+        given: "A booking in one room and an update request naming another"
+        def previousRoom = new Room(id: 1L, name: "Room A")
+        def room = new Room(id: 2L, name: "Room B")
+        def date = LocalDate.now().plusDays(1)
+        def booking = new Booking(id: 1L, room: previousRoom, date: date, startTime: LocalTime.of(9, 0), endTime: LocalTime.of(10, 0))
+        def request = new BookingRequest(room.name, "asterios@gmail.com", date.plusDays(1), LocalTime.of(10, 0), LocalTime.of(11, 0))
+
+        when: "The booking is updated"
+        bookingHelper.findBookingById(1L) >> booking
+        roomHelper.findRoomByName(room.name) >> room
+        bookingRepository.save(_) >> { Booking saved -> saved }
+        bookingHelper.mapToBookingResponse(room.name, _) >> new BookingResponse(room.name, request.employeeEmail, request.date, request.startTime, request.endTime)
+
+        bookingService.updateBooking(1L, request)
+
+        then: "It is validated against the new room and saved there"
+        1 * bookingHelper.validateBookingAndDates(request, room, 1L)
+        booking.room == room
+        booking.date == request.date
+
+        and: "The index and the schedules of both rooms follow it"
+        1 * bookingIntervalIndex.move(booking, previousRoom.id, date, LocalTime.of(9, 0))
+        1 * dayScheduleCache.evict(previousRoom.id, date)
+        1 * dayScheduleCache.evict(room.id, request.date)
+        1 * bookingEventBus.publish({ it.roomName() == room.name && it.previousRoomName() == previousRoom.name })
+    }
+
     def "Throw exception if trying to update booking with a past time"() {
         given: "An existing booking and an update request with a past time"
         def roomName = "Room A"
@@ -233,13 +346,13 @@ class BookingServiceSpec extends Specification {
         bookingHelper.findBookingById(1L) >> booking
         roomHelper.findRoomByName(request.roomName) >> room
         bookingHelper.validateBookingAndDates(request, room, 1L) >> {
-            throw new IllegalArgumentException("The booking start time cannot be in the past.")
+            throw new BadRequestException("The booking start time cannot be in the past.")
         }
 
         bookingService.updateBooking(1L, request)
 
         then: "An exception is thrown"
-        def e = thrown(IllegalArgumentException)
+        def e = thrown(BadRequestException)
         e.message == "The booking start time cannot be in the past."
     }
 
@@ -266,15 +379,34 @@ class BookingServiceSpec extends Specification {
 
     def "Cancel future booking successfully"() {
         given: "A future booking"
-        def booking = new Booking(id: 1L, date: LocalDate.now().plusDays(1))
+        def booking = new Booking(id: 1L, room: new Room(id: 1L, name: "Room A"), date: LocalDate.now().plusDays(1))
 
         when: "The booking is cancelled"
         bookingRepository.findById(1L) >> Optional.of(booking)
         bookingHelper.findBookingById(1L) >> booking
         bookingService.cancelBooking(1L)
 
-        then: "The booking is deleted"
+        then: "The booking is deleted and removed from the index and the schedule cache"
         1 * bookingRepository.delete(booking)
+        1 * bookingIntervalIndex.remove(booking)
+        1 * dayScheduleCache.evict(1L, booking.date)
+    }
+
+    def "Cancel a booking on the room-day it moved to while the cancel waited"() {
+        given: "A booking read on one room-day and moved to another before its lock is taken"
+        def stale = new Booking(id: 1L, room: new Room(id: 1L, name: "Room A"), date: LocalDate.now().plusDays(1))
+        def moved = new Booking(id: 1L, room: new Room(id: 2L, name: "Room B"), date: LocalDate.now().plusDays(2))
+
+        when: "The booking is cancelled"
+        bookingHelper.findBookingById(1L) >>> [stale, moved, moved]
+        bookingService.cancelBooking(1L)
+
+        then: "The current row is deleted and the room-day it is on now is updated"
+        1 * bookingRepository.delete(moved)
+        0 * bookingRepository.delete(stale)
+        1 * bookingIntervalIndex.remove(moved)
+        1 * dayScheduleCache.evict(2L, moved.date)
+        0 * dayScheduleCache.evict(1L, _)
     }
 
     def "Throw exception if booking not found by ID"() {
@@ -284,19 +416,19 @@ class BookingServiceSpec extends Specification {
 
         when: "Booking retrieval is attempted"
         bookingHelper.findBookingById(bookingId) >> {
-            throw new EntityNotFoundException("Booking not found with id: " + bookingId)
+            throw new NotFoundException("Booking not found with id: " + bookingId)
         }
 
         bookingService.cancelBooking(bookingId)
 
         then: "An exception is thrown"
-        def e = thrown(EntityNotFoundException)
+        def e = thrown(NotFoundException)
         e.message == "Booking not found with id: 1"
     }
 
     def "Throw exception if trying to cancel past booking"() {
         given: "A past booking"
-        def booking = new Booking(id: 1L, date: LocalDate.now().minusDays(1))
+        def booking = new Booking(id: 1L, room: new Room(id: 1L, name: "Room A"), date: LocalDate.now().minusDays(1))
 
         when: "Cancellation is attempted"
         bookingHelper.findBookingById(1L) >> booking
@@ -306,5 +438,6 @@ class BookingServiceSpec extends Specification {
         def e = thrown(BookingCancellationException)
         e.message == "Cannot cancel past bookings."
         0 * bookingRepository.delete(_)
+        0 * bookingIntervalIndex.remove(_)
     }
 }
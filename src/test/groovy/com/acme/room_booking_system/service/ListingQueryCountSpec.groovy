@@ -0,0 +1,113 @@
+package com.acme.room_booking_system.service
+
+import com.acme.room_booking_system.model.entity.Booking
+import com.acme.room_booking_system.model.entity.Room
+import com.acme.room_booking_system.repository.BookingRepository
+import com.acme.room_booking_system.repository.RoomRepository
+import jakarta.persistence.EntityManagerFactory
+import org.hibernate.SessionFactory
+import org.hibernate.stat.Statistics
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import spock.lang.Specification
+
+import java.time.LocalDate
+import java.time.LocalTime
+
+@SpringBootTest
+class ListingQueryCountSpec extends Specification {
+
+    @Autowired
+    BookingService bookingService
+
+    @Autowired
+    RoomService roomService
+
+    @Autowired
+    BookingRepository bookingRepository
+
+    @Autowired
+    RoomRepository roomRepository
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory
+
+    Statistics statistics
+
+    def setup() {
+        statistics = entityManagerFactory.unwrap(SessionFactory).statistics
+    }
+
+    def cleanup() {
+        bookingRepository.deleteAll()
+        //delete rooms through the service so they are evicted from the room cache
+        roomRepository.findAll().each { roomService.deleteRoom(it.id) }
+    }
+
+    def "Listing bookings issues one statement regardless of row count"() {
+        given: "Bookings spread over several rooms"
+        seed(rooms, bookingsPerRoom)
+
+        when: "All bookings are listed and exported"
+        def page = countStatements { bookingService.getAllBookings(null, 1000) }
+        def export = countStatements { bookingService.exportBookings { } }
+
+        then: "Each listing runs a single query"
+        page == 1
+        export == 1
+
+        where:
+        rooms | bookingsPerRoom
+        1     | 1
+        5     | 20
+    }
+
+    def "Listing a room schedule issues a constant number of statements"() {
+        given: "Bookings of a room on one day"
+        seed(1, bookingsPerRoom)
+
+        when: "The day schedule of the room is listed twice"
+        def cold = countStatements { bookingService.getBookingsByRoomAndDate("Room 0", LocalDate.now().plusDays(1)) }
+        def warm = countStatements { bookingService.getBookingsByRoomAndDate("Room 0", LocalDate.now().plusDays(1)) }
+
+        then: "The room lookup and the schedule take one query each"
+        cold == 2
+
+        and: "The room is served from the cache afterwards"
+        warm == 1
+
+        where:
+        bookingsPerRoom << [1, 20]
+    }
+
+    def "Listing rooms issues one statement regardless of row count"() {
+        given: "Rooms with bookings"
+        seed(rooms, 3)
+
+        when: "All rooms are listed"
+        def statements = countStatements { roomService.getAllRooms() }
+
+        then: "The rooms are read with a single query"
+        statements == 1
+
+        where:
+        rooms << [1, 30]
+    }
+
+    private long countStatements(Closure action) {
+        statistics.clear()
+        action()
+        statistics.prepareStatementCount
+    }
+
+    private void seed(int rooms, int bookingsPerRoom) {
+        def date = LocalDate.now().plusDays(1)
+        (0..<rooms).each { r ->
+            def room = roomRepository.save(new Room(name: "Room ${r}"))
+            bookingRepository.saveAll((0..<bookingsPerRoom).collect { b ->
+                new Booking(room: room, employeeEmail: "employee${b}@acme.com", date: date,
+                        startTime: LocalTime.of(0, 0).plusMinutes(b * 60), endTime: LocalTime.of(0, 0).plusMinutes(b * 60 + 30))
+            })
+        }
+    }
+}
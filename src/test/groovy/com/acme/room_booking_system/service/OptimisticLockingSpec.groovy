@@ -0,0 +1,160 @@
+package com.acme.room_booking_system.service
+
+import com.acme.room_booking_system.exception.PreconditionFailedException
+import com.acme.room_booking_system.model.dto.BookingRequest
+import com.acme.room_booking_system.model.dto.RoomRequest
+import com.acme.room_booking_system.repository.BookingRepository
+import com.acme.room_booking_system.repository.RoomRepository
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.dao.OptimisticLockingFailureException
+import spock.lang.Specification
+
+import java.time.LocalDate
+import java.time.LocalTime
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+@SpringBootTest
+class OptimisticLockingSpec extends Specification {
+
+    @Autowired
+    BookingService bookingService
+
+    @Autowired
+    RoomService roomService
+
+    @Autowired
+    BookingRepository bookingRepository
+
+    @Autowired
+    RoomRepository roomRepository
+
+    def date = LocalDate.now().plusDays(1)
+
+    def setup() {
+        roomService.createRoom(new RoomRequest("Version Room"))
+    }
+
+    def cleanup() {
+        bookingRepository.deleteAll()
+        roomRepository.findAll().each { roomService.deleteRoom(it.id) }
+    }
+
+    def "Parallel read-modify-write cycles with If-Match never lose an update"() {
+        given: "A booking whose email holds a counter"
+        def booking = bookingService.createBooking(counter(0))
+        def threads = 8
+        def incrementsPerThread = 25
+
+        def executor = Executors.newFixedThreadPool(threads)
+        def startGate = new CountDownLatch(1)
+        def conflicts = new AtomicInteger()
+
+        when: "Every thread increments the counter, reading it again whenever its version is stale"
+        def futures = (1..threads).collect {
+            executor.submit({
+                startGate.await()
+                incrementsPerThread.times {
+                    while (true) {
+                        def current = bookingRepository.findById(booking.id).get()
+                        def value = current.employeeEmail.takeWhile { it != '@' } as int
+                        try {
+                            bookingService.updateBooking(booking.id, counter(value + 1), current.version)
+                            break
+                        } catch (PreconditionFailedException ignored) {
+                            conflicts.incrementAndGet()
+                        }
+                    }
+                }
+            } as Callable)
+        }
+        startGate.countDown()
+        futures*.get()
+        executor.shutdown()
+
+        then: "Every increment is kept and bumped the version once"
+        def stored = bookingRepository.findById(booking.id).get()
+        stored.employeeEmail == "${threads * incrementsPerThread}@acme.com"
+        stored.version == booking.version + threads * incrementsPerThread
+    }
+
+    def "Parallel unconditional renames are each applied on a fresh read"() {
+        given:
+        def room = roomRepository.findByName("Version Room").get()
+        def threads = 8
+        def executor = Executors.newFixedThreadPool(threads)
+        def startGate = new CountDownLatch(1)
+        def applied = new AtomicInteger()
+        def conflicts = new AtomicInteger()
+
+        when: "Every thread renames the room at once"
+        def futures = (1..threads).collect { thread ->
+            executor.submit({
+                startGate.await()
+                try {
+                    roomService.updateRoom(room.id, new RoomRequest("Version Room " + thread))
+                    applied.incrementAndGet()
+                } catch (OptimisticLockingFailureException ignored) {
+                    conflicts.incrementAndGet()
+                }
+            } as Callable)
+        }
+        startGate.countDown()
+        futures*.get()
+        executor.shutdown()
+
+        then: "Each applied rename bumped the version once, none was silently overwritten"
+        applied.get() + conflicts.get() == threads
+        roomRepository.findById(room.id).get().version == room.version + applied.get()
+    }
+
+    def "Reject an update based on a stale version"() {
+        given: "A booking updated once after it was read"
+        def booking = bookingService.createBooking(counter(0))
+        bookingService.updateBooking(booking.id, counter(1), booking.version)
+
+        when: "The first version is sent again"
+        bookingService.updateBooking(booking.id, counter(2), booking.version)
+
+        then: "The precondition fails and the first update is kept"
+        thrown(PreconditionFailedException)
+        bookingRepository.findById(booking.id).get().employeeEmail == "1@acme.com"
+    }
+
+    def "Reject a rename based on a stale version"() {
+        given:
+        def room = roomRepository.findByName("Version Room").get()
+        roomService.updateRoom(room.id, new RoomRequest("Version Room 2"), room.version)
+
+        when:
+        roomService.updateRoom(room.id, new RoomRequest("Version Room 3"), room.version)
+
+        then:
+        thrown(PreconditionFailedException)
+        roomRepository.findById(room.id).get().name == "Version Room 2"
+    }
+
+    def "Return the current versions from reads and the saved id from room writes"() {
+        given: "A booking updated once and a renamed room"
+        def booking = bookingService.createBooking(counter(0))
+        def updated = bookingService.updateBooking(booking.id, counter(1), booking.version)
+        def room = roomRepository.findByName("Version Room").get()
+        def renamed = roomService.updateRoom(room.id, new RoomRequest("Version Room 2"), room.version)
+
+        expect: "The day list, the schedules and the page carry the version an If-Match needs"
+        bookingService.getBookingsByRoomAndDate("Version Room 2", date)*.version == [updated.version]
+        bookingService.getSchedules(date, date, 0L, 10).schedules*.bookings.flatten()*.version == [updated.version]
+        bookingService.getAllBookings(0L, 10).bookings*.version == [updated.version]
+
+        and: "Room writes return the id of the saved room"
+        renamed.id == room.id
+        roomService.getAvailableRooms(date, LocalTime.of(12, 0), LocalTime.of(13, 0))*.version == [renamed.version]
+    }
+
+    private BookingRequest counter(int value) {
+        new BookingRequest("Version Room", "${value}@acme.com", date, LocalTime.of(10, 0), LocalTime.of(11, 0))
+    }
+}
@@ -0,0 +1,134 @@
+package com.acme.room_booking_system.service
+
+import com.acme.room_booking_system.exception.BookingOverlapException
+import com.acme.room_booking_system.exception.RoomDeletionException
+import com.acme.room_booking_system.model.dto.BookingRequest
+import com.acme.room_booking_system.model.dto.RecurringBookingRequest
+import com.acme.room_booking_system.model.dto.RoomRequest
+import com.acme.room_booking_system.model.entity.RecurrenceFrequency
+import com.acme.room_booking_system.repository.BookingRepository
+import com.acme.room_booking_system.repository.RecurringBookingRepository
+import com.acme.room_booking_system.repository.RoomRepository
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import spock.lang.Specification
+
+import java.time.DayOfWeek
+import java.time.LocalDate
+import java.time.LocalTime
+import java.time.temporal.TemporalAdjusters
+
+@SpringBootTest
+class RecurringBookingSpec extends Specification {
+
+    @Autowired
+    RecurringBookingService recurringBookingService
+
+    @Autowired
+    BookingService bookingService
+
+    @Autowired
+    RoomService roomService
+
+    @Autowired
+    RecurringBookingRepository recurringBookingRepository
+
+    @Autowired
+    BookingRepository bookingRepository
+
+    @Autowired
+    RoomRepository roomRepository
+
+    def monday = LocalDate.now().plusDays(1).with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY))
+
+    def setup() {
+        roomService.createRoom(new RoomRequest("Recurring Room"))
+    }
+
+    def cleanup() {
+        recurringBookingRepository.findAll().each { recurringBookingService.cancelRecurringBooking(it.id) }
+        bookingRepository.deleteAll()
+        roomRepository.findAll().each { roomService.deleteRoom(it.id) }
+    }
+
+    def "Store a weekly booking once and show it on every occurrence"() {
+        when: "A weekly booking for a year is created"
+        def created = recurringBookingService.createRecurringBooking(weekly(monday.plusWeeks(52), 10, 11))
+
+        then: "A single row is stored"
+        created.id != null
+        recurringBookingRepository.count() == 1
+        bookingRepository.count() == 0
+
+        and: "Mondays show the occurrence and other days do not"
+        bookingService.getBookingsByRoomAndDate("Recurring Room", monday.plusWeeks(30))*.startTime == [LocalTime.of(10, 0)]
+        bookingService.getBookingsByRoomAndDate("Recurring Room", monday.plusWeeks(30).plusDays(1)).isEmpty()
+
+        and: "The occurrence takes its hour off the free slots"
+        !bookingService.getFreeSlots("Recurring Room", monday).any { it.startTime <= LocalTime.of(10, 0) && it.endTime > LocalTime.of(10, 0) }
+    }
+
+    def "Reject single bookings on an occurrence only"() {
+        given: "A weekly booking"
+        recurringBookingService.createRecurringBooking(weekly(monday.plusWeeks(10), 10, 11))
+
+        when: "A booking overlaps a later occurrence"
+        bookingService.createBooking(booking(monday.plusWeeks(5), 10, 12))
+
+        then: "It is rejected"
+        thrown(BookingOverlapException)
+
+        when: "The same time is booked on a tuesday"
+        def created = bookingService.createBooking(booking(monday.plusWeeks(5).plusDays(1), 10, 12))
+
+        then: "It is accepted"
+        created.startTime == LocalTime.of(10, 0)
+    }
+
+    def "Reject recurring bookings colliding with bookings or other recurrences"() {
+        given: "A booking on a monday and a daily recurrence in the afternoon"
+        bookingService.createBooking(booking(monday.plusWeeks(3), 9, 10))
+        recurringBookingService.createRecurringBooking(new RecurringBookingRequest("Recurring Room", "daily@acme.com",
+                RecurrenceFrequency.DAILY, monday, monday.plusDays(20), LocalTime.of(14, 0), LocalTime.of(15, 0)))
+
+        when: "A weekly recurrence covers the booked monday"
+        recurringBookingService.createRecurringBooking(weekly(monday.plusWeeks(8), 9, 10))
+
+        then: "It is rejected"
+        thrown(BookingOverlapException)
+
+        when: "A weekly recurrence shares a day and hour with the daily one"
+        recurringBookingService.createRecurringBooking(weekly(monday.plusWeeks(8), 14, 15))
+
+        then: "It is rejected"
+        thrown(BookingOverlapException)
+
+        when: "A weekly recurrence starts after the daily one ended"
+        def created = recurringBookingService.createRecurringBooking(new RecurringBookingRequest("Recurring Room",
+                "employee@acme.com", RecurrenceFrequency.WEEKLY, monday.plusWeeks(3), monday.plusWeeks(8),
+                LocalTime.of(14, 0), LocalTime.of(15, 0)))
+
+        then: "It is accepted"
+        created.id != null
+    }
+
+    def "Keep a room with recurring bookings"() {
+        given: "A weekly booking"
+        recurringBookingService.createRecurringBooking(weekly(monday.plusWeeks(4), 10, 11))
+
+        when: "The room is deleted"
+        roomService.deleteRoom(roomRepository.findByName("Recurring Room").get().id)
+
+        then: "An exception is thrown"
+        thrown(RoomDeletionException)
+    }
+
+    private RecurringBookingRequest weekly(LocalDate endDate, int startHour, int endHour) {
+        new RecurringBookingRequest("Recurring Room", "employee@acme.com", RecurrenceFrequency.WEEKLY, monday, endDate,
+                LocalTime.of(startHour, 0), LocalTime.of(endHour, 0))
+    }
+
+    private BookingRequest booking(LocalDate date, int startHour, int endHour) {
+        new BookingRequest("Recurring Room", "employee@acme.com", date, LocalTime.of(startHour, 0), LocalTime.of(endHour, 0))
+    }
+}
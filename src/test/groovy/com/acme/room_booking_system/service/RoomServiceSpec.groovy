@@ -1,23 +1,40 @@
 package com.acme.room_booking_system.service
 
+import com.acme.room_booking_system.event.BookingEventBus
+import com.acme.room_booking_system.exception.NotFoundException
 import com.acme.room_booking_system.exception.RoomAlreadyExistsException
 import com.acme.room_booking_system.exception.RoomDeletionException
-import com.acme.room_booking_system.model.entity.Booking
+import com.acme.room_booking_system.helper.RecurringBookingHelper
+import com.acme.room_booking_system.index.BookingIntervalIndex
 import com.acme.room_booking_system.model.entity.Room
 import com.acme.room_booking_system.model.dto.RoomRequest
+import com.acme.room_booking_system.model.dto.RoomResponse
+import com.acme.room_booking_system.repository.ArchivedBookingRepository
+import com.acme.room_booking_system.repository.BookingRepository
 import com.acme.room_booking_system.repository.RoomRepository
 import com.acme.room_booking_system.helper.RoomHelper
-import jakarta.persistence.EntityNotFoundException
 import spock.lang.Specification
 
+import java.time.LocalDate
+import java.time.LocalTime
+import java.util.function.Supplier
+
 class RoomServiceSpec extends Specification {
 
     RoomService roomService
     RoomRepository roomRepository = Mock()
     RoomHelper roomHelper = Mock()
+    BookingRepository bookingRepository = Mock()
+    ArchivedBookingRepository archivedBookingRepository = Mock()
+    BookingIntervalIndex bookingIntervalIndex = Mock()
+    BookingEventBus bookingEventBus = Mock()
+    RecurringBookingHelper recurringBookingHelper = Mock() {
+        findBusyRoomIds(_, _, _) >> ([] as Set)
+    }
 
     def setup() {
-        roomService = new RoomService(roomRepository, roomHelper)
+        roomService = new RoomService(roomRepository, roomHelper, bookingRepository, archivedBookingRepository, bookingIntervalIndex,
+                recurringBookingHelper, bookingEventBus)
     }
 
     def "Create room successfully"() {
@@ -27,13 +44,15 @@ class RoomServiceSpec extends Specification {
 
         when: "The room is created"
         roomHelper.checkRoomNameUniqueness(request.name) >> { } //no exception thrown
+        roomHelper.saveRoom(request.name, _) >> { String name, Supplier save -> save.get() }
         roomRepository.save(_) >> room
 
         def createdRoom = roomService.createRoom(request)
 
-        then: "The room is saved and returned"
+        then: "The room is saved, cached and returned"
         createdRoom.name == "Room A"
         1 * roomHelper.checkRoomNameUniqueness(request.name)
+        1 * roomHelper.cacheRoom(room)
     }
 
     def "Throw exception if room name already exists during creation"() {
@@ -54,10 +73,10 @@ class RoomServiceSpec extends Specification {
 
     def "Return all rooms successfully"() {
         given: "A list of rooms"
-        def rooms = [new Room(id: 1L, name: "Room A"), new Room(id: 2L, name: "Room B")]
+        def rooms = [new RoomResponse("Room A"), new RoomResponse("Room B")]
 
         when: "All rooms are retrieved"
-        roomRepository.findAll() >> rooms
+        roomRepository.findAllRoomResponses() >> rooms
 
         def result = roomService.getAllRooms()
 
@@ -67,6 +86,44 @@ class RoomServiceSpec extends Specification {
         result[1].name == "Room B"
     }
 
+    def "Find available rooms against the occupancy index"() {
+        given: "All rooms and a search window"
+        def rooms = [new RoomResponse(1L, "Room A"), new RoomResponse(2L, "Room B")]
+        def date = LocalDate.now().plusDays(1)
+        def start = LocalTime.of(10, 0)
+        def end = LocalTime.of(11, 0)
+
+        when: "The available rooms are retrieved"
+        bookingIntervalIndex.covers(date) >> true
+        roomRepository.findAllRoomResponsesWithIds() >> rooms
+
+        def result = roomService.getAvailableRooms(date, start, end)
+
+        then: "The index filters the rooms without a per-room query"
+        1 * bookingIntervalIndex.freeRooms(rooms, _, date, start, end) >> [rooms[1]]
+        0 * roomRepository.findAvailableRoomResponses(*_)
+        result*.name == ["Room B"]
+    }
+
+    def "Find available rooms in the database for dates the index does not hold"() {
+        given: "A search window"
+        def start = LocalTime.of(10, 0)
+        def end = LocalTime.of(11, 0)
+
+        when: "The available rooms are retrieved before the index is warmed up or for a past date"
+        bookingIntervalIndex.covers(date) >> false
+
+        def result = roomService.getAvailableRooms(date, start, end)
+
+        then: "A single query answers"
+        1 * roomRepository.findAvailableRoomResponses(date, start, end) >> [new RoomResponse(1L, "Room A")]
+        0 * bookingIntervalIndex.freeRooms(*_)
+        result*.name == ["Room A"]
+
+        where:
+        date << [LocalDate.now().plusDays(1), LocalDate.now().minusDays(1)]
+    }
+
     def "Update room successfully"() {
         given: "An existing room and a valid RoomRequest"
         def roomId = 1L
@@ -77,26 +134,34 @@ class RoomServiceSpec extends Specification {
         when: "The room is updated"
         roomHelper.findRoomById(roomId) >> room
         roomHelper.checkRoomNameUniqueness(request.getName()) >> { }
+        roomHelper.saveRoom(request.name, _) >> { String name, Supplier save -> save.get() }
         roomRepository.save(_) >> updatedRoom
 
         def result = roomService.updateRoom(roomId, request)
 
         then: "The room is updated and saved"
         result.name == "Room B"
+
+        and: "Both names are evicted and the renamed room is not cached"
+        1 * roomHelper.evictRoom("Room A")
+        1 * roomHelper.evictRoom("Room B")
+        0 * roomHelper.cacheRoom(_)
     }
 
     def "Delete room successfully when no active bookings"() {
         given: "An existing room with no active bookings"
         def roomId = 1L
-        def room = new Room(id: roomId, name: "Room A", bookings: [])
+        def room = new Room(id: roomId, name: "Room A")
 
         when: "The room is deleted"
         roomHelper.findRoomById(roomId) >> room
+        bookingRepository.existsByRoomId(roomId) >> false
 
         roomService.deleteRoom(roomId)
 
-        then: "The room is deleted"
+        then: "The room is deleted and evicted from the cache"
         1 * roomRepository.delete(room)
+        1 * roomHelper.evictRoom("Room A")
     }
 
     def "Throw exception if room not found by ID"() {
@@ -106,23 +171,24 @@ class RoomServiceSpec extends Specification {
 
         when: "The room deletion is attempted"
         roomHelper.findRoomById(roomId) >> {
-            throw new EntityNotFoundException("Room not found with id: " + roomId)
+            throw new NotFoundException("Room not found with id: " + roomId)
         }
 
         roomService.deleteRoom(roomId)
 
         then: "An exception is thrown"
-        def e = thrown(EntityNotFoundException)
+        def e = thrown(NotFoundException)
         e.message == "Room not found with id: 1"
     }
 
     def "Throw exception if trying to delete room with active bookings"() {
         given: "An existing room with active bookings"
         def roomId = 1L
-        def room = new Room(id: roomId, name: "Room A", bookings: [new Booking()])
+        def room = new Room(id: roomId, name: "Room A")
 
         when: "Room deletion is attempted"
         roomHelper.findRoomById(roomId) >> room
+        bookingRepository.existsByRoomId(roomId) >> true
 
         roomService.deleteRoom(roomId)
 
@@ -131,4 +197,21 @@ class RoomServiceSpec extends Specification {
         e.message == "Cannot delete room with active bookings."
         0 * roomRepository.delete(_)
     }
+
+    def "Throw exception if trying to delete room with archived bookings"() {
+        given: "A room whose past bookings have all been archived"
+        def roomId = 1L
+        def room = new Room(id: roomId, name: "Room A")
+
+        when: "Room deletion is attempted"
+        roomHelper.findRoomById(roomId) >> room
+        archivedBookingRepository.existsByRoomId(roomId) >> true
+
+        roomService.deleteRoom(roomId)
+
+        then: "An exception is thrown and the archive keeps its room"
+        def e = thrown(RoomDeletionException)
+        e.message == "Cannot delete room with archived bookings."
+        0 * roomRepository.delete(_)
+    }
 }
@@ -0,0 +1,133 @@
+package com.acme.room_booking_system.sharding
+
+import com.acme.room_booking_system.exception.RoomAlreadyExistsException
+import com.acme.room_booking_system.model.dto.BookingRequest
+import com.acme.room_booking_system.model.dto.RoomRequest
+import com.acme.room_booking_system.model.entity.Room
+import com.acme.room_booking_system.repository.BookingRepository
+import com.acme.room_booking_system.repository.RoomRepository
+import com.acme.room_booking_system.service.BookingService
+import com.acme.room_booking_system.service.RoomService
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import spock.lang.Specification
+
+import java.sql.DriverManager
+import java.time.LocalDate
+import java.time.LocalTime
+
+@SpringBootTest(properties = "booking.sharding.urls=jdbc:h2:mem:shard-spec-0;DB_CLOSE_DELAY=-1,jdbc:h2:mem:shard-spec-1;DB_CLOSE_DELAY=-1")
+class ShardingSpec extends Specification {
+
+    @Autowired
+    RoomService roomService
+
+    @Autowired
+    BookingService bookingService
+
+    @Autowired
+    RoomRepository roomRepository
+
+    @Autowired
+    BookingRepository bookingRepository
+
+    def tomorrow = LocalDate.now().plusDays(1)
+
+    def setup() {
+        //by the hash of their names odd rooms go to the first shard and even rooms to the second
+        (1..6).each { roomService.createRoom(new RoomRequest("Shard Room " + it)) }
+    }
+
+    def cleanup() {
+        bookingRepository.deleteAll()
+        roomRepository.findAll().each { roomService.deleteRoom(it.id) }
+    }
+
+    def "Keep every room and its bookings on the shard of its id"() {
+        given:
+        (1..6).each { bookingService.createBooking(booking("Shard Room " + it, 9)) }
+
+        expect: "Each shard holds its rooms with ids from its own range"
+        def rooms = roomRepository.findAll()
+        rooms.each { assert ShardRouter.shardOfRoom(it.id) == ShardRouter.shardForNewRoom(it.name, 2) }
+        names(0, "select name from room order by id") == ["Shard Room 1", "Shard Room 3", "Shard Room 5"]
+        names(1, "select name from room order by id") == ["Shard Room 2", "Shard Room 4", "Shard Room 6"]
+
+        and: "The bookings sit next to their rooms"
+        names(0, "select r.name from booking b join room r on r.id = b.room_id order by r.id") == ["Shard Room 1", "Shard Room 3", "Shard Room 5"]
+        names(1, "select r.name from booking b join room r on r.id = b.room_id order by r.id") == ["Shard Room 2", "Shard Room 4", "Shard Room 6"]
+    }
+
+    def "Gather rooms and pages of bookings from all shards in id order"() {
+        given:
+        (1..6).each { bookingService.createBooking(booking("Shard Room " + it, 9)) }
+        (1..6).each { bookingService.createBooking(booking("Shard Room " + it, 11)) }
+
+        when: "All rooms are listed"
+        def rooms = roomService.getAllRooms()
+
+        then:
+        rooms*.name as Set == (1..6).collect { "Shard Room " + it } as Set
+
+        when: "The bookings are read five at a time"
+        def pages = []
+        def page = bookingService.getAllBookings(null, 5)
+        pages << page.bookings
+        while (page.nextCursor != null) {
+            page = bookingService.getAllBookings(page.nextCursor, 5)
+            pages << page.bookings
+        }
+
+        then: "Every booking is read once, in id order"
+        pages*.size() == [5, 5, 2]
+        def ids = pages.flatten()*.id
+        ids == ids.toSorted()
+        ids as Set == bookingRepository.findAll()*.id as Set
+
+        and: "The export sees all of them too"
+        def exported = []
+        bookingService.exportBookings { exported << it }
+        exported*.id as Set == ids as Set
+    }
+
+    def "Find, move and cancel a booking on another shard by its id"() {
+        given:
+        def created = bookingService.createBooking(booking("Shard Room 2", 9))
+
+        when:
+        def updated = bookingService.updateBooking(created.id, booking("Shard Room 2", 13))
+        bookingService.cancelBooking(updated.id)
+
+        then:
+        updated.startTime == LocalTime.of(13, 0)
+        names(1, "select employee_email from booking") == []
+    }
+
+    def "Reject a rename to a name taken on another shard"() {
+        given: "A room of the first shard and a room of the second shard that is not cached"
+        def room = roomRepository.findByName("Shard Room 1").orElseThrow()
+        roomRepository.save(new Room(name: "Shard Room 8"))
+
+        when: "The first room takes the name of the second, which its own shard has no index entry for"
+        roomService.updateRoom(room.id, new RoomRequest("Shard Room 8"))
+
+        then:
+        thrown(RoomAlreadyExistsException)
+    }
+
+    private BookingRequest booking(String roomName, int hour) {
+        new BookingRequest(roomName, "shard@acme.com", tomorrow, LocalTime.of(hour, 0), LocalTime.of(hour + 1, 0))
+    }
+
+    //reads a single shard straight through jdbc, past the routing
+    private static List<String> names(int shard, String sql) {
+        DriverManager.getConnection("jdbc:h2:mem:shard-spec-${shard}", "sa", "").withCloseable { connection ->
+            def resultSet = connection.createStatement().executeQuery(sql)
+            def values = []
+            while (resultSet.next()) {
+                values << resultSet.getString(1)
+            }
+            values
+        }
+    }
+}